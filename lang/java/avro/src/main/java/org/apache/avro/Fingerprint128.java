@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+/**
+ * A 128-bit fingerprint, such as the MD5 digest of a schema. Fingerprints
+ * compare by value, so they can key caches where a 64-bit fingerprint might
+ * collide.
+ *
+ * @see Schema#getFingerprint128()
+ * @see Schema#getParsingFingerprint128()
+ */
+public final class Fingerprint128 {
+  private final long high;
+  private final long low;
+
+  public Fingerprint128(long high, long low) {
+    this.high = high;
+    this.low = low;
+  }
+
+  /** Returns the fingerprint of the first 16 bytes of a digest. */
+  public static Fingerprint128 of(byte[] digest) {
+    if (digest.length < 16) {
+      throw new IllegalArgumentException("Not a 128-bit digest: "
+          + digest.length + " bytes");
+    }
+    return new Fingerprint128(getLong(digest, 0), getLong(digest, 8));
+  }
+
+  private static long getLong(byte[] b, int off) {
+    long l = 0;
+    for (int i = off; i < off + 8; i++) {
+      l = (l << 8) | (b[i] & 0xff);
+    }
+    return l;
+  }
+
+  /** Returns the first 64 bits. */
+  public long getHigh() {
+    return high;
+  }
+
+  /** Returns the last 64 bits. */
+  public long getLow() {
+    return low;
+  }
+
+  /** Returns the 16 bytes this was read from by {@link #of(byte[])}. */
+  public byte[] toBytes() {
+    byte[] b = new byte[16];
+    for (int i = 0; i < 8; i++) {
+      b[i] = (byte) (high >>> (56 - 8 * i));
+      b[i + 8] = (byte) (low >>> (56 - 8 * i));
+    }
+    return b;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(high) * 31 + Long.hashCode(low);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Fingerprint128)) {
+      return false;
+    }
+    Fingerprint128 other = (Fingerprint128) obj;
+    return high == other.high && low == other.low;
+  }
+
+  /** Returns the 32 hexadecimal digits of the fingerprint. */
+  @Override
+  public String toString() {
+    return String.format("%016x%016x", high, low);
+  }
+}
@@ -229,6 +229,11 @@ public abstract class JsonProperties {
     return Collections.unmodifiableMap(props);
   }
 
+  /** Returns true if any property is defined. */
+  public boolean hasProps() {
+    return !props.isEmpty();
+  }
+
   /** Return the defined properties as an unmodifieable Map. */
   public Map<String,Object> getObjectProps() {
     Map<String,Object> result = Maps.newLinkedHashMapWithExpectedSize(props.size());
@@ -202,7 +202,9 @@ public class Protocol extends JsonProperties {
 
   private Schema.Names types = new Schema.Names();
   private final Map<String,Message> messages;
-  private byte[] md5;
+  private volatile byte[] md5;
+  private volatile String json;       // memoized toString(false)
+  private volatile String prettyJson; // memoized toString(true)
 
   /** An error that can be thrown by any message. */
   public static final Schema SYSTEM_ERROR = Schema.create(Schema.Type.STRING);
@@ -256,6 +258,42 @@ public class Protocol extends JsonProperties {
     types = new Schema.Names();
     for (Schema s : newTypes)
       types.add(s);
+    changed();
+  }
+
+  @Override
+  @Deprecated
+  public void addProp(String name, JsonNode value) {
+    super.addProp(name, value);
+    changed();
+  }
+
+  @Override
+  public void addJsonProps(Map<String, JsonNode> xtraProps) {
+    super.addJsonProps(xtraProps);
+    changed();
+  }
+
+  /** Clears the memoized JSON and MD5, after a change to this or to one of
+   * its schemas. */
+  void changed() {
+    json = null;
+    prettyJson = null;
+    md5 = null;
+  }
+
+  /** Registers with the types and messages, which the memoized JSON and MD5
+   * cover, so that changes to them clear it. */
+  private void addDependent() {
+    for (Schema type : types.values())
+      Schema.addDependent(type, this);
+    for (Message m : messages.values()) {
+      Schema.addDependent(m.getRequest(), this);
+      if (!m.isOneWay()) {
+        Schema.addDependent(m.getResponse(), this);
+        Schema.addDependent(m.getErrors(), this);
+      }
+    }
   }
 
   /** The messages of this protocol. */
@@ -306,10 +344,26 @@ public class Protocol extends JsonProperties {
   @Override
   public String toString() { return toString(false); }
 
-  /** Render this as <a href="http://json.org/">JSON</a>.
+  /** Render this as <a href="http://json.org/">JSON</a>.  The result is
+   * memoized, like {@link #getMD5()}, until this or one of its schemas is
+   * changed, so the messages must not be replaced once it is used.
    * @param pretty if true, pretty-print JSON.
    */
   public String toString(boolean pretty) {
+    String result = pretty ? prettyJson : json;
+    if (result == null) {
+      addDependent();
+      result = writeJson(pretty);
+      if (pretty) {
+        prettyJson = result;
+      } else {
+        json = result;
+      }
+    }
+    return result;
+  }
+
+  private String writeJson(boolean pretty) {
     try {
       StringWriter writer = new StringWriter();
       JsonGenerator gen = Schema.FACTORY.createJsonGenerator(writer);
@@ -350,14 +404,16 @@ public class Protocol extends JsonProperties {
 
   /** Return the MD5 hash of the text of this protocol. */
   public byte[] getMD5() {
-    if (md5 == null)
+    byte[] result = md5;
+    if (result == null)
       try {
-        md5 = MessageDigest.getInstance("MD5")
+        result = MessageDigest.getInstance("MD5")
           .digest(this.toString().getBytes(StandardCharsets.UTF_8));
+        md5 = result;
       } catch (Exception e) {
         throw new AvroRuntimeException(e);
       }
-    return md5;
+    return result;
   }
 
   /** Read a protocol from a Json file. */
@@ -17,13 +17,17 @@
  */
 package org.apache.avro;
 
+import org.apache.avro.util.BoundedCache;
 import org.apache.avro.util.Maps;
+import org.apache.avro.util.WeakIdentityHashMap;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -128,6 +132,12 @@ public abstract class Schema extends JsonProperties implements Serializable {
     MAPPER.registerModule(module);
     MAPPER.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     FACTORY.setCodec(MAPPER);
+    Accessor.setAccessor(new Accessor.SchemaAccessor() {
+      @Override
+      protected byte[] jsonBytes(Schema schema) {
+        return schema.jsonBytes();
+      }
+    });
   }
 
   private static final int NO_HASHCODE = Integer.MIN_VALUE;
@@ -188,6 +198,105 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
   int hashCode = NO_HASHCODE;
 
+  /** The memoized JSON forms and fingerprints, null or 0 until computed. */
+  private static final class Memo {
+    volatile String json;
+    volatile String prettyJson;
+    volatile byte[] jsonBytes;
+    volatile long fingerprint64;
+    volatile long parsingFingerprint64;
+    volatile Fingerprint128 fingerprint128;
+    volatile Fingerprint128 parsingFingerprint128;
+  }
+
+  private volatile Memo memo;
+  /**
+   * The schemas and protocols whose memos cover this schema, so must be
+   * cleared when it changes. Guarded by this, null until one is memoized.
+   */
+  private WeakIdentityHashMap<Object, Boolean> dependents;
+
+  /** Clears the memoized hash code, JSON and fingerprints, after a change,
+   * and those of the schemas and protocols that contain this. */
+  void changed() {
+    hashCode = NO_HASHCODE;
+    memo = null;
+    Set<Object> cleared;
+    synchronized (this) {
+      if (dependents == null) {
+        return;
+      }
+      cleared = dependents.keySet();
+      dependents = null;
+    }
+    for (Object dependent : cleared) {
+      if (dependent instanceof Schema) {
+        ((Schema) dependent).memo = null;
+      } else if (dependent instanceof Protocol) {
+        ((Protocol) dependent).changed();
+      }
+    }
+  }
+
+  /** Returns the memo, creating it if this or a schema it contains changed. */
+  private Memo memo() {
+    Memo result = memo;
+    if (result == null) {
+      result = new Memo();
+      addDependent(this, this);
+      memo = result;
+    }
+    return result;
+  }
+
+  /**
+   * Registers a schema or protocol whose memos cover a schema, with it and
+   * each schema it contains, so that a change to any of them clears those
+   * memos and no others. Registrations last until the next change.
+   */
+  static void addDependent(Schema schema, Object dependent) {
+    Set<Schema> seen = Collections.newSetFromMap(new IdentityHashMap<Schema, Boolean>());
+    ArrayDeque<Schema> pending = new ArrayDeque<>();
+    pending.push(schema);
+    while (!pending.isEmpty()) {
+      Schema s = pending.pop();
+      if (!seen.add(s)) {
+        continue;
+      }
+      if (s != dependent) {
+        synchronized (s) {
+          if (s.dependents == null) {
+            s.dependents = new WeakIdentityHashMap<>();
+          }
+          s.dependents.put(dependent, Boolean.TRUE);
+        }
+      }
+      switch (s.type) {
+        case RECORD:
+          List<Field> fields = ((RecordSchema) s).fields;
+          if (fields != null) {
+            for (Field f : fields) {
+              pending.push(f.schema());
+            }
+          }
+          break;
+        case ARRAY:
+          pending.push(s.getElementType());
+          break;
+        case MAP:
+          pending.push(s.getValueType());
+          break;
+        case UNION:
+          for (Schema branch : s.getTypes()) {
+            pending.push(branch);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
   public Schema withProp(String name, String value) {
     addProp(name, value);
     return this;
@@ -200,25 +309,25 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
   @Override
   public void addJsonProps(Map<String, JsonNode> xtraProps) {
-    hashCode = NO_HASHCODE;
+    changed();
     super.addJsonProps(xtraProps);
   }
 
   @Override
   public void addProp(String name, Object value) {
-    hashCode = NO_HASHCODE;
+    changed();
     super.addProp(name, value);
   }
 
   @Override
   public void addProp(String name, JsonNode value) {
-    hashCode = NO_HASHCODE;
+    changed();
     super.addProp(name, value);
   }
 
   @Override
   public void addProp(String name, String value) {
-    hashCode = NO_HASHCODE;
+    changed();
     super.addProp(name, value);
   }
 
@@ -306,13 +415,13 @@ public abstract class Schema extends JsonProperties implements Serializable {
         throw new IllegalStateException("Cannot set logicalType property, existing " + pVal + " to " + value);
       }
     }
-    this.hashCode = NO_HASHCODE;
+    changed();
   }
 
   public void parseLogicalType(final boolean allowUndefinedLogicalTypes) {
     if (this.logicalType == null) {
       this.logicalType = LogicalTypes.fromSchema(this, allowUndefinedLogicalTypes);
-      this.hashCode = NO_HASHCODE;
+      changed();
     }
   }
 
@@ -452,10 +561,37 @@ public abstract class Schema extends JsonProperties implements Serializable {
   @Override
   public String toString() { return toString(false); }
 
-  /** Render this as <a href="http://json.org/">JSON</a>.
+  /** Render this as <a href="http://json.org/">JSON</a>.  The result is
+   * memoized until this or any schema it contains is changed.
    * @param pretty if true, pretty-print JSON.
    */
   public String toString(boolean pretty) {
+    Memo m = memo();
+    String result = pretty ? m.prettyJson : m.json;
+    if (result == null) {
+      result = writeJson(pretty);
+      if (pretty) {
+        m.prettyJson = result;
+      } else {
+        m.json = result;
+      }
+    }
+    return result;
+  }
+
+  /** Returns the memoized UTF-8 bytes of {@link #toString()}, which must not
+   * be changed. */
+  byte[] jsonBytes() {
+    Memo m = memo();
+    byte[] result = m.jsonBytes;
+    if (result == null) {
+      result = toString().getBytes(StandardCharsets.UTF_8);
+      m.jsonBytes = result;
+    }
+    return result;
+  }
+
+  private String writeJson(boolean pretty) {
     try {
       StringWriter writer = new StringWriter(logicalType == null && props.isEmpty() ? 16 : 64);
       JsonGenerator gen = FACTORY.createGenerator(writer);
@@ -470,6 +606,70 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
   }
 
+  /**
+   * Returns the 64-bit Rabin fingerprint of the JSON form of this schema, as
+   * returned by {@link #toString()}. Unlike
+   * {@link SchemaNormalization#parsingFingerprint64(Schema)} this covers
+   * defaults, aliases and properties, so it distinguishes schemas that read
+   * data differently. The result is memoized.
+   */
+  public long getFingerprint64() {
+    Memo m = memo();
+    long result = m.fingerprint64;
+    if (result == 0) {
+      result = SchemaNormalization.fingerprint64(jsonBytes());
+      m.fingerprint64 = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the MD5 digest of the JSON form of this schema. Like
+   * {@link #getFingerprint64()} it covers defaults, aliases and properties,
+   * but it is long enough to key caches without collisions. The result is
+   * memoized until this or any schema it contains is changed.
+   */
+  public Fingerprint128 getFingerprint128() {
+    Memo m = memo();
+    Fingerprint128 result = m.fingerprint128;
+    if (result == null) {
+      result = SchemaNormalization.fingerprint128(jsonBytes());
+      m.fingerprint128 = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the 64-bit Rabin fingerprint of the parsing canonical form of
+   * this schema, see {@link SchemaNormalization#toParsingForm(Schema)}. The
+   * result is memoized.
+   */
+  public long getParsingFingerprint64() {
+    Memo m = memo();
+    long result = m.parsingFingerprint64;
+    if (result == 0) {
+      result = SchemaNormalization.fingerprint64(
+          SchemaNormalization.toParsingForm(this).getBytes(StandardCharsets.UTF_8));
+      m.parsingFingerprint64 = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the MD5 digest of the parsing canonical form of this schema, see
+   * {@link SchemaNormalization#toParsingForm(Schema)}. The result is memoized.
+   */
+  public Fingerprint128 getParsingFingerprint128() {
+    Memo m = memo();
+    Fingerprint128 result = m.parsingFingerprint128;
+    if (result == null) {
+      result = SchemaNormalization.fingerprint128(
+          SchemaNormalization.toParsingForm(this).getBytes(StandardCharsets.UTF_8));
+      m.parsingFingerprint128 = result;
+    }
+    return result;
+  }
+
   public void toJson(final JsonGenerator gen) throws IOException {
     toJson(new Names(), gen);
   }
@@ -559,6 +759,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
     private final String name;    // name of the field.
     private int position = -1;
+    private Schema record;        // the record this is a field of, once set
     private final Schema schema;
     private final String doc;
     private final JsonNode defaultValue;
@@ -640,6 +841,23 @@ public abstract class Schema extends JsonProperties implements Serializable {
       if (aliases == null)
         this.aliases = new LinkedHashSet<String>();
       aliases.add(alias);
+      changed();
+    }
+    @Override
+    @Deprecated
+    public void addProp(String name, JsonNode value) {
+      super.addProp(name, value);
+      changed();
+    }
+    @Override
+    public void addJsonProps(Map<String, JsonNode> xtraProps) {
+      super.addJsonProps(xtraProps);
+      changed();
+    }
+    private void changed() {
+      if (record != null) {
+        record.changed();
+      }
     }
     /** Return the defined aliases as an unmodifieable Set. */
     public Set<String> aliases() {
@@ -759,6 +977,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
       if (space == null)
         space = this.name.space;
       aliases.add(new Name(name, space));
+      changed();
     }
     public Set<String> getAliases() {
       Set<String> result = new LinkedHashSet<String>();
@@ -886,6 +1105,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
         if (f.position != -1)
           throw new AvroRuntimeException("Field already used: " + f);
         f.position = i++;
+        f.record = this;
         final Field existingField = fieldMap.put(f.name(), f);
         if (existingField != null) {
           throw new AvroRuntimeException(String.format(
@@ -895,7 +1115,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
         ff.add(f);
       }
       this.fields = ff.lock();
-      this.hashCode = NO_HASHCODE;
+      changed();
     }
     public boolean equals(Object o) {
       if (o == this) return true;
@@ -1369,6 +1589,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
     private final Names names;
     private boolean validate = true;
     private boolean validateDefaults = false;
+    private boolean cacheParsed = false;
 
     public Parser(final Names names) {
       this.names = names;
@@ -1415,6 +1636,33 @@ public abstract class Schema extends JsonProperties implements Serializable {
     /** True iff default values are validated.  False by default. */
     public boolean getValidateDefaults() { return this.validateDefaults; }
 
+    /** Enable or disable the cache of schemas parsed from strings.  A parser
+     * that has not parsed or been given any types yet then looks up the
+     * text in a cache shared by all parsers, so that parsing the same text
+     * again skips the JSON parser and returns the same schema, which must
+     * therefore not be changed.  Text with <tt>$ref</tt> references is not
+     * cached, and setting the <tt>avro.disableSchemaCache</tt> system
+     * property disables the cache altogether.  False by default. */
+    public Parser setCacheParsed(boolean cacheParsed) {
+      this.cacheParsed = cacheParsed;
+      return this;
+    }
+
+    /** True iff parsed schemas are cached.  False by default. */
+    public boolean getCacheParsed() { return this.cacheParsed; }
+
+    /**
+     * Returns the cache behind {@link #setCacheParsed(boolean)}, to monitor
+     * it.  It is bounded by the <tt>avro.schemaCache.maxSize</tt>,
+     * <tt>avro.schemaCache.maxWeight</tt> and
+     * <tt>avro.schemaCache.policy</tt> system properties, see
+     * {@link BoundedCache#fromSystemProperties}; the weight of a schema is
+     * the length of its text.
+     */
+    public static BoundedCache<?, ?> parsedSchemaCache() {
+      return Cache.PARSED;
+    }
+
     /** Parse a schema from the provided file.
      * If named, the schema is added to the names known to this parser. */
     public Schema parse(File file) throws IOException {
@@ -1445,8 +1693,27 @@ public abstract class Schema extends JsonProperties implements Serializable {
     /** Parse a schema from the provided string.
      * If named, the schema is added to the names known to this parser. */
     public Schema parse(String s, final boolean allowUndefinedLogicalTypes) {
+      if (cacheParsed && !Cache.DISABLED && names.isEmpty() && names.space() == null
+          && (names.getClass() == Names.class || names.getClass() == AvroNamesRefResolver.class)
+          && !s.contains("\"$ref\"")) {
+        Parsed parsed = Cache.PARSED.computeIfAbsent(
+            new Cache.Key(s, validate, validateDefaults, allowUndefinedLogicalTypes),
+            k -> {
+              Names defined = new Names();
+              Schema schema = parse(s, defined, allowUndefinedLogicalTypes);
+              return new Parsed(schema, defined.values(), s.length());
+            });
+        for (Schema named : parsed.named) {
+          names.add(named);
+        }
+        return parsed.schema;
+      }
+      return parse(s, names, allowUndefinedLogicalTypes);
+    }
+
+    private Schema parse(String s, Names into, boolean allowUndefinedLogicalTypes) {
       try {
-        return parse(FACTORY.createParser(new StringReader(s)), allowUndefinedLogicalTypes);
+        return parse(FACTORY.createParser(new StringReader(s)), into, allowUndefinedLogicalTypes);
       } catch (IOException e) {
         throw new SchemaParseException(e);
       }
@@ -1457,12 +1724,17 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     public Schema parse(JsonParser parser, final boolean allowUndefinedLogicalTypes) throws IOException {
+      return parse(parser, names, allowUndefinedLogicalTypes);
+    }
+
+    private Schema parse(JsonParser parser, Names into, boolean allowUndefinedLogicalTypes)
+      throws IOException {
       boolean saved = validateNames.get();
       boolean savedValidateDefaults = VALIDATE_DEFAULTS.get();
       try {
         validateNames.set(validate);
         VALIDATE_DEFAULTS.set(validateDefaults);
-        return Schema.parse(MAPPER.readTree(parser), names, allowUndefinedLogicalTypes);
+        return Schema.parse(MAPPER.readTree(parser), into, allowUndefinedLogicalTypes);
       } catch (JsonParseException e) {
         throw new SchemaParseException(e);
       } finally {
@@ -1470,6 +1742,55 @@ public abstract class Schema extends JsonProperties implements Serializable {
         VALIDATE_DEFAULTS.set(savedValidateDefaults);
       }
     }
+
+    /** A parsed schema and the named types it defines, in order. */
+    private static final class Parsed {
+      private final Schema schema;
+      private final Schema[] named;
+      private final long weight;
+
+      Parsed(Schema schema, Collection<Schema> named, long weight) {
+        this.schema = schema;
+        this.named = named.toArray(new Schema[named.size()]);
+        this.weight = weight;
+      }
+    }
+
+    private static final class Cache {
+      private static final boolean DISABLED = Boolean.getBoolean("avro.disableSchemaCache");
+      private static final BoundedCache<Key, Parsed> PARSED =
+        BoundedCache.fromSystemProperties("avro.schemaCache", 256, 1L << 22, p -> p.weight);
+
+      /** The text of a schema and the flags it was parsed with. */
+      private static final class Key {
+        private final String text;
+        private final int flags;
+
+        Key(String text, boolean validate, boolean validateDefaults,
+            boolean allowUndefinedLogicalTypes) {
+          this.text = text;
+          this.flags = (validate ? 1 : 0) | (validateDefaults ? 2 : 0)
+            | (allowUndefinedLogicalTypes ? 4 : 0);
+        }
+
+        @Override
+        public int hashCode() {
+          return text.hashCode() * 8 + flags;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+          if (this == obj) {
+            return true;
+          }
+          if (!(obj instanceof Key)) {
+            return false;
+          }
+          Key other = (Key) obj;
+          return flags == other.flags && text.equals(other.text);
+        }
+      }
+    }
   }
 
   /**
@@ -1690,7 +2011,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
     } else if (schema.isObject()) {
       JsonNode ref = schema.get("$ref");
       if (ref != null) {
-        return names.resolveSchema(ref.asText());
+        return SchemaInterner.internIfEnabled(names.resolveSchema(ref.asText()));
       }
       Schema result;
       String type = getRequiredText(schema, "type", "No type");
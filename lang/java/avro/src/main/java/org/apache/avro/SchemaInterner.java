@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pool of schemas that returns one shared instance for equal schemas, so
+ * that schemas read again and again, e.g. from the headers of many data
+ * files, share a single object graph and hit the caches keyed by schema
+ * identity. Schemas are held weakly, and are hashed by their memoized
+ * {@link Schema#getParsingFingerprint64() parsing fingerprint}. Since that
+ * ignores docs, defaults and properties, schemas must also be
+ * {@link Schema#equals(Object) equal} and have the same
+ * {@link Schema#getFingerprint128() JSON fingerprint} to be shared.
+ * <p/>
+ * Interned schemas are shared, so they must not be changed. Where Avro
+ * reads schemas, from data file headers, message decoders and
+ * <tt>$ref</tt> resolution, they are interned into {@link #get()} only if
+ * the <tt>avro.schema.intern</tt> system property is <tt>true</tt>.
+ */
+public final class SchemaInterner {
+  private static final SchemaInterner SHARED = new SchemaInterner();
+  private static final boolean ENABLED = Boolean.getBoolean("avro.schema.intern");
+
+  private final ConcurrentHashMap<Object, Ref> pool = new ConcurrentHashMap<>();
+  private final ReferenceQueue<Schema> collected = new ReferenceQueue<>();
+
+  /** Returns the pool shared by this process. */
+  public static SchemaInterner get() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the shared instance of <tt>schema</tt> if the
+   * <tt>avro.schema.intern</tt> system property is <tt>true</tt>, or else
+   * <tt>schema</tt>.
+   */
+  public static Schema internIfEnabled(Schema schema) {
+    return ENABLED && schema != null ? SHARED.intern(schema) : schema;
+  }
+
+  /**
+   * Returns the schema in this pool equal to <tt>schema</tt>, adding
+   * <tt>schema</tt> if there is none.
+   */
+  public Schema intern(Schema schema) {
+    int hash = Long.hashCode(schema.getParsingFingerprint64());
+    Lookup lookup = new Lookup(schema, hash);
+    for (;;) {
+      Ref ref = pool.get(lookup);
+      Schema interned = ref == null ? null : ref.get();
+      if (interned != null) {
+        return interned;
+      }
+      expunge();
+      ref = new Ref(schema, hash, collected);
+      Ref prior = pool.putIfAbsent(ref, ref);
+      if (prior == null) {
+        return schema;
+      }
+      interned = prior.get();
+      if (interned != null) {
+        return interned;
+      }
+      // collected since found, retry
+    }
+  }
+
+  /** Returns the number of schemas pooled, including those just collected. */
+  public int size() {
+    return pool.size();
+  }
+
+  private void expunge() {
+    for (Object stale; (stale = collected.poll()) != null;) {
+      pool.remove(stale);
+    }
+  }
+
+  private static boolean same(Schema a, Schema b) {
+    return a == b || (a.equals(b)
+        && a.getFingerprint128().equals(b.getFingerprint128()));
+  }
+
+  /** A pooled schema. Once collected it is only equal to itself. */
+  private static final class Ref extends WeakReference<Schema> {
+    private final int hash;
+
+    Ref(Schema schema, int hash, ReferenceQueue<Schema> queue) {
+      super(schema, queue);
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Ref)) {
+        return false;
+      }
+      Schema a = get();
+      Schema b = ((Ref) o).get();
+      return a != null && b != null && same(a, b);
+    }
+  }
+
+  /** Finds a {@link Ref} without creating a reference. */
+  private static final class Lookup {
+    private final Schema schema;
+    private final int hash;
+
+    Lookup(Schema schema, int hash) {
+      this.schema = schema;
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Ref)) {
+        return false;
+      }
+      Schema pooled = ((Ref) o).get();
+      return pooled != null && same(schema, pooled);
+    }
+  }
+}
@@ -20,7 +20,7 @@ package org.apache.avro;
 import java.util.Map;
 import java.util.HashMap;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -62,19 +62,22 @@ public class SchemaNormalization {
     throws NoSuchAlgorithmException
   {
     if (fpName.equals("CRC-64-AVRO")) {
-      long fp = fingerprint64(data);
-      byte[] result = new byte[8];
-      for (int i = 0; i < 8; i++) {
-        result[i] = (byte)fp;
-        fp >>= 8;
-      }
-      return result;
+      return littleEndian(fingerprint64(data));
     }
 
     MessageDigest md = MessageDigest.getInstance(fpName);
     return md.digest(data);
   }
 
+  private static byte[] littleEndian(long fp) {
+    byte[] result = new byte[8];
+    for (int i = 0; i < 8; i++) {
+      result[i] = (byte)fp;
+      fp >>= 8;
+    }
+    return result;
+  }
+
   /** Returns the 64-bit Rabin Fingerprint (as recommended in the Avro
     * spec) of a byte string. */
   public static long fingerprint64(byte[] data) {
@@ -84,23 +87,44 @@ public class SchemaNormalization {
     return result;
   }
 
+  /** Returns the MD5 digest, the 128-bit fingerprint recommended by the
+    * Avro spec, of a byte string. */
+  public static Fingerprint128 fingerprint128(byte[] data) {
+    try {
+      return Fingerprint128.of(MessageDigest.getInstance("MD5").digest(data));
+    } catch (NoSuchAlgorithmException e) {
+      // Shouldn't happen, every Java platform supports MD5
+      throw new RuntimeException(e);
+    }
+  }
+
   /** Returns {@link #fingerprint} applied to the parsing canonical form
-    * of the supplied schema. */
+    * of the supplied schema.  The <code>"CRC-64-AVRO"</code> and
+    * <code>"MD5"</code> fingerprints are memoized by the schema. */
   public static byte[] parsingFingerprint(String fpName, Schema s)
     throws NoSuchAlgorithmException
   {
-    try {
-      return fingerprint(fpName, toParsingForm(s).getBytes("UTF-8"));
-    } catch (UnsupportedEncodingException e) { throw new RuntimeException(e); }
+    if (fpName.equals("CRC-64-AVRO")) {
+      return littleEndian(s.getParsingFingerprint64());
+    }
+    if (fpName.equals("MD5")) {
+      return s.getParsingFingerprint128().toBytes();
+    }
+    return fingerprint(fpName, toParsingForm(s).getBytes(StandardCharsets.UTF_8));
   }
 
   /** Returns {@link #fingerprint64} applied to the parsing canonical form
-    * of the supplied schema. */
+    * of the supplied schema, as memoized by
+    * {@link Schema#getParsingFingerprint64()}. */
   public static long parsingFingerprint64(Schema s) {
-    try {
-      return fingerprint64(toParsingForm(s).getBytes("UTF-8"));
-    } catch (java.io.UnsupportedEncodingException e)
-      { throw new RuntimeException(e); }
+    return s.getParsingFingerprint64();
+  }
+
+  /** Returns {@link #fingerprint128} applied to the parsing canonical form
+    * of the supplied schema, as memoized by
+    * {@link Schema#getParsingFingerprint128()}. */
+  public static Fingerprint128 parsingFingerprint128(Schema s) {
+    return s.getParsingFingerprint128();
   }
 
   private static Appendable build(Map<String,String> env, Schema s,
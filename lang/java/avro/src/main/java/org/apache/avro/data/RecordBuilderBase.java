@@ -27,6 +27,7 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.util.internal.WeakIdentityCache;
 
 /** Abstract base class for RecordBuilder implementations.  Not thread-safe. */
 public abstract class RecordBuilderBase<T extends IndexedRecord>
@@ -125,11 +126,35 @@ public abstract class RecordBuilderBase<T extends IndexedRecord>
    */
   @SuppressWarnings({ "rawtypes", "unchecked" })
   public Object defaultValue(Field  field) throws IOException {
+    Object value = DEFAULTS.get(field);
+    if (value != null) {
+      return copyDefault(value, field.schema());
+    }
     Object defaultValue = field.defaultVal();
     if (defaultValue == null) {
           throw new AvroRuntimeException("Field " + field + " not set and has no default value");
     }
-    return javaDefaultValue(defaultValue, field.schema());
+    value = javaDefaultValue(defaultValue, field.schema());
+    if (value == null || hasLogicalType(field.schema())) {
+      return value;                     // not known to be safe to copy
+    }
+    return copyDefault(DEFAULTS.putIfAbsent(field, value), field.schema());
+  }
+
+  // the defaults converted from JSON once, shared by all builders
+  private static final WeakIdentityCache<Field, Object> DEFAULTS =
+    new WeakIdentityCache<>();
+
+  private static boolean hasLogicalType(Schema schema) {
+    return schema.getLogicalType() != null
+      || (schema.getType() == Type.UNION
+          && schema.getTypes().get(0).getLogicalType() != null);
+  }
+
+  /** Copies a cached default, as {@link #javaDefaultValue} copies JSON. */
+  private static Object copyDefault(Object value, Schema schema) {
+    return schema.getType() == Type.ENUM
+      ? value : GenericData.get().deepCopy(schema, value);
   }
 
   public static Object javaDefaultValue(Object defaultValue, Schema schema1) {
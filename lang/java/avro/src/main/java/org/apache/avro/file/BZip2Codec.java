@@ -18,7 +18,6 @@
 package org.apache.avro.file;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -29,7 +28,7 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream
 public class BZip2Codec extends Codec {
 
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
-  private ByteArrayOutputStream outputBuffer;
+  private final BufferOutputStream outputBuffer = new BufferOutputStream();
 
   static class Option extends CodecFactory {
     @Override
@@ -43,39 +42,46 @@ public class BZip2Codec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer uncompressedData) throws IOException {
+    return trim(compress(uncompressedData, null));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
+    return trim(decompress(compressedData, null));
+  }
 
-    ByteArrayOutputStream baos = getOutputBuffer(uncompressedData.remaining());
-    BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(baos);
+  @Override
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream bos =
+      outputBuffer.reset(out, uncompressedData.remaining() / 2);
+    BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(bos);
 
     try {
       outputStream.write(uncompressedData.array(),
-                         uncompressedData.position(),
+                         uncompressedData.arrayOffset()
+                         + uncompressedData.position(),
                          uncompressedData.remaining());
     } finally {
       outputStream.close();
     }
 
-    ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
-    return result;
+    return bos.result();
   }
 
   @Override
-  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array());
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream bos =
+      outputBuffer.reset(out, compressedData.remaining() * 2);
+    compressedData = onHeap(compressedData);
+    ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array(),
+        compressedData.arrayOffset() + compressedData.position(),
+        compressedData.remaining());
     BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(bais);
     try {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-      byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-
-      int readCount = -1;
-
-      while ( (readCount = inputStream.read(buffer, compressedData.position(), buffer.length))> 0) {
-        baos.write(buffer, 0, readCount);
-      }
-
-      ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
-      return result;
+      bos.readFrom(inputStream);
+      return bos.result();
     } finally {
       inputStream.close();
     }
@@ -92,14 +98,4 @@ public class BZip2Codec extends Codec {
     return true;
   }
 
-  //get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
-
-
 }
@@ -0,0 +1,366 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * An index of the blocks of a data file, for random access by record number
+ * or by the range of values of some fields.
+ * <p/>
+ * {@link DataFileWriter#setBlockIndex(String...)} writes the index next to
+ * the data file, in a sidecar file, so the data file itself is unchanged and
+ * readers that ignore the index read it as before. The index is itself a data
+ * file, with an entry per block: its offset, number of records and number of
+ * the first record and, for each indexed field, the least and greatest
+ * values in the block. The bounds are null when unknown, for blocks copied
+ * from another file or written with {@link DataFileWriter#appendEncoded}.
+ *
+ * @see DataFileReader#setBlockIndex(BlockIndex)
+ */
+public class BlockIndex {
+  /** The suffix of sidecar index files. */
+  public static final String SUFFIX = ".idx";
+
+  /** The metadata of an index holding the sync marker of its data file. */
+  static final String SYNC_META = "avro.index.sync";
+
+  private static final String NAMESPACE = "org.apache.avro.file.index";
+
+  private final byte[] sync;
+  private final List<Schema> schemas;           // of the indexed fields
+  private final List<String> fields;
+  private final long[] offsets;
+  private final long[] counts;
+  private final long[] firsts;
+  private final Object[][] mins;                // [field][block]
+  private final Object[][] maxs;
+
+  /** Returns the sidecar index file of a data file. */
+  public static File sidecarFile(File dataFile) {
+    return new File(dataFile.getPath() + SUFFIX);
+  }
+
+  /** Reads an index file. */
+  public static BlockIndex read(File indexFile) throws IOException {
+    return read(new SeekableFileInput(indexFile));
+  }
+
+  /** Reads an index, closing the input. */
+  public static BlockIndex read(SeekableInput in) throws IOException {
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<GenericRecord>(
+        in, new GenericDatumReader<GenericRecord>())) {
+      byte[] sync = reader.getMeta(SYNC_META);
+      if (sync == null) {
+        throw new IOException("Not a block index");
+      }
+      List<GenericRecord> entries = new ArrayList<GenericRecord>();
+      for (GenericRecord entry : reader) {
+        entries.add(entry);
+      }
+      return new BlockIndex(sync, reader.getSchema(), entries);
+    }
+  }
+
+  private BlockIndex(byte[] sync, Schema entrySchema,
+                     List<GenericRecord> entries) {
+    this.sync = sync;
+    Field min = entrySchema.getField("min");
+    List<String> names = new ArrayList<String>();
+    List<Schema> types = new ArrayList<Schema>();
+    if (min != null) {
+      for (Field f : min.schema().getFields()) {
+        names.add(f.name());
+        types.add(f.schema());          // nullable, for unknown bounds
+      }
+    }
+    this.fields = Collections.unmodifiableList(names);
+    this.schemas = types;
+    int n = entries.size();
+    this.offsets = new long[n];
+    this.counts = new long[n];
+    this.firsts = new long[n];
+    this.mins = new Object[names.size()][n];
+    this.maxs = new Object[names.size()][n];
+    for (int i = 0; i < n; i++) {
+      GenericRecord entry = entries.get(i);
+      offsets[i] = (Long) entry.get("offset");
+      counts[i] = (Long) entry.get("count");
+      firsts[i] = (Long) entry.get("first");
+      for (int f = 0; f < names.size(); f++) {
+        mins[f][i] = ((GenericRecord) entry.get("min")).get(f);
+        maxs[f][i] = ((GenericRecord) entry.get("max")).get(f);
+      }
+    }
+  }
+
+  /** Returns whether this indexes the data file with the given header. */
+  public boolean isIndexOf(DataFileStream.Header header) {
+    return Arrays.equals(sync, header.sync);
+  }
+
+  /** Returns the indexed fields. */
+  public List<String> getFields() {
+    return fields;
+  }
+
+  public int getBlockCount() {
+    return offsets.length;
+  }
+
+  /** Returns the position of a block, which may be passed to
+   * {@link DataFileReader#seek(long)}. */
+  public long getOffset(int block) {
+    return offsets[block];
+  }
+
+  /** Returns the number of records in a block. */
+  public long getRecordCount(int block) {
+    return counts[block];
+  }
+
+  /** Returns the number, from zero, of the first record of a block. */
+  public long getFirstRecord(int block) {
+    return firsts[block];
+  }
+
+  /** Returns the number of records in the file. */
+  public long getRecordCount() {
+    int last = offsets.length - 1;
+    return last < 0 ? 0 : firsts[last] + counts[last];
+  }
+
+  /** Returns the least value of a field in a block, or null if unknown. */
+  public Object getMin(int block, String field) {
+    return mins[fieldIndex(field)][block];
+  }
+
+  /** Returns the greatest value of a field in a block, or null if unknown. */
+  public Object getMax(int block, String field) {
+    return maxs[fieldIndex(field)][block];
+  }
+
+  /** Returns the schema of an indexed field's bounds, a union with null. */
+  Schema getFieldSchema(String field) {
+    return schemas.get(fieldIndex(field));
+  }
+
+  /** Returns the block holding a record, or -1 if there is none. */
+  public int findBlock(long record) {
+    int low = 0;
+    int high = offsets.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (record < firsts[mid]) {
+        high = mid - 1;
+      } else if (record >= firsts[mid] + counts[mid]) {
+        low = mid + 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the blocks that may hold values of a field between <i>low</i> and
+   * <i>high</i>, inclusive, in order. Either bound may be null, for no bound.
+   * Blocks whose bounds are unknown are always returned.
+   */
+  public List<Integer> findBlocks(String field, Object low, Object high) {
+    int f = fieldIndex(field);
+    Schema fieldSchema = schemas.get(f);
+    GenericData data = GenericData.get();
+    List<Integer> result = new ArrayList<Integer>();
+    for (int i = 0; i < offsets.length; i++) {
+      Object min = mins[f][i];
+      Object max = maxs[f][i];
+      if (min != null && max != null
+          && ((high != null && data.compare(min, high, fieldSchema) > 0)
+              || (low != null && data.compare(max, low, fieldSchema) < 0))) {
+        continue;
+      }
+      result.add(i);
+    }
+    return result;
+  }
+
+  private int fieldIndex(String field) {
+    int f = fields.indexOf(field);
+    if (f < 0) {
+      throw new AvroRuntimeException("Not an indexed field: " + field);
+    }
+    return f;
+  }
+
+  /** Collects the entries of an index while a data file is written. */
+  static class Builder {
+    private final GenericData data;
+    private final Field[] fields;
+    private final Schema entrySchema;
+    private final Schema boundsSchema;
+    private final ArrayDeque<GenericRecord> pending =
+      new ArrayDeque<GenericRecord>();
+    private final List<GenericRecord> entries = new ArrayList<GenericRecord>();
+    private final Object[] min;
+    private final Object[] max;
+    private boolean boundsKnown = true;
+    private long records;
+
+    /**
+     * @param data The model of the appended data.
+     * @param schema The schema of the data file.
+     * @param fieldNames The top-level fields whose bounds are indexed.
+     */
+    Builder(GenericData data, Schema schema, String[] fieldNames) {
+      this.data = data;
+      this.fields = new Field[fieldNames.length];
+      List<Field> bounds = new ArrayList<Field>();
+      for (int i = 0; i < fieldNames.length; i++) {
+        Field f = schema.getType() == Schema.Type.RECORD
+          ? schema.getField(fieldNames[i]) : null;
+        if (f == null) {
+          throw new AvroRuntimeException("No field to index: " + fieldNames[i]);
+        }
+        if (f.schema().getType() == Schema.Type.MAP) {
+          throw new AvroRuntimeException("Cannot index a map: " + f.name());
+        }
+        fields[i] = f;
+        bounds.add(new Field(f.name(), nullable(f.schema()), null,
+                             JsonProperties.NULL_VALUE));
+      }
+      List<Field> entryFields = new ArrayList<Field>();
+      entryFields.add(new Field("offset", Schema.create(Schema.Type.LONG),
+                                null, (Object) null));
+      entryFields.add(new Field("count", Schema.create(Schema.Type.LONG),
+                                null, (Object) null));
+      entryFields.add(new Field("first", Schema.create(Schema.Type.LONG),
+                                null, (Object) null));
+      if (fields.length > 0) {
+        this.boundsSchema = Schema.createRecord("Bounds", null, NAMESPACE,
+                                                false, bounds);
+        entryFields.add(new Field("min", boundsSchema, null, (Object) null));
+        entryFields.add(new Field("max", boundsSchema, null, (Object) null));
+      } else {
+        this.boundsSchema = null;
+      }
+      this.entrySchema = Schema.createRecord("BlockIndexEntry", null,
+                                             NAMESPACE, false, entryFields);
+      this.min = new Object[fields.length];
+      this.max = new Object[fields.length];
+    }
+
+    private static Schema nullable(Schema schema) {
+      List<Schema> types = new ArrayList<Schema>();
+      types.add(Schema.create(Schema.Type.NULL));
+      if (schema.getType() == Schema.Type.UNION) {
+        for (Schema type : schema.getTypes()) {
+          if (type.getType() != Schema.Type.NULL) {
+            types.add(type);
+          }
+        }
+      } else {
+        types.add(schema);
+      }
+      return Schema.createUnion(types);
+    }
+
+    /** Updates the bounds of the current block with an appended datum. */
+    void append(Object datum) {
+      for (int i = 0; i < fields.length; i++) {
+        Field f = fields[i];
+        Object value = data.getField(datum, f.name(), f.pos());
+        if (value == null) {
+          continue;
+        }
+        if (min[i] == null || data.compare(value, min[i], f.schema()) < 0) {
+          min[i] = data.deepCopy(f.schema(), value);
+        }
+        if (max[i] == null || data.compare(value, max[i], f.schema()) > 0) {
+          max[i] = data.deepCopy(f.schema(), value);
+        }
+      }
+    }
+
+    /** Notes that a datum was appended whose values are unknown. */
+    void appendUnknown() {
+      boundsKnown = false;
+    }
+
+    /** Ends the current block, of <i>count</i> records, which is written
+     * later, in order, see {@link #blockWritten(long)}. */
+    void endBlock(long count) {
+      GenericRecord entry = new GenericData.Record(entrySchema);
+      entry.put("count", count);
+      entry.put("first", records);
+      if (boundsSchema != null) {
+        GenericRecord lows = new GenericData.Record(boundsSchema);
+        GenericRecord highs = new GenericData.Record(boundsSchema);
+        for (int i = 0; i < fields.length; i++) {
+          lows.put(i, boundsKnown ? min[i] : null);
+          highs.put(i, boundsKnown ? max[i] : null);
+        }
+        entry.put("min", lows);
+        entry.put("max", highs);
+      }
+      pending.add(entry);
+      records += count;
+      Arrays.fill(min, null);
+      Arrays.fill(max, null);
+      boundsKnown = true;
+    }
+
+    /** Records the offset of the oldest block ended but not yet written. */
+    void blockWritten(long offset) {
+      GenericRecord entry = pending.poll();
+      entry.put("offset", offset);
+      entries.add(entry);
+    }
+
+    /** Writes the index of a data file with the given sync marker. */
+    void write(OutputStream out, byte[] sync) throws IOException {
+      DataFileWriter<GenericRecord> writer = new DataFileWriter<GenericRecord>(
+          new GenericDatumWriter<GenericRecord>(entrySchema, data));
+      writer.setMetaInternal(SYNC_META, sync);
+      writer.create(entrySchema, out);
+      try {
+        for (GenericRecord entry : entries) {
+          writer.append(entry);
+        }
+      } finally {
+        writer.close();
+      }
+    }
+  }
+}
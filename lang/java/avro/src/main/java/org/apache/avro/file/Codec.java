@@ -18,7 +18,10 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Interface for Avro-supported compression codecs for data files.
@@ -28,8 +31,35 @@ public abstract class Codec {
   public abstract String getName();
   /** Compresses the input data */
   public abstract ByteBuffer compress(ByteBuffer uncompressedData) throws IOException;
-  /** Decompress the data  */
+  /**
+   * Decompress the data. The data may be a direct or read-only buffer, for
+   * example a slice of a memory-mapped file, see {@link MappedFileInput}.
+   */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
+
+  /**
+   * Compresses the data into <i>out</i>, to avoid allocating a buffer for
+   * each block. Returns a heap buffer holding the result between position 0
+   * and its limit: <i>out</i>, if it was large enough, or else a new buffer,
+   * which callers should pass as <i>out</i> in the next call. <i>out</i> may
+   * be null, and must not share content with the data.
+   * <p/>
+   * The default implementation ignores <i>out</i> and calls
+   * {@link #compress(ByteBuffer)}; it may then also return the data itself.
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer out)
+    throws IOException {
+    return compress(uncompressedData);
+  }
+
+  /**
+   * Decompresses the data into <i>out</i>, with the same contract as
+   * {@link #compress(ByteBuffer, ByteBuffer)}.
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer out)
+    throws IOException {
+    return decompress(compressedData);
+  }
   /**
    * Codecs must implement an equals() method.  Two codecs, A and B are equal
    * if: the result of A and B decompressing content compressed by A is the same
@@ -45,4 +75,99 @@ public abstract class Codec {
   public String toString() {
     return getName();
   }
+
+  /**
+   * Returns the remaining bytes of <i>data</i> in a buffer with an accessible
+   * array, copying them if <i>data</i> is direct or read-only.
+   */
+  static ByteBuffer onHeap(ByteBuffer data) {
+    if (data.hasArray()) {
+      return data;
+    }
+    ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+    copy.put(data.duplicate());
+    copy.flip();
+    return copy;
+  }
+
+  /**
+   * Returns <i>out</i>, cleared, if it is a writable heap buffer of at least
+   * <i>size</i> bytes, or else a new buffer of <i>size</i> bytes.
+   */
+  static ByteBuffer reuse(ByteBuffer out, int size) {
+    if (out != null && out.hasArray() && out.capacity() >= size) {
+      out.clear();
+      return out;
+    }
+    return ByteBuffer.allocate(size);
+  }
+
+  /**
+   * Returns the remaining bytes of a result in a buffer of their own size, as
+   * returned by {@link #compress(ByteBuffer)} and
+   * {@link #decompress(ByteBuffer)}.
+   */
+  static ByteBuffer trim(ByteBuffer result) {
+    if (result.arrayOffset() == 0 && result.position() == 0
+        && result.remaining() == result.array().length) {
+      return result;
+    }
+    return ByteBuffer.wrap(Arrays.copyOfRange(result.array(),
+        result.arrayOffset() + result.position(),
+        result.arrayOffset() + result.limit()));
+  }
+
+  /** An output stream over a heap buffer, which grows as needed. */
+  static class BufferOutputStream extends OutputStream {
+    private ByteBuffer buffer;
+
+    /** Starts writing into <i>out</i>, see {@link #reuse(ByteBuffer, int)}. */
+    BufferOutputStream reset(ByteBuffer out, int suggestedLength) {
+      buffer = reuse(out, Math.max(suggestedLength, 64));
+      return this;
+    }
+
+    @Override
+    public void write(int b) {
+      ensure(1);
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensure(len);
+      buffer.put(b, off, len);
+    }
+
+    /** Reads all of <i>in</i> straight into the buffer. */
+    void readFrom(InputStream in) throws IOException {
+      for (;;) {
+        ensure(1);
+        int n = in.read(buffer.array(),
+            buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (n < 0) {
+          return;
+        }
+        buffer.position(buffer.position() + n);
+      }
+    }
+
+    /** Returns the buffer written, flipped. */
+    ByteBuffer result() {
+      ByteBuffer result = buffer;
+      buffer = null;
+      result.flip();
+      return result;
+    }
+
+    private void ensure(int length) {
+      if (buffer.remaining() < length) {
+        ByteBuffer bigger = ByteBuffer.allocate(
+            Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+      }
+    }
+  }
 }
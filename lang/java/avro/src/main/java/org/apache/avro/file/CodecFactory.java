@@ -26,12 +26,15 @@ import org.tukaani.xz.LZMA2Options;
 
 /**  Encapsulates the ability to specify and configure a compression codec.
  *
- * Currently there are three codecs registered by default:
+ * Currently there are seven codecs registered by default:
  * <ul>
  *   <li>{@code null}</li>
  *   <li>{@code deflate}</li>
  *   <li>{@code snappy}</li>
  *   <li>{@code bzip2}</li>
+ *   <li>{@code xz}</li>
+ *   <li>{@code zstandard}</li>
+ *   <li>{@code lz4}</li>
  * </ul>
  *
  * New and custom codecs can be registered using {@link #addCodec(String,
@@ -65,6 +68,25 @@ public abstract class CodecFactory {
     return new BZip2Codec.Option();
   }
 
+  /** Zstandard codec, with specific compression level, without checksums.
+   * compressionLevel should be between 1 and 22, inclusive; negative levels
+   * trade ratio for speed. */
+  public static CodecFactory zstandardCodec(int compressionLevel) {
+    return new ZstandardCodec.Option(compressionLevel, false);
+  }
+
+  /** Zstandard codec, with specific compression level, and a checksum of
+   * each block if useChecksum is true. */
+  public static CodecFactory zstandardCodec(int compressionLevel,
+                                            boolean useChecksum) {
+    return new ZstandardCodec.Option(compressionLevel, useChecksum);
+  }
+
+  /** LZ4 codec.*/
+  public static CodecFactory lz4Codec() {
+    return new Lz4Codec.Option();
+  }
+
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
@@ -76,6 +98,7 @@ public abstract class CodecFactory {
 
   public static final int DEFAULT_DEFLATE_LEVEL = Deflater.DEFAULT_COMPRESSION;
   public static final int DEFAULT_XZ_LEVEL = LZMA2Options.PRESET_DEFAULT;
+  public static final int DEFAULT_ZSTANDARD_LEVEL = 3;
 
   static {
     addCodec("null", nullCodec());
@@ -83,17 +106,21 @@ public abstract class CodecFactory {
     addCodec("snappy", snappyCodec());
     addCodec("bzip2", bzip2Codec());
     addCodec("xz", xzCodec(DEFAULT_XZ_LEVEL));
+    addCodec("zstandard", zstandardCodec(DEFAULT_ZSTANDARD_LEVEL));
+    addCodec("lz4", lz4Codec());
   }
 
   /** Maps a codec name into a CodecFactory.
    *
-   * Currently there are five codecs registered by default:
+   * Currently there are seven codecs registered by default:
    * <ul>
    *   <li>{@code null}</li>
    *   <li>{@code deflate}</li>
    *   <li>{@code snappy}</li>
    *   <li>{@code bzip2}</li>
    *   <li>{@code xz}</li>
+   *   <li>{@code zstandard}</li>
+   *   <li>{@code lz4}</li>
    * </ul>
    */
   public static CodecFactory fromString(String s) {
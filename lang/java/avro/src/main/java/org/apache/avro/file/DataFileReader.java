@@ -21,7 +21,11 @@ import java.io.IOException;
 import java.io.EOFException;
 import java.io.InputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.DatumReader;
@@ -29,12 +33,18 @@ import static org.apache.avro.file.DataFileConstants.SYNC_SIZE;
 import static org.apache.avro.file.DataFileConstants.MAGIC;
 
 /** Random access to files written with {@link DataFileWriter}.
+ * <p/>
+ * When the input is a {@link MappedFileInput}, blocks are not copied into
+ * heap buffers: each block is a slice of the mapping, handed to the codec and,
+ * for uncompressed files, decoded in place.
  * @see DataFileWriter
  */
 public class DataFileReader<D>
   extends DataFileStream<D> implements FileReader<D> {
   private SeekableInputStream sin;
+  private MappedFileInput mapped;
   private long blockStart;
+  private BlockIndex index;                      // null if none
 
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader)
@@ -84,16 +94,59 @@ public class DataFileReader<D>
     return dreader;
   }
 
+  /**
+   * Returns a parallel stream over the entries of a file. The file is split
+   * into byte ranges at sync points, each read with its own input and a
+   * reader from <i>readers</i>. Close the stream to release the inputs of
+   * ranges not read to their end.
+   * @see DataFileSpliterator
+   */
+  public static <D> Stream<D> parallelStream(final File file,
+                                             Supplier<DatumReader<D>> readers)
+    throws IOException {
+    return new DataFileSpliterator<D>(() -> new SeekableFileInput(file),
+        readers, DataFileSpliterator.DEFAULT_MIN_SPLIT_SIZE).stream(true);
+  }
+
+  /** Construct a reader for a file, with the block index written next to it
+   * by {@link DataFileWriter#setBlockIndex(String...)}, if any.
+   * @see #getBlockIndex() */
+  public static <D> DataFileReader<D> openIndexed(File file,
+                                                  DatumReader<D> reader)
+    throws IOException {
+    DataFileReader<D> dreader = new DataFileReader<D>(file, reader);
+    File indexFile = BlockIndex.sidecarFile(file);
+    if (indexFile.exists()) {
+      try {
+        dreader.setBlockIndex(BlockIndex.read(indexFile));
+      } catch (IOException | RuntimeException e) {
+        dreader.close();
+        throw e;
+      }
+    }
+    return dreader;
+  }
+
   /** Construct a reader for a file. */
   public DataFileReader(File file, DatumReader<D> reader) throws IOException {
     this(new SeekableFileInput(file), reader);
   }
 
+  /** Construct a reader for a file that reads it through memory-mapped
+   * windows.
+   * @see MappedFileInput */
+  public static <D> DataFileReader<D> openMapped(File file,
+                                                 DatumReader<D> reader)
+    throws IOException {
+    return new DataFileReader<D>(new MappedFileInput(file), reader);
+  }
+
   /** Construct a reader for a file. */
   public DataFileReader(SeekableInput sin, DatumReader<D> reader)
     throws IOException {
     super(reader);
     this.sin = new SeekableInputStream(sin);
+    this.mapped = sin instanceof MappedFileInput ? (MappedFileInput) sin : null;
     initialize(this.sin);
     blockFinished();
   }
@@ -104,20 +157,93 @@ public class DataFileReader<D>
                            Header header) throws IOException {
     super(reader);
     this.sin = new SeekableInputStream(sin);
+    this.mapped = sin instanceof MappedFileInput ? (MappedFileInput) sin : null;
     initialize(this.sin, header);
   }
 
+  @Override
+  ByteBuffer nextDecompressedBlock() throws IOException {
+    if (mapped == null) {
+      return super.nextDecompressedBlock();
+    }
+    return getCodec().decompress(nextCompressedBlock());
+  }
+
+  @Override
+  ByteBuffer nextCompressedBlock() throws IOException {
+    if (mapped == null) {
+      return super.nextCompressedBlock();
+    }
+    if (!hasNextBlock()) {
+      throw new NoSuchElementException();
+    }
+    int size = (int) getBlockSize();
+    ByteBuffer data = mapped.slice(inputPosition(), size);
+    vin.skipFixed(size);
+    vin.readFixed(syncBuffer);
+    blockConsumed();
+    if (!Arrays.equals(syncBuffer, getHeader().sync))
+      throw new IOException("Invalid sync!");
+    return data;
+  }
+
+  @Override
+  long inputPosition() throws IOException {
+    return sin.tell() - vin.inputStream().available();
+  }
+
   /** Move to a specific, known synchronization point, one returned from {@link
    * DataFileWriter#sync()} while writing.  If synchronization points were not
    * saved while writing a file, use {@link #sync(long)} instead. */
   public void seek(long position) throws IOException {
     sin.seek(position);
     vin = DecoderFactory.get().binaryDecoder(this.sin, vin);
+    discardReadAhead();
     datumIn = null;
     blockRemaining = 0;
     blockStart = position;
   }
 
+  /** Sets the index of this file's blocks, used by {@link #seekToRecord(long)}
+   * and {@link #seekToBlock(int)}.
+   * @throws IllegalArgumentException if the index is of another file. */
+  public void setBlockIndex(BlockIndex index) {
+    if (index != null && !index.isIndexOf(getHeader()))
+      throw new IllegalArgumentException("Block index of another file");
+    this.index = index;
+  }
+
+  /** Returns the index of this file's blocks, or null if none was set. */
+  public BlockIndex getBlockIndex() {
+    return index;
+  }
+
+  /** Move to the start of a block of the {@link #getBlockIndex() index}. */
+  public void seekToBlock(int block) throws IOException {
+    seek(requireIndex().getOffset(block));
+  }
+
+  /** Move to a record, numbered from zero, so that it is returned by the
+   * following call to {@link #next()}. Seeks to its block with the {@link
+   * #getBlockIndex() index}, then skips the preceding records of the block
+   * without decoding them. */
+  public void seekToRecord(long record) throws IOException {
+    int block = requireIndex().findBlock(record);
+    if (block < 0)
+      throw new IllegalArgumentException("No record " + record + " in "
+                                         + index.getRecordCount());
+    seek(index.getOffset(block));
+    if (!hasNext())
+      throw new IOException("Block index does not match file");
+    skipInBlock(record - index.getFirstRecord(block));
+  }
+
+  private BlockIndex requireIndex() {
+    if (index == null)
+      throw new IllegalStateException("No block index");
+    return index;
+  }
+
   /** Move to the next synchronization point after a position. To process a
    * range of file entires, call this with the starting position, then check
    * {@link #pastSync(long)} with the end point before each call to {@link
@@ -158,7 +284,7 @@ public class DataFileReader<D>
 
   @Override
   protected void blockFinished() throws IOException {
-    blockStart = sin.tell() - vin.inputStream().available();
+    blockStart = isReadingAhead() ? readAheadBlockEnd : inputPosition();
   }
 
   /** Return the last synchronization point before our current position. */
@@ -226,10 +352,10 @@ public class DataFileReader<D>
       long length = in.length();
       long remaining = length - position;
       if (remaining > skip) {
-        in.seek(skip);
+        in.seek(position + skip);
         return in.tell() - position;
       } else {
-        in.seek(remaining);
+        in.seek(length);
         return in.tell() - position;
     }
   }
@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.DatumReader;
+
+/**
+ * A {@link Spliterator} over the entries of a data file, which splits the
+ * file into byte ranges.
+ * <p/>
+ * Each range is read by its own {@link DataFileReader}, over its own input,
+ * from the first sync point after the start of the range until the first
+ * block past its end, as with {@link DataFileReader#sync(long)} and
+ * {@link DataFileReader#pastSync(long)}. Ranges are not split below
+ * <i>minSplitSize</i> bytes. Readers are closed when their range is
+ * exhausted; {@link #close()} closes those still open, e.g. after a
+ * short-circuiting operation.
+ *
+ * @see DataFileReader#parallelStream(java.io.File, Supplier)
+ */
+public class DataFileSpliterator<D> implements Spliterator<D>, AutoCloseable {
+  /** The default smallest range split, 1MB. */
+  public static final long DEFAULT_MIN_SPLIT_SIZE = 1 << 20;
+
+  /** Opens a new input over the same file for each range. */
+  public interface InputFactory {
+    SeekableInput open() throws IOException;
+  }
+
+  private final InputFactory inputs;
+  private final DataFileStream.Header header;
+  private final Supplier<DatumReader<D>> readers;
+  private final long minSplitSize;
+  private final Queue<DataFileReader<D>> open;  // shared with the splits
+  private long start;
+  private long end;
+  private DataFileReader<D> reader;             // null until first advanced
+  private boolean done;
+
+  /**
+   * Creates a spliterator over a whole file, reading its header.
+   * @param inputs Opens the file, once for the header and once for each
+   *          range read.
+   * @param readers Creates a reader for each range.
+   */
+  public DataFileSpliterator(InputFactory inputs,
+                             Supplier<DatumReader<D>> readers,
+                             long minSplitSize) throws IOException {
+    this.inputs = inputs;
+    this.readers = readers;
+    this.minSplitSize = Math.max(1, minSplitSize);
+    this.open = new ConcurrentLinkedQueue<DataFileReader<D>>();
+    SeekableInput in = inputs.open();
+    try {
+      DataFileReader<D> r = new DataFileReader<D>(in, readers.get());
+      this.header = r.getHeader();
+      this.end = in.length();
+    } finally {
+      in.close();
+    }
+  }
+
+  private DataFileSpliterator(DataFileSpliterator<D> parent, long start,
+                              long end) {
+    this.inputs = parent.inputs;
+    this.header = parent.header;
+    this.readers = parent.readers;
+    this.minSplitSize = parent.minSplitSize;
+    this.open = parent.open;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super D> action) {
+    if (done) {
+      return false;
+    }
+    try {
+      if (reader == null) {
+        SeekableInput in = inputs.open();
+        in.seek(start);
+        reader = DataFileReader.openReader(in, readers.get(), header, true);
+        open.add(reader);
+      }
+      if (reader.hasNext() && !reader.pastSync(end)) {
+        action.accept(reader.next());
+        return true;
+      }
+      done = true;
+      open.remove(reader);
+      reader.close();
+      return false;
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /** Splits off the first half of the range, if not yet read. */
+  @Override
+  public Spliterator<D> trySplit() {
+    if (reader != null || done || end - start < 2 * minSplitSize) {
+      return null;
+    }
+    long mid = start + (end - start) / 2;
+    DataFileSpliterator<D> prefix = new DataFileSpliterator<D>(this, start, mid);
+    this.start = mid;
+    return prefix;
+  }
+
+  /** Returns the number of bytes in the range, not entries. */
+  @Override
+  public long estimateSize() {
+    return end - start;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+
+  /** Closes the readers still open by this spliterator and its splits. */
+  @Override
+  public void close() throws IOException {
+    for (DataFileReader<D> r; (r = open.poll()) != null;) {
+      r.close();
+    }
+  }
+
+  /** Returns a stream over this spliterator, which closes it. */
+  public Stream<D> stream(boolean parallel) {
+    return StreamSupport.stream(this, parallel).onClose(() -> {
+        try {
+          close();
+        } catch (IOException e) {
+          throw new AvroRuntimeException(e);
+        }
+      });
+  }
+}
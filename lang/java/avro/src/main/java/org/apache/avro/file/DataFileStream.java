@@ -23,6 +23,8 @@ import java.io.InputStream;
 import java.io.Closeable;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,10 +33,22 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaInterner;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.Batch;
 import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.ColumnBatch;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
@@ -57,6 +71,9 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     private Header() {}
   }
 
+  /** Whether header schemas are parsed through the shared parse cache. */
+  static final boolean CACHE_SCHEMAS = Boolean.getBoolean("avro.file.cacheSchemas");
+
   private DatumReader<D> reader;
   private long blockSize;
   private boolean availableBlock = false;
@@ -74,6 +91,40 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
 
+  private ExecutorService readAheadExecutor;     // null if not reading ahead
+  private boolean ownsReadAheadExecutor;
+  private int readAheadBlocks;
+  private ThreadLocal<DatumReader<D>> batchReaders; // null if not decoding
+  private final ArrayDeque<ReadAheadBlock<D>> readAhead =
+    new ArrayDeque<ReadAheadBlock<D>>();
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<Codec>();
+  private Iterator<D> batch;                     // the current decoded block
+  long readAheadBlockEnd;                        // of the current block
+
+  /** A block being read ahead, and where it ends in the input. */
+  private static final class ReadAheadBlock<D> {
+    final long count;
+    final long size;
+    final long end;
+    final Future<DecodedBlock<D>> content;
+    ReadAheadBlock(long count, long size, long end,
+                   Future<DecodedBlock<D>> content) {
+      this.count = count;
+      this.size = size;
+      this.end = end;
+      this.content = content;
+    }
+  }
+
+  private static final class DecodedBlock<D> {
+    final ByteBuffer data;
+    final List<D> records;                       // null if not decoded
+    DecodedBlock(ByteBuffer data, List<D> records) {
+      this.data = data;
+      this.records = records;
+    }
+  }
+
   /** Construct a reader for an input stream.  For file-based input, use
    * {@link DataFileReader}.  This will buffer, wrapping with a
    * {@link java.io.BufferedInputStream}
@@ -121,7 +172,9 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
 
     // finalize the header
     header.metaKeyList = Collections.unmodifiableList(header.metaKeyList);
-    header.schema = Schema.parse(getMetaString(DataFileConstants.SCHEMA),false);
+    header.schema = SchemaInterner.internIfEnabled(new Schema.Parser()
+        .setValidate(false).setCacheParsed(CACHE_SCHEMAS)
+        .parse(getMetaString(DataFileConstants.SCHEMA)));
     this.codec = resolveCodec();
     reader.setSchema(header.schema);
   }
@@ -142,11 +195,64 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
   }
 
+  /**
+   * Reads up to <i>blocks</i> blocks ahead of the one being iterated over,
+   * decompressing them on <i>threads</i> background threads. Entries are
+   * still returned in order. The threads are stopped by {@link #close()}.
+   */
+  public DataFileStream<D> setReadAhead(int threads, int blocks) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid thread count: " + threads);
+    }
+    final AtomicInteger count = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "avro-read-ahead-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    setReadAhead(executor, blocks, null);
+    this.ownsReadAheadExecutor = true;
+    return this;
+  }
+
+  /**
+   * Reads up to <i>blocks</i> blocks ahead of the one being iterated over,
+   * decompressing them with <i>executor</i>, which this stream does not shut
+   * down. If <i>readers</i> is not null, the blocks are also decoded in the
+   * background, each thread using its own reader from <i>readers</i>, and
+   * {@link #next(Object)} ignores its argument. Entries are still returned in
+   * order. The memory used is bounded by <i>blocks</i> blocks, compressed,
+   * decompressed and decoded.
+   */
+  public DataFileStream<D> setReadAhead(ExecutorService executor, int blocks,
+                                        final Supplier<DatumReader<D>> readers) {
+    if (blocks < 1) {
+      throw new IllegalArgumentException("Invalid number of blocks: " + blocks);
+    }
+    discardReadAhead();
+    if (ownsReadAheadExecutor) {
+      readAheadExecutor.shutdown();
+      ownsReadAheadExecutor = false;
+    }
+    this.readAheadExecutor = executor;
+    this.readAheadBlocks = blocks;
+    this.batchReaders = readers == null ? null
+      : ThreadLocal.withInitial(() -> {
+          DatumReader<D> r = readers.get();
+          r.setSchema(header.schema);
+          return r;
+        });
+    return this;
+  }
+
   /** A handle that can be used to reopen this stream without rereading the
    * head. */
   public Header getHeader() { return header; }
 
-  /** Return the schema used in this file. */
+  /** Return the schema used in this file.  When the
+   * <tt>avro.file.cacheSchemas</tt> system property is <tt>true</tt>, files
+   * with the same schema text share a cached schema, see {@link
+   * Schema.Parser#setCacheParsed}, which then must not be changed. */
   public Schema getSchema() { return header.schema; }
 
   /** Return the list of keys in the metadata */
@@ -194,13 +300,17 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
             throw new IOException("Block read partially, the data may be corrupt");
           }
         }
-        if (hasNextBlock()) {
-          block = nextRawBlock(block);
-          block.decompressUsing(codec);
-          blockBuffer = block.getAsByteBuffer();
-          datumIn = DecoderFactory.get().binaryDecoder(
-              blockBuffer.array(), blockBuffer.arrayOffset() +
-              blockBuffer.position(), blockBuffer.remaining(), datumIn);
+        if (readAheadExecutor != null) {
+          nextReadAheadBlock();
+        } else if (hasNextBlock()) {
+          blockBuffer = nextDecompressedBlock();
+          if (blockBuffer.hasArray()) {
+            datumIn = DecoderFactory.get().binaryDecoder(
+                blockBuffer.array(), blockBuffer.arrayOffset() +
+                blockBuffer.position(), blockBuffer.remaining(), datumIn);
+          } else {
+            datumIn = DecoderFactory.get().binaryDecoder(blockBuffer, datumIn);
+          }
         }
       }
       return blockRemaining != 0;
@@ -230,14 +340,89 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   public D next(D reuse) throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
-    D result = reader.read(reuse, datumIn);
+    D result = batch != null ? batch.next() : reader.read(reuse, datumIn);
     if (0 == --blockRemaining) {
       blockFinished();
     }
     return result;
   }
 
-  /** Expert: Return the next block in the file, as binary-encoded data. */
+  DatumReader<D> getDatumReader() {
+    return reader;
+  }
+
+  /** Skips the next <i>n</i> entries of the current block, which must have
+   * been read by {@link #hasNext()}, without decoding them. */
+  void skipInBlock(long n) throws IOException {
+    if (n > blockRemaining)
+      throw new IllegalArgumentException("Only " + blockRemaining
+                                         + " entries remain in the block");
+    for (long i = 0; i < n; i++) {
+      if (batch != null) {
+        batch.next();
+      } else {
+        GenericDatumReader.skip(header.schema, datumIn);
+      }
+    }
+    blockRemaining -= n;
+    if (n > 0 && blockRemaining == 0) {
+      blockFinished();
+    }
+  }
+
+  /** Read up to <i>max</i> entries of the current block into a batch,
+   * replacing its content and reusing its previous entries.  A batch is not
+   * read across blocks.  The batch is empty at the end of the file.
+   * @param reuse a batch to reuse, or null.
+   * @see DatumReader#readBatch(int, Batch, org.apache.avro.io.Decoder) */
+  public Batch<D> readBatch(int max, Batch<D> reuse) throws IOException {
+    Batch<D> result = reuse != null ? reuse : new Batch<D>(max);
+    result.clear();
+    if (max < 1 || !hasNext())
+      return result;
+    int count = (int) Math.min(max, blockRemaining);
+    if (batch != null) {                          // decoded ahead
+      for (int i = 0; i < count; i++) {
+        result.add(batch.next());
+      }
+    } else {
+      reader.readBatch(count, result, datumIn);
+    }
+    blockRemaining -= count;
+    if (blockRemaining == 0) {
+      blockFinished();
+    }
+    return result;
+  }
+
+  /** Read up to <i>max</i> entries of the current block into columns, as by
+   * {@link #readBatch(int, Batch)}.  The schema of the file must be {@link
+   * ColumnBatch#isFlat(Schema) flat}.  This may not be used with decoded
+   * read-ahead.
+   * @param reuse a batch to reuse, or null. */
+  public ColumnBatch readColumns(int max, ColumnBatch reuse)
+    throws IOException {
+    ColumnBatch result = reuse != null ? reuse : new ColumnBatch(getSchema());
+    if (result.getSchema() != getSchema()
+        && !result.getSchema().equals(getSchema()))
+      throw new AvroRuntimeException("Not the schema of the file: "
+                                     + result.getSchema());
+    result.clear();
+    if (max < 1 || !hasNext())
+      return result;
+    if (batch != null)
+      throw new IllegalStateException("Entries are decoded ahead");
+    int count = (int) Math.min(max, blockRemaining);
+    result.read(count, datumIn);
+    blockRemaining -= count;
+    if (blockRemaining == 0) {
+      blockFinished();
+    }
+    return result;
+  }
+
+  /** Expert: Return the next block in the file, as binary-encoded data.
+   * The buffer may be reused by the following block. */
   public ByteBuffer nextBlock() throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
@@ -245,6 +430,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
       throw new IllegalStateException("Not at block start.");
     blockRemaining = 0;
     datumIn = null;
+    batch = null;
     return blockBuffer;
   }
 
@@ -279,15 +465,133 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
   }
 
+  /** Reads the next block and returns its decompressed content. */
+  ByteBuffer nextDecompressedBlock() throws IOException {
+    block = nextRawBlock(block);
+    block.decompressUsing(codec);
+    return block.getAsByteBuffer();
+  }
+
+  /** Reads the next block into a buffer of its own and returns its
+   * compressed content. */
+  ByteBuffer nextCompressedBlock() throws IOException {
+    return nextRawBlock(null).getAsByteBuffer();
+  }
+
+  /** The position in the input after the last block read, or -1 if
+   * unknown. */
+  long inputPosition() throws IOException {
+    return -1;
+  }
+
+  boolean isReadingAhead() {
+    return readAheadExecutor != null;
+  }
+
+  /** Makes the next block read ahead the current one, first topping up the
+   * read-ahead queue. */
+  private void nextReadAheadBlock() throws IOException {
+    while (readAhead.size() < readAheadBlocks && hasNextBlock()) {
+      long count = blockRemaining;
+      long size = blockSize;
+      final ByteBuffer compressed = nextCompressedBlock();
+      readAhead.add(new ReadAheadBlock<D>(count, size, inputPosition(),
+          readAheadExecutor.submit(() -> decode(compressed, count))));
+    }
+    ReadAheadBlock<D> next = readAhead.poll();
+    if (next == null) {
+      blockRemaining = 0;
+      return;
+    }
+    DecodedBlock<D> decoded;
+    try {
+      decoded = next.content.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    } catch (ExecutionException e) {
+      discardReadAhead();
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new AvroRuntimeException(cause);
+    }
+    blockRemaining = blockCount = next.count;
+    blockSize = next.size;
+    readAheadBlockEnd = next.end;
+    blockBuffer = decoded.data;
+    if (decoded.records != null) {
+      batch = decoded.records.iterator();
+      datumIn = null;
+    } else {
+      batch = null;
+      datumIn = blockBuffer.hasArray()
+        ? DecoderFactory.get().binaryDecoder(blockBuffer.array(),
+            blockBuffer.arrayOffset() + blockBuffer.position(),
+            blockBuffer.remaining(), datumIn)
+        : DecoderFactory.get().binaryDecoder(blockBuffer, datumIn);
+    }
+  }
+
+  /** Runs on the read-ahead threads. */
+  private DecodedBlock<D> decode(ByteBuffer compressed, long count)
+    throws IOException {
+    Codec c = idleCodecs.poll();
+    if (c == null) {
+      c = resolveCodec();
+    }
+    ByteBuffer data;
+    try {
+      data = c.decompress(compressed);
+    } finally {
+      idleCodecs.add(c);
+    }
+    if (batchReaders == null) {
+      return new DecodedBlock<D>(data, null);
+    }
+    DatumReader<D> r = batchReaders.get();
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(data.duplicate(), null);
+    List<D> records = new ArrayList<D>((int) Math.min(count, 1 << 16));
+    for (long i = 0; i < count; i++) {
+      records.add(r.read(null, in));
+    }
+    if (!in.isEnd()) {
+      throw new IOException("Block read partially, the data may be corrupt");
+    }
+    return new DecodedBlock<D>(data, records);
+  }
+
+  /** Drops the blocks read ahead, when the input is repositioned. */
+  void discardReadAhead() {
+    for (ReadAheadBlock<D> b : readAhead) {
+      b.content.cancel(false);
+    }
+    readAhead.clear();
+    batch = null;
+  }
+
+  Codec getCodec() {
+    return codec;
+  }
+
+  void blockConsumed() {
+    availableBlock = false;
+  }
+
   DataBlock nextRawBlock(DataBlock reuse) throws IOException {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
+    if (reuse == null || !reuse.ownsData
+        || reuse.data.length < (int) blockSize) {
+      ByteBuffer spare = reuse == null ? null : reuse.spare;
       reuse = new DataBlock(blockRemaining, (int) blockSize);
+      reuse.spare = spare;
     } else {
       reuse.numEntries = blockRemaining;
       reuse.blockSize = (int)blockSize;
+      reuse.offset = 0;
     }
     // throws if it can't read the size requested
     vin.readFixed(reuse.data, 0, reuse.blockSize);
@@ -305,6 +609,10 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   /** Close this reader. */
   @Override
   public void close() throws IOException {
+    discardReadAhead();
+    if (ownsReadAheadExecutor) {
+      readAheadExecutor.shutdown();
+    }
     vin.inputStream().close();
   }
 
@@ -314,13 +622,19 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     private int blockSize;
     private int offset = 0;
     private boolean flushOnWrite = true;
+    private boolean ownsData;        // false if data belongs to the caller
+    private ByteBuffer spare;        // the codec output of the next block
     private DataBlock(long numEntries, int blockSize) {
       this.data = new byte[blockSize];
       this.numEntries = numEntries;
       this.blockSize = blockSize;
+      this.ownsData = true;
     }
 
     DataBlock(ByteBuffer block, long numEntries) {
+      if (!block.hasArray()) { // direct or mapped
+        block = Codec.onHeap(block);
+      }
       this.data = block.array();
       this.blockSize = block.remaining();
       this.offset = block.arrayOffset() + block.position();
@@ -351,15 +665,25 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
       return ByteBuffer.wrap(data, offset, blockSize);
     }
 
+    /** Decompresses the data, reusing the buffers of this block. */
     void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      setCodecResult(c.decompress(getAsByteBuffer(), spare));
     }
 
+    /** Compresses the data, reusing the buffers of this block. */
     void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
-      data = result.array();
+      setCodecResult(c.compress(getAsByteBuffer(), spare));
+    }
+
+    /** Makes a codec result the data, keeping the old data for the next. */
+    private void setCodecResult(ByteBuffer result) {
+      if (result.array() != data) {
+        // the codec wrote elsewhere: trade the old data for the next result
+        spare = ownsData ? ByteBuffer.wrap(data) : null;
+        data = result.array();
+        ownsData = true;
+      }
+      offset = result.arrayOffset() + result.position();
       blockSize = result.remaining();
     }
 
@@ -24,22 +24,34 @@ import java.io.File;
 import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream.DataBlock;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.internal.Accessor;
 
 /** Stores in a file a sequence of data conforming to a schema.  The schema is
  * stored in the file with the data.  Each datum in a file is of the same
@@ -70,9 +82,23 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private boolean isOpen;
   private Codec codec;
+  private CodecFactory codecFactory;
+
+  private ExecutorService compressor;            // null if compressing inline
+  private boolean ownsCompressor;
+  private int maxBlocksInFlight;
+  private final ArrayDeque<Future<DataBlock>> inFlight =
+    new ArrayDeque<Future<DataBlock>>();
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<Codec>();
+  private ByteBuffer compressBuffer;   // reused by inline compression
 
   private boolean flushOnEveryBlock = true;
 
+  private String[] indexFields;                  // null if not indexing
+  private OutputStream indexOut;
+  private File indexFile;
+  private BlockIndex.Builder index;
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -91,11 +117,86 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
     return this;
   }
 
+  /**
+   * Configures this writer to compress blocks on <i>threads</i> background
+   * threads while append() encodes the next ones. Blocks are still written in
+   * order, from the appending thread, so the file is the same as with inline
+   * compression. When <i>maxBlocksInFlight</i> blocks are being compressed,
+   * append() waits for the oldest one to be written. {@link #sync()},
+   * {@link #flush()} and {@link #close()} wait for all of them. The threads are
+   * stopped by {@link #close()}.
+   * May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setCompressionThreads(int threads,
+                                                 int maxBlocksInFlight) {
+    assertNotOpen();
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid thread count: " + threads);
+    }
+    final AtomicInteger count = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "avro-compressor-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    setCompressionExecutor(executor, maxBlocksInFlight);
+    this.ownsCompressor = true;
+    return this;
+  }
+
+  /**
+   * Like {@link #setCompressionThreads(int, int)}, but compresses blocks with
+   * the given executor, which this writer does not shut down.
+   * May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setCompressionExecutor(ExecutorService executor,
+                                                  int maxBlocksInFlight) {
+    assertNotOpen();
+    if (maxBlocksInFlight < 1) {
+      throw new IllegalArgumentException("Invalid number of blocks in flight: "
+                                         + maxBlocksInFlight);
+    }
+    if (ownsCompressor) {
+      compressor.shutdown();
+    }
+    this.compressor = executor;
+    this.ownsCompressor = false;
+    this.maxBlocksInFlight = maxBlocksInFlight;
+    return this;
+  }
+
+  /**
+   * Configures this writer to write a {@link BlockIndex} of the file, with
+   * the least and greatest values of the named top-level fields in each
+   * block. The index is written to {@link BlockIndex#sidecarFile(File)} of
+   * the file passed to {@link #create(Schema, File)} when this writer is
+   * closed. The data file itself is unchanged.
+   * May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setBlockIndex(String... fields) {
+    assertNotOpen();
+    this.indexFields = fields.clone();
+    this.indexOut = null;
+    return this;
+  }
+
+  /**
+   * Like {@link #setBlockIndex(String...)}, but writes the index to the given
+   * stream, which is closed with this writer.
+   * May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setBlockIndex(OutputStream out, String... fields) {
+    setBlockIndex(fields);
+    this.indexOut = out;
+    return this;
+  }
+
   /**
    * Set the synchronization interval for this file, in bytes.
    * Valid values range from 32 to 2^30
@@ -126,6 +227,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   /** Open a new file for data matching a schema. */
   public DataFileWriter<D> create(Schema schema, File file) throws IOException {
+    this.indexFile = BlockIndex.sidecarFile(file);
     return create(schema, new SyncableFileOutputStream(file));
   }
 
@@ -134,8 +236,20 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     throws IOException {
     assertNotOpen();
 
+    if (indexFields != null) {
+      if (indexOut == null && indexFile == null) {
+        throw new AvroRuntimeException("No output for the block index");
+      }
+      GenericData model = dout instanceof GenericDatumWriter
+        ? ((GenericDatumWriter<?>) dout).getData() : GenericData.get();
+      this.index = new BlockIndex.Builder(model, schema, indexFields);
+      if (indexOut == null) {
+        this.indexOut = new SyncableFileOutputStream(indexFile);
+      }
+    }
+
     this.schema = schema;
-    setMetaInternal(DataFileConstants.SCHEMA, schema.toString());
+    setMetaInternal(DataFileConstants.SCHEMA, Accessor.jsonBytes(schema));
     this.sync = generateSync();
 
     init(outs);
@@ -189,6 +303,9 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public DataFileWriter<D> appendTo(SeekableInput in, OutputStream out)
     throws IOException {
     assertNotOpen();
+    if (indexFields != null) {
+      throw new AvroRuntimeException("Cannot index a file appended to");
+    }
     try (DataFileReader<D> reader =
       new DataFileReader<D>(in, new GenericDatumReader<D>())) {
       this.schema = reader.getSchema();
@@ -197,10 +314,11 @@ public class DataFileWriter<D> implements Closeable, Flushable {
       byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
       if (codecBytes != null) {
         String strCodec = new String(codecBytes, "UTF-8");
-        this.codec = CodecFactory.fromString(strCodec).createInstance();
+        this.codecFactory = CodecFactory.fromString(strCodec);
       } else {
-        this.codec = CodecFactory.nullCodec().createInstance();
+        this.codecFactory = CodecFactory.nullCodec();
       }
+      this.codec = codecFactory.createInstance();
     }
 
     init(out);
@@ -218,7 +336,8 @@ public class DataFileWriter<D> implements Closeable, Flushable {
         Math.min((int)(syncInterval * 1.25), Integer.MAX_VALUE/2 -1));
     this.bufOut = efactory.binaryEncoder(buffer, null);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
     }
     this.isOpen = true;
   }
@@ -234,7 +353,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
-  private DataFileWriter<D> setMetaInternal(String key, byte[] value) {
+  DataFileWriter<D> setMetaInternal(String key, byte[] value) {
     assertNotOpen();
     meta.put(key, value);
     return this;
@@ -295,6 +414,9 @@ public class DataFileWriter<D> implements Closeable, Flushable {
       resetBufferTo(usedBuffer);
       throw new AppendWriteException(re);
     }
+    if (index != null) {
+      index.append(datum);
+    }
     blockCount++;
     writeIfBlockFull();
   }
@@ -315,6 +437,9 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public void appendEncoded(ByteBuffer datum) throws IOException {
     assertOpen();
     bufOut.writeFixed(datum);
+    if (index != null) {
+      index.appendUnknown();
+    }
     blockCount++;
     writeIfBlockFull();
   }
@@ -355,37 +480,104 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
     // flush anything written so far
     writeBlock();
+    writeBlocksInFlight(0);
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
     if (codec.equals(otherCodec) && !recompress) {
       // copy raw bytes
       while(otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        writeCopiedBlock(nextBlockRaw);
       }
     } else {
       while(otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
         nextBlockRaw.decompressUsing(otherCodec);
         nextBlockRaw.compressUsing(codec);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        writeCopiedBlock(nextBlockRaw);
       }
     }
   }
 
+  private void writeCopiedBlock(DataBlock block) throws IOException {
+    if (index != null) {
+      index.appendUnknown();
+      index.endBlock(block.getNumEntries());
+    }
+    writeBlockTo(block);
+  }
+
+  private void writeBlockTo(DataBlock block) throws IOException {
+    if (index != null) {
+      index.blockWritten(out.tell() + vout.bytesBuffered());
+    }
+    block.writeBlockTo(vout, sync);
+  }
+
   private void writeBlock() throws IOException {
     if (blockCount > 0) {
       bufOut.flush();
-      ByteBuffer uncompressed = buffer.getByteArrayAsByteBuffer();
-      DataBlock block = new DataBlock(uncompressed, blockCount);
-      block.setFlushOnWrite(flushOnEveryBlock);
-      block.compressUsing(codec);
-      block.writeBlockTo(vout, sync);
+      if (index != null) {
+        index.endBlock(blockCount);
+      }
+      if (compressor == null) {
+        ByteBuffer uncompressed = buffer.getByteArrayAsByteBuffer();
+        ByteBuffer compressed = codec.compress(uncompressed, compressBuffer);
+        if (compressed.array() != uncompressed.array()) {
+          compressBuffer = compressed;            // reuse for the next block
+        }
+        DataBlock block = new DataBlock(compressed, blockCount);
+        block.setFlushOnWrite(flushOnEveryBlock);
+        writeBlockTo(block);
+      } else {
+        // the buffer is reused for the next block, so hand over a copy
+        final DataBlock block =
+          new DataBlock(ByteBuffer.wrap(buffer.toByteArray()), blockCount);
+        block.setFlushOnWrite(flushOnEveryBlock);
+        writeBlocksInFlight(maxBlocksInFlight - 1);
+        inFlight.add(compressor.submit(() -> {
+          Codec c = idleCodecs.poll();
+          if (c == null) {
+            c = codecFactory.createInstance();
+          }
+          try {
+            block.compressUsing(c);
+          } finally {
+            idleCodecs.add(c);
+          }
+          return block;
+        }));
+      }
       buffer.reset();
       blockCount = 0;
     }
   }
 
+  /** Writes compressed blocks, in order, until at most <i>max</i> remain in
+   * flight. Also writes any block already compressed. */
+  private void writeBlocksInFlight(int max) throws IOException {
+    Future<DataBlock> next;
+    while ((next = inFlight.peek()) != null
+           && (inFlight.size() > max || next.isDone())) {
+      DataBlock block;
+      try {
+        block = next.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(e.getMessage());
+      } catch (ExecutionException e) {
+        inFlight.clear(); // the file cannot be continued in order
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new AvroRuntimeException(cause);
+      }
+      inFlight.poll();
+      writeBlockTo(block);
+    }
+  }
+
   /** Return the current position as a value that may be passed to {@link
    * DataFileReader#seek(long)}.  Forces the end of the current block,
    * emitting a synchronization marker. By default, this will also flush the
@@ -399,6 +591,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public long sync() throws IOException {
     assertOpen();
     writeBlock();
+    writeBlocksInFlight(0);
     return out.tell();
   }
 
@@ -430,9 +623,32 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   @Override
   public void close() throws IOException {
     if (isOpen) {
-      flush();
-      out.close();
-      isOpen = false;
+      boolean written = false;
+      try {
+        flush();
+        out.close();
+        written = true;
+      } finally {
+        isOpen = false;
+        try {
+          if (index != null) {
+            closeIndex(written);
+          }
+        } finally {
+          if (ownsCompressor) {
+            compressor.shutdown();
+          }
+        }
+      }
+    }
+  }
+
+  /** Writes the block index, unless the file failed, and closes its stream. */
+  private void closeIndex(boolean write) throws IOException {
+    try (OutputStream o = indexOut) {
+      if (write) {
+        index.write(o, sync);
+      }
     }
   }
 
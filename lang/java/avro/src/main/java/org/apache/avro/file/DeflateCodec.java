@@ -17,14 +17,11 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterOutputStream;
 
 /**
  * Implements DEFLATE (RFC1951) compression and decompression.
@@ -51,7 +48,6 @@ class DeflateCodec extends Codec {
     }
   }
 
-  private ByteArrayOutputStream outputBuffer;
   private Deflater deflater;
   private Inflater inflater;
   //currently only do 'nowrap' -- RFC 1951, not zlib
@@ -69,31 +65,70 @@ class DeflateCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    DeflaterOutputStream ios = new DeflaterOutputStream(baos, getDeflater());
-    writeAndClose(data, ios);
-    ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
-    return result;
+    return trim(compress(data, null));
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    InflaterOutputStream ios = new InflaterOutputStream(baos, getInflater());
-    writeAndClose(data, ios);
-    ByteBuffer result = ByteBuffer.wrap(baos.toByteArray());
+    return trim(decompress(data, null));
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    Deflater deflater = getDeflater();
+    data = onHeap(data);
+    deflater.setInput(data.array(), data.arrayOffset() + data.position(),
+                      data.remaining());
+    deflater.finish();
+    ByteBuffer result = reuse(out, data.remaining() / 2 + 64);
+    while (!deflater.finished()) {
+      result = ensureRemaining(result);
+      int n = deflater.deflate(result.array(),
+          result.arrayOffset() + result.position(), result.remaining());
+      result.position(result.position() + n);
+    }
+    result.flip();
     return result;
   }
 
-  private void writeAndClose(ByteBuffer data, OutputStream to) throws IOException {
-    byte[] input = data.array();
-    int offset = data.arrayOffset() + data.position();
-    int length = data.remaining();
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    Inflater inflater = getInflater();
+    data = onHeap(data);
+    inflater.setInput(data.array(), data.arrayOffset() + data.position(),
+                      data.remaining());
+    ByteBuffer result = reuse(out, data.remaining() * 2 + 64);
     try {
-      to.write(input, offset, length);
-    } finally {
-      to.close();
+      while (!inflater.finished()) {
+        result = ensureRemaining(result);
+        int n = inflater.inflate(result.array(),
+            result.arrayOffset() + result.position(), result.remaining());
+        result.position(result.position() + n);
+        if (n == 0 && inflater.needsDictionary()) {
+          throw new IOException("Deflate block needs a dictionary");
+        }
+        if (n == 0 && inflater.needsInput()) {
+          break;                                  // as InflaterOutputStream
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
     }
+    result.flip();
+    return result;
+  }
+
+  // double the buffer once full
+  private static ByteBuffer ensureRemaining(ByteBuffer buffer) {
+    if (buffer.hasRemaining()) {
+      return buffer;
+    }
+    ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+    buffer.flip();
+    bigger.put(buffer);
+    return bigger;
   }
 
   // get and initialize the inflater for use.
@@ -114,15 +149,6 @@ class DeflateCodec extends Codec {
     return deflater;
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
-
   @Override
   public int hashCode() {
     return nowrap ? 0 : 1;
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+
+/**
+ * Reads the records of a data file that match a {@link RecordFilter}.
+ * <p/>
+ * When the file is read with a {@link DataFileReader} that has a {@link
+ * BlockIndex}, blocks whose bounds exclude the filter are skipped without
+ * being read. In the other blocks, only the fields tested by the filter are
+ * decoded, through a projection of the file's schema, which skips the other
+ * fields of each record. Records are fully decoded, by the file's {@link
+ * DatumReader}, only when they match.
+ * <p/>
+ * This reads the file block by block, with {@link DataFileStream#nextBlock()},
+ * so the file should not be read otherwise while it is filtered. Closing
+ * this closes the file.
+ */
+public class FilteredDataFileReader<D>
+  implements Iterator<D>, Iterable<D>, Closeable {
+
+  private final DataFileStream<D> in;
+  private final RecordFilter filter;
+  private final DatumReader<D> reader;
+  private final GenericDatumReader<GenericRecord> projector;
+  private final BlockIndex index;                 // null if none
+
+  private final BlockInput blockIn = new BlockInput();
+  private BinaryDecoder projectionIn;
+  private BinaryDecoder datumIn;
+  private GenericRecord projected;
+  private long blockRemaining;
+  private int block;                              // next block of the index
+  private boolean seekNeeded = true;
+  private int matchStart;
+  private int matchEnd = -1;                      // -1 if no pending match
+
+  private long blocksRead;
+  private long blocksSkipped;
+  private long recordsMatched;
+  private long recordsSkipped;
+
+  /** Filters the records of a file from its current block. */
+  public FilteredDataFileReader(DataFileStream<D> in, RecordFilter filter) {
+    this.in = in;
+    this.filter = filter;
+    this.reader = in.getDatumReader();
+    Schema schema = in.getSchema();
+    this.projector = new GenericDatumReader<GenericRecord>(
+        schema, filter.projection(schema));
+    this.index = in instanceof DataFileReader
+      ? ((DataFileReader<D>) in).getBlockIndex() : null;
+  }
+
+  /** A stream over the current block that reports its position. */
+  private static class BlockInput extends ByteArrayInputStream {
+    BlockInput() {
+      super(new byte[0]);
+    }
+    void reset(byte[] bytes, int offset, int length) {
+      this.buf = bytes;
+      this.pos = offset;
+      this.count = offset + length;
+      this.mark = offset;
+    }
+    byte[] bytes() {
+      return buf;
+    }
+    int position() {
+      return pos;
+    }
+  }
+
+  @Override
+  public Iterator<D> iterator() {
+    return this;
+  }
+
+  /** True if more matching records remain in the file. */
+  @Override
+  public boolean hasNext() {
+    try {
+      while (matchEnd < 0) {
+        if (blockRemaining == 0 && !nextBlock()) {
+          return false;
+        }
+        int start = blockIn.position();
+        projected = projector.read(projected, projectionIn);
+        blockRemaining--;
+        if (filter.matches(projected)) {
+          matchStart = start;
+          matchEnd = blockIn.position();
+        } else {
+          recordsSkipped++;
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /** Reads the next block that may hold matching records. */
+  private boolean nextBlock() throws IOException {
+    if (index != null) {
+      while (block < index.getBlockCount() && !filter.mayMatch(index, block)) {
+        blocksSkipped++;
+        recordsSkipped += index.getRecordCount(block);
+        block++;
+        seekNeeded = true;
+      }
+      if (block == index.getBlockCount()) {
+        return false;
+      }
+      if (seekNeeded) {
+        ((DataFileReader<D>) in).seekToBlock(block);
+        seekNeeded = false;
+      }
+      block++;
+    }
+    if (!in.hasNext()) {
+      return false;
+    }
+    ByteBuffer data = in.nextBlock();
+    blockRemaining = in.getBlockCount();
+    blocksRead++;
+    if (data.hasArray()) {
+      blockIn.reset(data.array(), data.arrayOffset() + data.position(),
+                    data.remaining());
+    } else {
+      byte[] bytes = new byte[data.remaining()];
+      data.duplicate().get(bytes);
+      blockIn.reset(bytes, 0, bytes.length);
+    }
+    // a direct decoder reads no further than each record
+    projectionIn = DecoderFactory.get().directBinaryDecoder(blockIn,
+                                                            projectionIn);
+    return true;
+  }
+
+  /** Reads the next matching record. */
+  @Override
+  public D next() {
+    try {
+      return next(null);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /** Reads the next matching record.
+   * @param reuse an instance to reuse.
+   * @throws NoSuchElementException if no more remain in the file. */
+  public D next(D reuse) throws IOException {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    datumIn = DecoderFactory.get().binaryDecoder(
+        blockIn.bytes(), matchStart, matchEnd - matchStart, datumIn);
+    matchEnd = -1;
+    recordsMatched++;
+    return reader.read(reuse, datumIn);
+  }
+
+  /** Not supported. */
+  @Override
+  public void remove() { throw new UnsupportedOperationException(); }
+
+  /** Returns the number of blocks read so far. */
+  public long getBlocksRead() { return blocksRead; }
+
+  /** Returns the number of blocks skipped so far, by their bounds. */
+  public long getBlocksSkipped() { return blocksSkipped; }
+
+  /** Returns the number of matching records read so far. */
+  public long getRecordsMatched() { return recordsMatched; }
+
+  /** Returns the number of records skipped so far, whether in skipped blocks
+   * or not matching, none of which were fully decoded. */
+  public long getRecordsSkipped() { return recordsSkipped; }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Implements LZ4 compression and decompression, using the pure Java
+ * implementation of lz4-java. Each block is stored as its uncompressed
+ * length, as a four byte big-endian int, followed by an LZ4 block.
+ */
+class Lz4Codec extends Codec {
+  private static final LZ4Factory FACTORY = LZ4Factory.fastestJavaInstance();
+
+  static class Option extends CodecFactory {
+    @Override
+    protected Codec createInstance() {
+      return new Lz4Codec();
+    }
+  }
+
+  private final LZ4Compressor compressor = FACTORY.fastCompressor();
+  private final LZ4SafeDecompressor decompressor = FACTORY.safeDecompressor();
+
+  private Lz4Codec() {}
+
+  @Override public String getName() { return DataFileConstants.LZ4_CODEC; }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    int length = in.remaining();
+    out = reuse(out, 4 + compressor.maxCompressedLength(length));
+    out.putInt(0, length);
+    int size = compressor.compress(in.array(), in.arrayOffset() + in.position(),
+                                   length, out.array(), out.arrayOffset() + 4);
+    out.limit(4 + size);
+    return out;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer out)
+    throws IOException {
+    in = onHeap(in);
+    if (in.remaining() < 4)
+      throw new IOException("Truncated LZ4 block");
+    int length = in.getInt(in.position());
+    if (length < 0)
+      throw new IOException("Invalid LZ4 block length: " + length);
+    out = reuse(out, length);
+    try {
+      int size = decompressor.decompress(in.array(),
+          in.arrayOffset() + in.position() + 4, in.remaining() - 4,
+          out.array(), out.arrayOffset(), length);
+      if (size != length)
+        throw new IOException("LZ4 block of " + size + " bytes, expected "
+            + length);
+    } catch (LZ4Exception e) {
+      throw new IOException(e);
+    }
+    out.limit(length);
+    return out;
+  }
+
+  @Override public int hashCode() { return getName().hashCode(); }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || obj.getClass() != getClass())
+      return false;
+    return true;
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link SeekableInput} that reads a file through memory-mapped windows.
+ * <p/>
+ * A single mapping cannot exceed 2GB, so the file is mapped one window at a
+ * time and the window is remapped when reads move out of it. {@link #slice}
+ * returns a region of the mapping without copying it, which
+ * {@link DataFileReader} uses to decode blocks straight from the page cache.
+ * <p/>
+ * The JVM releases mappings when they are garbage collected, not when this
+ * input is closed.
+ */
+public class MappedFileInput implements SeekableInput {
+  /** The default size of the mapped windows, 1GB. */
+  public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+  private final FileChannel channel;
+  private final long length;
+  private final int windowSize;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+
+  public MappedFileInput(File file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * @param file The file to map.
+   * @param windowSize The number of bytes to map at once. Slices larger than
+   *          this are mapped on their own.
+   */
+  public MappedFileInput(File file, int windowSize) throws IOException {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Invalid window size: " + windowSize);
+    }
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.length = channel.size();
+    this.windowSize = windowSize;
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0 || p > length) {
+      throw new IOException("Illegal seek: " + p);
+    }
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+    int n = (int) Math.min(len, length - position);
+    ByteBuffer src = map(position, 1);
+    n = Math.min(n, src.remaining());
+    src.get(b, off, n);
+    position += n;
+    return n;
+  }
+
+  /**
+   * Returns the <i>len</i> bytes at <i>p</i>, as a read-only buffer that shares
+   * the mapping. Does not change the position.
+   * @throws EOFException If the file ends before <i>p + len</i>.
+   */
+  public ByteBuffer slice(long p, int len) throws IOException {
+    if (p < 0 || len < 0 || p + len > length) {
+      throw new EOFException("Cannot read " + len + " bytes at " + p
+          + " of a file of " + length);
+    }
+    ByteBuffer result = map(p, len);
+    result.limit(result.position() + len);
+    return result.slice();
+  }
+
+  /**
+   * Returns a duplicate of a window that contains at least <i>len</i> bytes at
+   * <i>p</i>, positioned at <i>p</i>, remapping if needed.
+   */
+  private ByteBuffer map(long p, int len) throws IOException {
+    MappedByteBuffer w = window;
+    if (w == null || p < windowStart || p + len > windowStart + w.capacity()) {
+      long start = p;
+      int size = (int) Math.min(Math.max(windowSize, len), length - start);
+      w = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      window = w;
+      windowStart = start;
+    }
+    ByteBuffer result = w.asReadOnlyBuffer();
+    result.position((int) (p - windowStart));
+    return result;
+  }
+
+  @Override
+  public void close() throws IOException {
+    window = null;
+    channel.close();
+  }
+}
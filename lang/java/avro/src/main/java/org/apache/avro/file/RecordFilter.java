@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.IndexedRecord;
+
+/**
+ * A predicate on the top-level fields of the records of a data file: a
+ * conjunction of inclusive ranges of field values. Fields that are null never
+ * match.
+ *
+ * @see FilteredDataFileReader
+ */
+public final class RecordFilter {
+  private final List<Range> ranges;
+
+  private static class Range {
+    final String field;
+    final Object low;                             // null if unbounded
+    final Object high;
+    Range(String field, Object low, Object high) {
+      this.field = field;
+      this.low = low;
+      this.high = high;
+    }
+  }
+
+  private RecordFilter(List<Range> ranges) {
+    this.ranges = ranges;
+  }
+
+  /** Matches records whose field is between <i>low</i> and <i>high</i>,
+   * inclusive. Either bound may be null, for no bound. */
+  public static RecordFilter between(String field, Object low, Object high) {
+    return new RecordFilter(
+        Collections.singletonList(new Range(field, low, high)));
+  }
+
+  /** Matches records whose field equals a value. */
+  public static RecordFilter equalTo(String field, Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Null value for " + field);
+    }
+    return between(field, value, value);
+  }
+
+  /** Matches records whose field is not null. */
+  public static RecordFilter notNull(String field) {
+    return between(field, null, null);
+  }
+
+  /** Matches records matched by both this and another filter. */
+  public RecordFilter and(RecordFilter other) {
+    List<Range> both = new ArrayList<Range>(ranges);
+    both.addAll(other.ranges);
+    return new RecordFilter(both);
+  }
+
+  /** Returns the names of the fields tested, in order of first use. */
+  public List<String> getFields() {
+    List<String> fields = new ArrayList<String>();
+    for (Range r : ranges) {
+      if (!fields.contains(r.field)) {
+        fields.add(r.field);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Returns a schema with only the tested fields of a record schema, to read
+   * them while skipping the others.
+   */
+  Schema projection(Schema schema) {
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new AvroRuntimeException("Not a record: " + schema);
+    }
+    List<Field> fields = new ArrayList<Field>();
+    for (String name : getFields()) {
+      Field f = schema.getField(name);
+      if (f == null) {
+        throw new AvroRuntimeException("No field to filter: " + name);
+      }
+      fields.add(new Field(f.name(), f.schema(), null, (Object) null));
+    }
+    return Schema.createRecord(schema.getName(), null, schema.getNamespace(),
+                               schema.isError(), fields);
+  }
+
+  /** Returns whether a record read with a {@link #projection(Schema)}
+   * matches. */
+  boolean matches(IndexedRecord projected) {
+    GenericData data = GenericData.get();
+    Schema schema = projected.getSchema();
+    for (Range r : ranges) {
+      Field f = schema.getField(r.field);
+      Object value = projected.get(f.pos());
+      if (value == null
+          || (r.low != null && data.compare(value, r.low, f.schema()) < 0)
+          || (r.high != null && data.compare(value, r.high, f.schema()) > 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether a block of an index may hold matching records. Fields
+   * that are not indexed may always match. */
+  boolean mayMatch(BlockIndex index, int block) {
+    GenericData data = GenericData.get();
+    for (Range r : ranges) {
+      if (!index.getFields().contains(r.field)) {
+        continue;
+      }
+      Object min = index.getMin(block, r.field);
+      Object max = index.getMax(block, r.field);
+      if (min == null || max == null) {
+        continue;                                 // unknown bounds
+      }
+      Schema schema = index.getFieldSchema(r.field);
+      if ((r.high != null && data.compare(min, r.high, schema) > 0)
+          || (r.low != null && data.compare(max, r.low, schema) < 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -18,7 +18,6 @@
 package org.apache.avro.file;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -26,7 +25,6 @@ import java.nio.ByteBuffer;
 
 import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
-import org.apache.commons.compress.utils.IOUtils;
 
 /** * Implements xz compression and decompression. */
 public class XZCodec extends Codec {
@@ -44,7 +42,7 @@ public class XZCodec extends Codec {
       }
     }
 
-  private ByteArrayOutputStream outputBuffer;
+  private final BufferOutputStream outputBuffer = new BufferOutputStream();
   private int compressionLevel;
 
   public XZCodec(int compressionLevel) {
@@ -58,26 +56,39 @@ public class XZCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    OutputStream ios = new XZCompressorOutputStream(baos, compressionLevel);
-    writeAndClose(data, ios);
-    return ByteBuffer.wrap(baos.toByteArray());
+    return trim(compress(data, null));
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
+    return trim(decompress(data, null));
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream bos = outputBuffer.reset(out, data.remaining() / 2);
+    OutputStream ios = new XZCompressorOutputStream(bos, compressionLevel);
+    writeAndClose(data, ios);
+    return bos.result();
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream bos = outputBuffer.reset(out, data.remaining() * 2);
+    data = onHeap(data);
     InputStream bytesIn = new ByteArrayInputStream(
       data.array(),
       data.arrayOffset() + data.position(),
       data.remaining());
     InputStream ios = new XZCompressorInputStream(bytesIn);
     try {
-      IOUtils.copy(ios, baos);
+      bos.readFrom(ios);
     } finally {
       ios.close();
     }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return bos.result();
   }
 
   private void writeAndClose(ByteBuffer data, OutputStream to) throws IOException {
@@ -91,15 +102,6 @@ public class XZCodec extends Codec {
     }
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
-
   @Override
   public int hashCode() {
     return compressionLevel;
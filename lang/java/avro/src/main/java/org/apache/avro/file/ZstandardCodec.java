@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+/** * Implements Zstandard compression and decompression. */
+public class ZstandardCodec extends Codec {
+
+  static class Option extends CodecFactory {
+    private final int compressionLevel;
+    private final boolean useChecksum;
+
+    Option(int compressionLevel, boolean useChecksum) {
+      this.compressionLevel = compressionLevel;
+      this.useChecksum = useChecksum;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new ZstandardCodec(compressionLevel, useChecksum);
+    }
+  }
+
+  private final BufferOutputStream outputBuffer = new BufferOutputStream();
+  private final int compressionLevel;
+  private final boolean useChecksum;
+
+  /**
+   * @param compressionLevel The Zstandard level, from 1 to 22, or negative
+   *          for faster, weaker compression.
+   * @param useChecksum Whether to store a checksum of each block, verified
+   *          when decompressing.
+   */
+  public ZstandardCodec(int compressionLevel, boolean useChecksum) {
+    this.compressionLevel = compressionLevel;
+    this.useChecksum = useChecksum;
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.ZSTANDARD_CODEC;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data) throws IOException {
+    return trim(compress(data, null));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data) throws IOException {
+    return trim(decompress(data, null));
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream bos = outputBuffer.reset(out, data.remaining() / 2);
+    OutputStream ios = new ZstdOutputStream(bos, compressionLevel)
+      .setChecksum(useChecksum);
+    writeAndClose(data, ios);
+    return bos.result();
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer out)
+    throws IOException {
+    BufferOutputStream bos = outputBuffer.reset(out, data.remaining() * 2);
+    data = onHeap(data);
+    InputStream bytesIn = new ByteArrayInputStream(
+      data.array(),
+      data.arrayOffset() + data.position(),
+      data.remaining());
+    InputStream ios = new ZstdInputStream(bytesIn);
+    try {
+      bos.readFrom(ios);
+    } finally {
+      ios.close();
+    }
+    return bos.result();
+  }
+
+  private void writeAndClose(ByteBuffer data, OutputStream to) throws IOException {
+    byte[] input = data.array();
+    int offset = data.arrayOffset() + data.position();
+    int length = data.remaining();
+    try {
+      to.write(input, offset, length);
+    } finally {
+      to.close();
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * compressionLevel + (useChecksum ? 1 : 0);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || obj.getClass() != getClass())
+      return false;
+    ZstandardCodec other = (ZstandardCodec)obj;
+    return this.compressionLevel == other.compressionLevel
+      && this.useChecksum == other.useChecksum;
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "-" + compressionLevel;
+  }
+}
@@ -26,7 +26,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -34,9 +33,10 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import org.apache.avro.AvroMissingFieldException;
 
@@ -52,10 +52,13 @@ import org.apache.avro.UnresolvedUnionException;
 import org.apache.avro.io.BinaryData;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
 import org.apache.avro.io.ExtendedJsonDecoder;
 import org.apache.avro.io.JsonDecoder;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.internal.Accessor;
+import org.apache.avro.util.internal.WeakIdentityCache;
 
 
 /**
@@ -203,7 +206,12 @@ public class GenericData {
       values = new Object[fields.size()];
       if (deepCopy) {
         for (int ii = 0; ii < values.length; ii++) {
-          values[ii] = INSTANCE.deepCopy(fields.get(ii).schema(), other.values[ii]);
+          values[ii] = INSTANCE.deepCopy(fields.get(ii).schema(), other.get(ii));
+        }
+      }
+      else if (other instanceof LazyRecord) {
+        for (int ii = 0; ii < values.length; ii++) {
+          values[ii] = other.get(ii);               // decode it
         }
       }
       else {
@@ -410,6 +418,419 @@ public class GenericData {
     }
   }
 
+  /**
+   * Base of the arrays of ints, longs, floats, doubles and booleans that hold
+   * their elements unboxed. {@link GenericDatumReader} and {@link
+   * GenericDatumWriter} read and write their elements without boxing, while
+   * the {@link java.util.List} methods box them. Null elements are not
+   * permitted.
+   * @see GenericData#newArray(Object, int, Schema)
+   */
+  public abstract static class PrimitiveArray<T> extends Array<T> {
+    int size;
+
+    PrimitiveArray(Schema schema) {
+      super(0, schema);
+    }
+
+    /** Returns the type of the elements. */
+    abstract Type getElementType();
+
+    abstract int capacity();
+
+    /** Moves the elements to storage of another capacity. */
+    abstract void resize(int capacity);
+
+    abstract Object storage();
+
+    abstract T box(int i);
+
+    abstract void unbox(int i, T o);
+
+    /** Appends <i>count</i> elements read from a decoder. */
+    abstract void readElements(int count, Decoder in) throws IOException;
+
+    /** Writes the items of the elements, between the start and end of the
+     * array. */
+    abstract void writeElements(Encoder out) throws IOException;
+
+    final void ensureCapacity(int capacity) {
+      if (capacity > capacity()) {
+        resize(Math.max(capacity, (capacity() * 3) / 2 + 1));
+      }
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      size = 0;
+    }
+
+    @Override
+    public void reset() {
+      size = 0;
+    }
+
+    @Override
+    public void prune() {
+    }
+
+    /** Returns null: unboxed elements are not reused. */
+    @Override
+    public T peek() {
+      return null;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private int position = 0;
+        @Override
+        public boolean hasNext() { return position < size; }
+        @Override
+        public T next() {
+          if (position >= size)
+            throw new NoSuchElementException();
+          return box(position++);
+        }
+        @Override
+        public void remove() { throw new UnsupportedOperationException(); }
+      };
+    }
+
+    @Override
+    public T get(int i) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      return box(i);
+    }
+
+    @Override
+    public void add(int location, T o) {
+      if (location > size || location < 0) {
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      }
+      ensureCapacity(size + 1);
+      Object storage = storage();
+      System.arraycopy(storage, location, storage, location + 1, size - location);
+      unbox(location, o);
+      size++;
+    }
+
+    @Override
+    public T set(int i, T o) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      T response = box(i);
+      unbox(i, o);
+      return response;
+    }
+
+    @Override
+    public T remove(int i) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      T result = box(i);
+      --size;
+      Object storage = storage();
+      System.arraycopy(storage, i + 1, storage, i, size - i);
+      return result;
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--) {
+        T tmp = box(left);
+        unbox(left, box(right));
+        unbox(right, tmp);
+      }
+    }
+  }
+
+  /** An array of ints, held unboxed. */
+  public static class IntArray extends PrimitiveArray<Integer> {
+    private int[] elements;
+
+    public IntArray(int capacity, Schema schema) {
+      super(schema);
+      this.elements = new int[capacity];
+    }
+
+    @Override Type getElementType() { return Type.INT; }
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+    @Override Object storage() { return elements; }
+    @Override Integer box(int i) { return elements[i]; }
+    @Override void unbox(int i, Integer o) { elements[i] = o; }
+
+    @Override
+    void readElements(int count, Decoder in) throws IOException {
+      ensureCapacity(size + count);
+      in.readInts(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    void writeElements(Encoder out) throws IOException {
+      out.writeInts(elements, 0, size);
+    }
+
+    /** Returns an element, unboxed. */
+    public int getInt(int i) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      return elements[i];
+    }
+
+    /** Sets an element, unboxed. */
+    public void setInt(int i, int value) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      elements[i] = value;
+    }
+
+    /** Appends an element, unboxed. */
+    public void addInt(int value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    /** Returns a copy of the elements. */
+    public int[] toIntArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+
+  /** An array of longs, held unboxed. */
+  public static class LongArray extends PrimitiveArray<Long> {
+    private long[] elements;
+
+    public LongArray(int capacity, Schema schema) {
+      super(schema);
+      this.elements = new long[capacity];
+    }
+
+    @Override Type getElementType() { return Type.LONG; }
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+    @Override Object storage() { return elements; }
+    @Override Long box(int i) { return elements[i]; }
+    @Override void unbox(int i, Long o) { elements[i] = o; }
+
+    @Override
+    void readElements(int count, Decoder in) throws IOException {
+      ensureCapacity(size + count);
+      in.readLongs(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    void writeElements(Encoder out) throws IOException {
+      out.writeLongs(elements, 0, size);
+    }
+
+    /** Returns an element, unboxed. */
+    public long getLong(int i) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      return elements[i];
+    }
+
+    /** Sets an element, unboxed. */
+    public void setLong(int i, long value) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      elements[i] = value;
+    }
+
+    /** Appends an element, unboxed. */
+    public void addLong(long value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    /** Returns a copy of the elements. */
+    public long[] toLongArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+
+  /** An array of floats, held unboxed. */
+  public static class FloatArray extends PrimitiveArray<Float> {
+    private float[] elements;
+
+    public FloatArray(int capacity, Schema schema) {
+      super(schema);
+      this.elements = new float[capacity];
+    }
+
+    @Override Type getElementType() { return Type.FLOAT; }
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+    @Override Object storage() { return elements; }
+    @Override Float box(int i) { return elements[i]; }
+    @Override void unbox(int i, Float o) { elements[i] = o; }
+
+    @Override
+    void readElements(int count, Decoder in) throws IOException {
+      ensureCapacity(size + count);
+      in.readFloats(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    void writeElements(Encoder out) throws IOException {
+      out.writeFloats(elements, 0, size);
+    }
+
+    /** Returns an element, unboxed. */
+    public float getFloat(int i) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      return elements[i];
+    }
+
+    /** Sets an element, unboxed. */
+    public void setFloat(int i, float value) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      elements[i] = value;
+    }
+
+    /** Appends an element, unboxed. */
+    public void addFloat(float value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    /** Returns a copy of the elements. */
+    public float[] toFloatArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+
+  /** An array of doubles, held unboxed. */
+  public static class DoubleArray extends PrimitiveArray<Double> {
+    private double[] elements;
+
+    public DoubleArray(int capacity, Schema schema) {
+      super(schema);
+      this.elements = new double[capacity];
+    }
+
+    @Override Type getElementType() { return Type.DOUBLE; }
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+    @Override Object storage() { return elements; }
+    @Override Double box(int i) { return elements[i]; }
+    @Override void unbox(int i, Double o) { elements[i] = o; }
+
+    @Override
+    void readElements(int count, Decoder in) throws IOException {
+      ensureCapacity(size + count);
+      in.readDoubles(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    void writeElements(Encoder out) throws IOException {
+      out.writeDoubles(elements, 0, size);
+    }
+
+    /** Returns an element, unboxed. */
+    public double getDouble(int i) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      return elements[i];
+    }
+
+    /** Sets an element, unboxed. */
+    public void setDouble(int i, double value) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      elements[i] = value;
+    }
+
+    /** Appends an element, unboxed. */
+    public void addDouble(double value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    /** Returns a copy of the elements. */
+    public double[] toDoubleArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+
+  /** An array of booleans, held unboxed. */
+  public static class BooleanArray extends PrimitiveArray<Boolean> {
+    private boolean[] elements;
+
+    public BooleanArray(int capacity, Schema schema) {
+      super(schema);
+      this.elements = new boolean[capacity];
+    }
+
+    @Override Type getElementType() { return Type.BOOLEAN; }
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+    @Override Object storage() { return elements; }
+    @Override Boolean box(int i) { return elements[i]; }
+    @Override void unbox(int i, Boolean o) { elements[i] = o; }
+
+    @Override
+    void readElements(int count, Decoder in) throws IOException {
+      ensureCapacity(size + count);
+      in.readBooleans(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    void writeElements(Encoder out) throws IOException {
+      out.writeBooleans(elements, 0, size);
+    }
+
+    /** Returns an element, unboxed. */
+    public boolean getBoolean(int i) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      return elements[i];
+    }
+
+    /** Sets an element, unboxed. */
+    public void setBoolean(int i, boolean value) {
+      if (i >= size)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      elements[i] = value;
+    }
+
+    /** Appends an element, unboxed. */
+    public void addBoolean(boolean value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    /** Returns a copy of the elements. */
+    public boolean[] toBooleanArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+
   /** Default implementation of {@link GenericFixed}. */
   public static class Fixed implements GenericFixed, Comparable<Fixed> {
     private Schema schema;
@@ -783,29 +1204,118 @@ public class GenericData {
     return getField(record, name, pos);
   }
 
+  private final WeakIdentityCache<Schema, UnionIndex> unionIndexes =
+    new WeakIdentityCache<Schema, UnionIndex>();
+
   /** Return the index for a datum within a union.  Implemented with {@link
-   * Schema#getIndexNamed(String)} and {@link #getSchemaName(Object)}.*/
+   * Schema#getIndexNamed(String)} and {@link #getSchemaName(Object)}, whose
+   * result is cached by the class of the datum where {@link
+   * #cachesUnionBranchesByClass()} and {@link #resolvesUnionByClass(Class)}.*/
   public int resolveUnion(Schema union, Object datum) {
-    // TODO: see if this needs to be optimized
-    List<Schema> types = union.getTypes();
-    int i = 0;
-    for (Schema schema : types) {
-      if (datum == null && schema.getType() == Type.NULL) {
+    UnionIndex index = unionIndexes.get(union);
+    if (index == null) {
+      index = unionIndexes.putIfAbsent(union, new UnionIndex(union));
+    }
+    return index.resolve(this, union, datum);
+  }
+
+  /** Whether {@link #resolveUnion(Schema,Object)} may cache branches by the
+   * class of data, as decided by {@link #resolvesUnionByClass(Class)}.  True
+   * for this class only: a subclass may name data by more than their class in
+   * {@link #getSchemaName(Object)}, so must opt in by overriding this. */
+  protected boolean cachesUnionBranchesByClass() {
+    return getClass() == GenericData.class;
+  }
+
+  /** Whether all data of a class resolve to the same branch of a union, so
+   * that {@link #resolveUnion(Schema,Object)} may cache it by class.  False
+   * for generic records, enums and fixed, which each hold their schema.
+   * Should be overridden where {@link #getSchemaName(Object)} depends on more
+   * than the class of a datum. */
+  protected boolean resolvesUnionByClass(Class<?> c) {
+    return !(IndexedRecord.class.isAssignableFrom(c)
+             || GenericEnumSymbol.class.isAssignableFrom(c)
+             || GenericFixed.class.isAssignableFrom(c));
+  }
+
+  /** The branches of a union by the class of their data, filled in as data
+   * are resolved. */
+  private static final class UnionIndex {
+    private final int nullIndex;                // -1 if none
+    private final Class<?>[] logicalClasses;    // of logical type branches
+    private final int[] logicalIndexes;
+    private final Map<Class<?>, Integer> byClass =
+      new ConcurrentHashMap<Class<?>, Integer>();
+    private volatile Branch first;              // e.g. X in ["null", X]
+
+    private UnionIndex(Schema union) {
+      List<Schema> types = union.getTypes();
+      int nullIndex = -1;
+      int logical = 0;
+      Class<?>[] logicalClasses = new Class<?>[types.size()];
+      int[] logicalIndexes = new int[types.size()];
+      for (int i = 0; i < types.size(); i++) {
+        Schema type = types.get(i);
+        if (nullIndex < 0 && type.getType() == Type.NULL) {
+          nullIndex = i;
+        }
+        LogicalType ltype = type.getLogicalType();
+        if (ltype != null) {
+          logicalClasses[logical] = ltype.getLogicalJavaType();
+          logicalIndexes[logical++] = i;
+        }
+      }
+      this.nullIndex = nullIndex;
+      this.logicalClasses = Arrays.copyOf(logicalClasses, logical);
+      this.logicalIndexes = Arrays.copyOf(logicalIndexes, logical);
+    }
+
+    int resolve(GenericData data, Schema union, Object datum) {
+      if (datum == null) {
+        if (nullIndex >= 0) {
+          return nullIndex;
+        }
+        throw new UnresolvedUnionException(union, datum);
+      }
+      Class<?> c = datum.getClass();
+      Branch b = first;
+      if (b != null && b.c == c) {
+        return b.index;
+      }
+      Integer i = byClass.get(c);
+      if (i != null) {
         return i;
       }
-      LogicalType ltype = schema.getLogicalType();
-      if (ltype != null) {
-        if (ltype.getLogicalJavaType().isAssignableFrom(datum.getClass())) {
-          return i;
+      for (int l = 0; l < logicalClasses.length; l++) {
+        if (logicalClasses[l].isAssignableFrom(c)) {
+          return cache(c, logicalIndexes[l]);
         }
       }
-      i++;
+      i = union.getIndexNamed(data.getSchemaName(datum));
+      if (i == null) {
+        throw new UnresolvedUnionException(union, datum);
+      }
+      return data.cachesUnionBranchesByClass()
+        && data.resolvesUnionByClass(c) ? cache(c, i) : i;
     }
-    Integer ii = union.getIndexNamed(getSchemaName(datum));
-    if (ii != null)
-      return ii;
 
-    throw new UnresolvedUnionException(union, datum);
+    private int cache(Class<?> c, int index) {
+      if (first == null) {
+        first = new Branch(c, index);
+      }
+      byClass.put(c, index);
+      return index;
+    }
+  }
+
+  private static final class Branch {
+    private final Class<?> c;
+    private final int index;
+
+    private Branch(Class<?> c, int index) {
+      this.c = c;
+      this.index = index;
+    }
   }
 
   /** Return the schema full name for a datum.  Called by {@link
@@ -1082,7 +1592,8 @@ public class GenericData {
     }
   }
 
-  private final Map<Field, Object> defaultValueCache = Collections.synchronizedMap(new WeakHashMap<>());
+  private final WeakIdentityCache<Field, Object> defaultValueCache =
+    new WeakIdentityCache<>();
 
   /**
    * Gets the default value of the given field, if any.
@@ -1125,10 +1636,8 @@ public class GenericData {
             throw ex2;
           }
         }
-        // this MAY result in two threads creating the same defaultValue
-        // and calling put. The last thread will win. However,
-        // that's not an issue.
-        defaultValueCache.put(field, defaultValue);
+        // two threads may decode the same default; the first one cached wins
+        defaultValue = defaultValueCache.putIfAbsent(field, defaultValue);
       } catch (IOException e) {
         throw new AvroRuntimeException(e);
       }
@@ -1299,4 +1808,43 @@ public class GenericData {
     return new GenericData.Record(schema);
   }
 
+  /**
+   * Called to create new array instances, reusing <i>old</i> if it is a
+   * collection that can hold the elements. Arrays of ints, longs, floats,
+   * doubles and booleans whose element schema has no properties, like a
+   * logical type, are {@link PrimitiveArray}s, which hold their elements
+   * unboxed. Others are {@link GenericData.Array}s.
+   */
+  @SuppressWarnings("unchecked")
+  public Object newArray(Object old, int size, Schema schema) {
+    Type primitive = primitiveElementType(schema);
+    if (old instanceof PrimitiveArray
+        ? ((PrimitiveArray<?>) old).getElementType() == primitive
+        : old instanceof Collection) {
+      ((Collection<?>) old).clear();
+      return old;
+    }
+    if (primitive == null)
+      return new GenericData.Array<Object>(size, schema);
+    switch (primitive) {
+    case INT:     return new IntArray(size, schema);
+    case LONG:    return new LongArray(size, schema);
+    case FLOAT:   return new FloatArray(size, schema);
+    case DOUBLE:  return new DoubleArray(size, schema);
+    default:      return new BooleanArray(size, schema);
+    }
+  }
+
+  /** Returns the type of the elements of an array schema if they may be held
+   * by a {@link PrimitiveArray}, or null. */
+  static Type primitiveElementType(Schema schema) {
+    Schema element = schema.getElementType();
+    switch (element.getType()) {
+    case INT: case LONG: case FLOAT: case DOUBLE: case BOOLEAN:
+      return element.hasProps() ? null : element.getType();
+    default:
+      return null;
+    }
+  }
+
 }
@@ -0,0 +1,648 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Fingerprint128;
+import org.apache.avro.Resolver;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.util.BoundedCache;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Compiles schemas into trees of pre-resolved, type specialized readers and
+ * writers for {@link GenericDatumReader} and {@link GenericDatumWriter}.
+ *
+ * <p>A compiled reader is driven by the {@link Resolver.Action} tree of a
+ * writer/reader schema pair and reads straight from the underlying binary
+ * decoder, so no {@link org.apache.avro.io.ResolvingDecoder} grammar is walked
+ * and no type switch happens per datum. A compiled writer does the same for a
+ * single schema. Compiled instances are immutable and are shared through
+ * bounded caches keyed by the fingerprint of the full schema json, sized by
+ * the <tt>avro.compiledCache.maxSize</tt> system property, see
+ * {@link BoundedCache#fromSystemProperties}. They hold no datum reader or
+ * {@link GenericData}: the caller passes its model to each read or write.
+ *
+ * <p>Schemas that cannot be compiled (logical types, custom string classes,
+ * datum reader/writer or {@link GenericData} subclasses) resolve to
+ * {@link #INTERPRETED}, and the caller falls back to the interpreter.
+ */
+final class GenericDatumCompiler {
+
+  /** A compiled reader for a writer/reader schema pair. */
+  interface CompiledReader {
+    Object read(GenericData data, Object reuse, Decoder in) throws IOException;
+  }
+
+  /** A compiled writer for a schema. */
+  interface CompiledWriter {
+    void write(GenericData data, Object datum, Encoder out) throws IOException;
+  }
+
+  /** The outcome of compiling: a compiled instance, or none if interpreted. */
+  static final class Compiled<T> {
+    private final T value;
+
+    private Compiled(T value) {
+      this.value = value;
+    }
+
+    /** Returns true unless the schemas must be interpreted. */
+    boolean compiled() {
+      return value != null;
+    }
+
+    /** Returns the compiled instance, or null if interpreted. */
+    T get() {
+      return value;
+    }
+  }
+
+  /** Returned when a reader schema pair must be interpreted. */
+  static final Compiled<CompiledReader> INTERPRETED = new Compiled<>(null);
+
+  /** Returned when a writer schema must be interpreted. */
+  static final Compiled<CompiledWriter> INTERPRETED_WRITER = new Compiled<>(null);
+
+  /** The system property prefix that bounds the caches of compiled instances. */
+  static final String PROPERTY_PREFIX = "avro.compiledCache";
+
+  private static final BoundedCache<FingerprintPair, Compiled<CompiledReader>> READERS
+          = BoundedCache.fromSystemProperties(PROPERTY_PREFIX, 1024, 1024, r -> 1);
+
+  private static final BoundedCache<Fingerprint128, Compiled<CompiledWriter>> WRITERS
+          = BoundedCache.fromSystemProperties(PROPERTY_PREFIX, 1024, 1024, w -> 1);
+
+  private GenericDatumCompiler() { }
+
+  /**
+   * Returns the compiled reader for the given datum reader and schemas, or
+   * {@link #INTERPRETED} if they cannot be compiled.
+   */
+  static Compiled<CompiledReader> reader(GenericDatumReader<?> datumReader, Schema writer, Schema reader) {
+    if (writer == null || reader == null
+        || datumReader.getClass() != GenericDatumReader.class
+        || datumReader.getData().getClass() != GenericData.class) {
+      return INTERPRETED;
+    }
+    return READERS.computeIfAbsent(new FingerprintPair(writer.getFingerprint128(), reader.getFingerprint128()),
+            (k) -> compileReader(datumReader, writer, reader));
+  }
+
+  /**
+   * Returns the compiled writer for the given datum writer and schema, or
+   * {@link #INTERPRETED_WRITER} if they cannot be compiled.
+   */
+  static Compiled<CompiledWriter> writer(GenericDatumWriter<?> datumWriter, Schema schema) {
+    if (schema == null
+        || datumWriter.getClass() != GenericDatumWriter.class
+        || datumWriter.getData().getClass() != GenericData.class) {
+      return INTERPRETED_WRITER;
+    }
+    return WRITERS.computeIfAbsent(schema.getFingerprint128(),
+            (k) -> compileWriter(schema));
+  }
+
+  private static Compiled<CompiledReader> compileReader(GenericDatumReader<?> datumReader, Schema writer, Schema reader) {
+    if (hasLogicalTypes(reader, new IdentityHashMap<>())) {
+      return INTERPRETED;
+    }
+    try {
+      Resolver.Action action = Resolver.resolve(writer, reader, datumReader.getData());
+      return new Compiled<>(new ReaderCompiler(datumReader).compile(action));
+    } catch (NotCompilableException ex) {
+      return INTERPRETED;
+    }
+  }
+
+  private static Compiled<CompiledWriter> compileWriter(Schema schema) {
+    if (hasLogicalTypes(schema, new IdentityHashMap<>())) {
+      return INTERPRETED_WRITER;
+    }
+    return new Compiled<>(new WriterCompiler().compile(schema));
+  }
+
+  private static boolean hasLogicalTypes(Schema schema, Map<Schema, Schema> seen) {
+    if (schema.getLogicalType() != null) {
+      return true;
+    }
+    switch (schema.getType()) {
+      case RECORD:
+        if (seen.put(schema, schema) != null) {
+          return false;
+        }
+        for (Field f : schema.getFields()) {
+          if (hasLogicalTypes(f.schema(), seen)) {
+            return true;
+          }
+        }
+        return false;
+      case ARRAY:
+        return hasLogicalTypes(schema.getElementType(), seen);
+      case MAP:
+        return hasLogicalTypes(schema.getValueType(), seen);
+      case UNION:
+        for (Schema b : schema.getTypes()) {
+          if (hasLogicalTypes(b, seen)) {
+            return true;
+          }
+        }
+        return false;
+      default:
+        return false;
+    }
+  }
+
+  private static final class NotCompilableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NotCompilableException(String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  private static final class FingerprintPair {
+    private final Fingerprint128 writer;
+    private final Fingerprint128 reader;
+
+    FingerprintPair(Fingerprint128 writer, Fingerprint128 reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * writer.hashCode() + reader.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof FingerprintPair)) {
+        return false;
+      }
+      FingerprintPair other = (FingerprintPair) obj;
+      return writer.equals(other.writer) && reader.equals(other.reader);
+    }
+  }
+
+  /**
+   * Compiles a reader. Only the compiler refers to the datum reader: the
+   * compiled instances are shared, so they get the data model as they read.
+   */
+  private static final class ReaderCompiler {
+    private final GenericDatumReader<?> datumReader;
+    private final Map<Resolver.Action, RecordReader> records = new IdentityHashMap<>();
+
+    ReaderCompiler(GenericDatumReader<?> datumReader) {
+      this.datumReader = datumReader;
+    }
+
+    CompiledReader compile(Resolver.Action action) {
+      switch (action.type) {
+        case DO_NOTHING:
+          return primitive(action.reader);
+        case PROMOTE:
+          return promote(action.writer, action.reader);
+        case ERROR:
+          final String message = action.toString();
+          return (data, reuse, in) -> {
+            throw new AvroTypeException(message);
+          };
+        case SKIP:
+          final Schema skipped = action.writer;
+          return (data, reuse, in) -> {
+            GenericDatumReader.skip(skipped, in);
+            return null;
+          };
+        case ENUM:
+          return enumReader((Resolver.EnumAdjust) action);
+        case CONTAINER:
+          CompiledReader element = compile(((Resolver.Container) action).elementAction);
+          return action.reader.getType() == Schema.Type.ARRAY
+                  ? arrayReader(action.writer, action.reader, element)
+                  : mapReader(action.reader, element);
+        case RECORD:
+          return recordReader((Resolver.RecordAdjust) action);
+        case WRITER_UNION:
+          Resolver.Action[] actions = ((Resolver.WriterUnion) action).actions;
+          final CompiledReader[] branches = new CompiledReader[actions.length];
+          for (int i = 0; i < actions.length; i++) {
+            branches[i] = compile(actions[i]);
+          }
+          return (data, reuse, in) -> branches[in.readIndex()].read(data, reuse, in);
+        case READER_UNION:
+          return compile(((Resolver.ReaderUnion) action).actualAction);
+        default:
+          throw new NotCompilableException("Unsupported action " + action.type);
+      }
+    }
+
+    private CompiledReader primitive(final Schema schema) {
+      switch (schema.getType()) {
+        case NULL:
+          return (data, reuse, in) -> {
+            in.readNull();
+            return null;
+          };
+        case BOOLEAN:
+          return (data, reuse, in) -> in.readBoolean();
+        case INT:
+          return (data, reuse, in) -> in.readInt();
+        case LONG:
+          return (data, reuse, in) -> in.readLong();
+        case FLOAT:
+          return (data, reuse, in) -> in.readFloat();
+        case DOUBLE:
+          return (data, reuse, in) -> in.readDouble();
+        case STRING:
+          return stringReader(schema);
+        case BYTES:
+          return (data, reuse, in) -> in.readBytes(reuse instanceof ByteBuffer ? (ByteBuffer) reuse : null);
+        case FIXED:
+          final int size = schema.getFixedSize();
+          return (data, reuse, in) -> {
+            GenericFixed fixed = (GenericFixed) data.createFixed(reuse, schema);
+            in.readFixed(fixed.bytes(), 0, size);
+            return fixed;
+          };
+        default:
+          throw new NotCompilableException("Not a primitive " + schema);
+      }
+    }
+
+    private CompiledReader stringReader(Schema schema) {
+      Class<?> stringClass = datumReader.findStringClass(schema);
+      if (stringClass == String.class) {
+        return (data, reuse, in) -> in.readString();
+      } else if (stringClass == CharSequence.class) {
+        return (data, reuse, in) -> in.readString(reuse instanceof Utf8 ? (Utf8) reuse : null);
+      } else {
+        throw new NotCompilableException("Unsupported string class " + stringClass);
+      }
+    }
+
+    private CompiledReader promote(Schema writer, Schema reader) {
+      final Schema.Type wt = writer.getType();
+      switch (reader.getType()) {
+        case LONG:
+          return (data, reuse, in) -> (long) in.readInt();
+        case FLOAT:
+          if (wt == Schema.Type.INT) {
+            return (data, reuse, in) -> (float) in.readInt();
+          }
+          return (data, reuse, in) -> (float) in.readLong();
+        case DOUBLE:
+          switch (wt) {
+            case INT:
+              return (data, reuse, in) -> (double) in.readInt();
+            case LONG:
+              return (data, reuse, in) -> (double) in.readLong();
+            default:
+              return (data, reuse, in) -> (double) in.readFloat();
+          }
+        case STRING:
+          Class<?> stringClass = datumReader.findStringClass(reader);
+          if (stringClass == String.class) {
+            return (data, reuse, in) -> new String(readBytes(in), StandardCharsets.UTF_8);
+          } else if (stringClass == CharSequence.class) {
+            return (data, reuse, in) -> new Utf8(readBytes(in));
+          }
+          throw new NotCompilableException("Unsupported string class " + stringClass);
+        case BYTES:
+          return (data, reuse, in) -> {
+            Utf8 s = in.readString(null);
+            return ByteBuffer.wrap(s.getBytes(), 0, s.getByteLength());
+          };
+        default:
+          throw new NotCompilableException("Unsupported promotion " + writer + " to " + reader);
+      }
+    }
+
+    /** Reads bytes into an array of their own; decoders may return slices. */
+    private static byte[] readBytes(Decoder in) throws IOException {
+      ByteBuffer buffer = in.readBytes(null);
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return bytes;
+    }
+
+    private CompiledReader enumReader(Resolver.EnumAdjust action) {
+      List<String> symbols = action.reader.getEnumSymbols();
+      int[] adjustments = action.adjustments;
+      final Object[] values = new Object[adjustments.length];
+      final String[] errors = new String[adjustments.length];
+      for (int i = 0; i < adjustments.length; i++) {
+        int adj = action.noAdjustmentsNeeded ? i : adjustments[i];
+        if (adj >= 0) {
+          values[i] = datumReader.getData().createEnum(symbols.get(adj), action.reader);
+        } else {
+          errors[i] = "No match for " + action.writer.getEnumSymbols().get(i);
+        }
+      }
+      return (data, reuse, in) -> {
+        int idx = in.readEnum();
+        Object value = values[idx];
+        if (value == null) {
+          throw new AvroTypeException(errors[idx]);
+        }
+        return value;
+      };
+    }
+
+    private CompiledReader arrayReader(Schema writer, final Schema schema,
+                                       final CompiledReader element) {
+      // primitives are read in bulk only when no promotion is needed
+      final Schema.Type primitive = GenericData.primitiveElementType(schema);
+      final boolean bulk = primitive != null
+        && writer.getElementType().getType() == primitive;
+      return (data, reuse, in) -> {
+        long l = in.readArrayStart();
+        @SuppressWarnings("unchecked")
+        Collection<Object> array = (Collection<Object>) data.newArray(reuse, (int) l, schema);
+        if (bulk && array instanceof GenericData.PrimitiveArray
+            && ((GenericData.PrimitiveArray<?>) array).getElementType() == primitive) {
+          GenericData.PrimitiveArray<?> primitives = (GenericData.PrimitiveArray<?>) array;
+          for (; l > 0; l = in.arrayNext()) {
+            primitives.readElements((int) l, in);
+          }
+          return array;
+        }
+        if (l > 0) {
+          GenericArray<?> generic = array instanceof GenericArray ? (GenericArray<?>) array : null;
+          do {
+            for (long i = 0; i < l; i++) {
+              array.add(element.read(data, generic == null ? null : generic.peek(), in));
+            }
+          } while ((l = in.arrayNext()) > 0);
+        }
+        return array;
+      };
+    }
+
+    private CompiledReader mapReader(Schema schema, final CompiledReader value) {
+      final CompiledReader key = stringReader(schema);
+      return (data, reuse, in) -> {
+        long l = in.readMapStart();
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> map = reuse instanceof Map ? (Map<Object, Object>) reuse : null;
+        if (map != null) {
+          map.clear();
+        } else {
+          map = new HashMap<>((int) l);
+        }
+        if (l > 0) {
+          do {
+            for (long i = 0; i < l; i++) {
+              map.put(key.read(data, null, in), value.read(data, null, in));
+            }
+          } while ((l = in.mapNext()) > 0);
+        }
+        return map;
+      };
+    }
+
+    private CompiledReader recordReader(Resolver.RecordAdjust action) {
+      RecordReader result = records.get(action);
+      if (result != null) {
+        return result;
+      }
+      result = new RecordReader(action.reader);
+      records.put(action, result);
+      Resolver.Action[] fieldActions = action.fieldActions;
+      CompiledReader[] fieldReaders = new CompiledReader[fieldActions.length];
+      int[] positions = new int[fieldActions.length];
+      int r = 0;
+      for (int i = 0; i < fieldActions.length; i++) {
+        fieldReaders[i] = compile(fieldActions[i]);
+        positions[i] = fieldActions[i].type == Resolver.Action.Type.SKIP ? -1 : action.readerOrder[r++].pos();
+      }
+      Field[] defaultFields = new Field[action.readerOrder.length - action.firstDefault];
+      System.arraycopy(action.readerOrder, action.firstDefault, defaultFields, 0, defaultFields.length);
+      result.init(fieldReaders, positions, defaultFields, action.defaults);
+      return result;
+    }
+  }
+
+  /** Record reader, a class rather than a lambda since records can be recursive. */
+  private static final class RecordReader implements CompiledReader {
+    private final Schema schema;
+    private CompiledReader[] fieldReaders;
+    private int[] positions;
+    private Field[] defaultFields;
+    private Object[] defaults;
+
+    RecordReader(Schema schema) {
+      this.schema = schema;
+    }
+
+    void init(CompiledReader[] fieldReaders, int[] positions, Field[] defaultFields, Object[] defaults) {
+      this.fieldReaders = fieldReaders;
+      this.positions = positions;
+      this.defaultFields = defaultFields;
+      this.defaults = defaults;
+    }
+
+    @Override
+    public Object read(GenericData data, Object reuse, Decoder in) throws IOException {
+      IndexedRecord r = (IndexedRecord) data.newRecord(reuse, schema);
+      boolean reused = reuse != null;
+      for (int i = 0; i < fieldReaders.length; i++) {
+        int pos = positions[i];
+        if (pos < 0) {
+          fieldReaders[i].read(data, null, in);
+        } else {
+          r.put(pos, fieldReaders[i].read(data, reused ? r.get(pos) : null, in));
+        }
+      }
+      for (int i = 0; i < defaultFields.length; i++) {
+        Field f = defaultFields[i];
+        r.put(f.pos(), data.deepCopy(f.schema(), defaults[i]));
+      }
+      return r;
+    }
+  }
+
+  private static final class WriterCompiler {
+    private final Map<Schema, RecordWriter> records = new IdentityHashMap<>();
+
+    CompiledWriter compile(final Schema schema) {
+      switch (schema.getType()) {
+        case RECORD:
+          return recordWriter(schema);
+        case ENUM:
+          return (data, datum, out) -> {
+            if (!data.isEnum(datum)) {
+              throw new AvroTypeException("Not an enum: " + datum + " for schema: " + schema);
+            }
+            out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+          };
+        case ARRAY:
+          return arrayWriter(schema, compile(schema.getElementType()));
+        case MAP:
+          return mapWriter(compile(schema.getValueType()));
+        case UNION:
+          List<Schema> types = schema.getTypes();
+          final CompiledWriter[] branches = new CompiledWriter[types.size()];
+          for (int i = 0; i < branches.length; i++) {
+            branches[i] = compile(types.get(i));
+          }
+          return (data, datum, out) -> {
+            int index = data.resolveUnion(schema, datum);
+            out.writeIndex(index);
+            branches[index].write(data, datum, out);
+          };
+        case FIXED:
+          final int size = schema.getFixedSize();
+          return (data, datum, out) -> out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+        case STRING:
+          return (data, datum, out) -> out.writeString((CharSequence) datum);
+        case BYTES:
+          return (data, datum, out) -> out.writeBytes((ByteBuffer) datum);
+        case INT:
+          return (data, datum, out) -> out.writeInt(((Number) datum).intValue());
+        case LONG:
+          return (data, datum, out) -> out.writeLong(((Number) datum).longValue());
+        case FLOAT:
+          return (data, datum, out) -> out.writeFloat(((Number) datum).floatValue());
+        case DOUBLE:
+          return (data, datum, out) -> out.writeDouble(((Number) datum).doubleValue());
+        case BOOLEAN:
+          return (data, datum, out) -> out.writeBoolean((Boolean) datum);
+        case NULL:
+          return (data, datum, out) -> out.writeNull();
+        default:
+          throw new AvroTypeException("Unknown type: " + schema);
+      }
+    }
+
+    private CompiledWriter arrayWriter(Schema schema, final CompiledWriter element) {
+      final Schema.Type primitive = GenericData.primitiveElementType(schema);
+      return (data, datum, out) -> {
+        if (primitive != null && datum instanceof GenericData.PrimitiveArray
+            && ((GenericData.PrimitiveArray<?>) datum).getElementType() == primitive) {
+          GenericData.PrimitiveArray<?> primitives = (GenericData.PrimitiveArray<?>) datum;
+          out.writeArrayStart();
+          out.setItemCount(primitives.size());
+          primitives.writeElements(out);
+          out.writeArrayEnd();
+          return;
+        }
+        Collection<?> array = (Collection<?>) datum;
+        long size = array.size();
+        long actualSize = 0;
+        out.writeArrayStart();
+        out.setItemCount(size);
+        for (Object e : array) {
+          out.startItem();
+          element.write(data, e, out);
+          actualSize++;
+        }
+        out.writeArrayEnd();
+        if (actualSize != size) {
+          throw new ConcurrentModificationException("Size of array written was "
+                  + size + ", but number of elements written was " + actualSize + ". ");
+        }
+      };
+    }
+
+    private CompiledWriter mapWriter(final CompiledWriter value) {
+      return (data, datum, out) -> {
+        Map<?, ?> map = (Map<?, ?>) datum;
+        int size = map.size();
+        int actualSize = 0;
+        out.writeMapStart();
+        out.setItemCount(size);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          out.startItem();
+          out.writeString(entry.getKey().toString());
+          value.write(data, entry.getValue(), out);
+          actualSize++;
+        }
+        out.writeMapEnd();
+        if (actualSize != size) {
+          throw new ConcurrentModificationException("Size of map written was "
+                  + size + ", but number of entries written was " + actualSize + ". ");
+        }
+      };
+    }
+
+    private CompiledWriter recordWriter(Schema schema) {
+      RecordWriter result = records.get(schema);
+      if (result != null) {
+        return result;
+      }
+      result = new RecordWriter();
+      records.put(schema, result);
+      List<Field> fields = schema.getFields();
+      CompiledWriter[] writers = new CompiledWriter[fields.size()];
+      for (int i = 0; i < writers.length; i++) {
+        writers[i] = compile(fields.get(i).schema());
+      }
+      result.init(schema, fields.toArray(new Field[fields.size()]), writers);
+      return result;
+    }
+  }
+
+  /** Record writer, a class rather than a lambda since records can be recursive. */
+  private static final class RecordWriter implements CompiledWriter {
+    private Schema schema;
+    private Field[] fields;
+    private CompiledWriter[] writers;
+
+    void init(Schema schema, Field[] fields, CompiledWriter[] writers) {
+      this.schema = schema;
+      this.fields = fields;
+      this.writers = writers;
+    }
+
+    @Override
+    public void write(GenericData data, Object datum, Encoder out) throws IOException {
+      if (datum instanceof LazyRecord
+          && ((LazyRecord) datum).copyTo(schema, out)) {
+        return;
+      }
+      IndexedRecord record = (IndexedRecord) datum;
+      for (int i = 0; i < writers.length; i++) {
+        try {
+          writers[i].write(data, record.get(i), out);
+        } catch (NullPointerException e) {
+          Field f = fields[i];
+          NullPointerException result = new NullPointerException(e.getMessage()
+                  + " of " + f.schema().getFullName() + " in field " + f.name());
+          result.initCause(e.getCause() == null ? e : e.getCause());
+          throw result;
+        }
+      }
+    }
+  }
+}
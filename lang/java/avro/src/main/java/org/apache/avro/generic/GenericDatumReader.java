@@ -30,6 +30,8 @@ import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.io.Batch;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
@@ -39,9 +41,14 @@ import org.apache.avro.util.Utf8;
 
 /** {@link DatumReader} for generic Java objects. */
 public class GenericDatumReader<D> implements DatumReader<D> {
+  /** Default for {@link #setCompiled(boolean)}, enabled with -Davro.generic.compiled=true. */
+  static final boolean COMPILED_DEFAULT = Boolean.getBoolean("avro.generic.compiled");
+
   private final GenericData data;
   private Schema actual;
   private Schema expected;
+  private boolean compiled = COMPILED_DEFAULT;
+  private GenericDatumCompiler.Compiled<GenericDatumCompiler.CompiledReader> compiledReader;
 
   public GenericDatumReader() {
     this(null, null, GenericData.get());
@@ -79,6 +86,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     if (expected == null) {
       expected = actual;
     }
+    compiledReader = null;
   }
 
   /** Get the reader's schema. */
@@ -87,6 +95,20 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   /** Set the reader's schema. */
   public void setExpected(Schema reader) {
     this.expected = reader;
+    compiledReader = null;
+  }
+
+  /** Returns true if binary data is read through a compiled reader when possible. */
+  public boolean isCompiled() { return compiled; }
+
+  /**
+   * Enables or disables reading binary data through a reader compiled from the
+   * writer's and reader's schemas. Compiled readers are cached per schema
+   * fingerprint; schemas that cannot be compiled, like the ones using logical
+   * types, are read by the interpreter as before.
+   */
+  public void setCompiled(boolean compiled) {
+    this.compiled = compiled;
   }
 
 
@@ -99,12 +121,56 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   @Override
   @SuppressWarnings("unchecked")
   public D read(D reuse, Decoder in) throws IOException {
+    if (compiled && in instanceof BinaryDecoder) {
+      GenericDatumCompiler.Compiled<GenericDatumCompiler.CompiledReader> reader = compiledReader;
+      if (reader == null) {
+        reader = GenericDatumCompiler.reader(this, actual, expected);
+        compiledReader = reader;
+      }
+      if (reader.compiled()) {
+        return (D) reader.get().read(data, reuse, in);
+      }
+    }
     ResolvingDecoder resolver = getResolver(actual, expected, in);
     D result = (D) read(reuse, expected, resolver);
     resolver.drain();
     return result;
   }
 
+  /** Resolves the schemas once for the whole batch. */
+  @Override
+  @SuppressWarnings("unchecked")
+  public Batch<D> readBatch(int count, Batch<D> reuse, Decoder in)
+    throws IOException {
+    Batch<D> batch = reuse != null ? reuse : new Batch<D>(count);
+    batch.clear();
+    if (compiled && in instanceof BinaryDecoder) {
+      GenericDatumCompiler.Compiled<GenericDatumCompiler.CompiledReader> compiled = compiledReader;
+      if (compiled == null) {
+        compiled = GenericDatumCompiler.reader(this, actual, expected);
+        compiledReader = compiled;
+      }
+      if (compiled.compiled()) {
+        GenericDatumCompiler.CompiledReader reader = compiled.get();
+        for (int i = 0; i < count; i++) {
+          batch.add((D) reader.read(data, batch.reusable(), in));
+        }
+        return batch;
+      }
+    }
+    ResolvingDecoder resolver = null;
+    for (int i = 0; i < count; i++) {
+      if (resolver == null) {
+        resolver = getResolver(actual, expected, in);
+      } else {
+        resolver.configure(in);
+      }
+      batch.add((D) read(batch.reusable(), expected, resolver));
+      resolver.drain();
+    }
+    return batch;
+  }
+
   /** Called to read data.*/
   protected Object read(Object old, Schema expected,
       ResolvingDecoder in) throws IOException {
@@ -233,6 +299,16 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     long base = 0;
     if (l > 0) {
       Object array = newArray(old, (int) l, expected);
+      if (array instanceof GenericData.PrimitiveArray
+          && ((GenericData.PrimitiveArray<?>) array).getElementType()
+             == GenericData.primitiveElementType(expected)) {
+        GenericData.PrimitiveArray<?> primitives =
+          (GenericData.PrimitiveArray<?>) array;
+        do {
+          primitives.readElements((int) l, in);
+        } while ((l = in.arrayNext()) > 0);
+        return array;
+      }
       do {
         for (long i = 0; i < l; i++) {
           addToArray(array, base + i, read(peekArray(array), expectedType, in));
@@ -341,14 +417,10 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   }
 
   /** Called to create new array instances.  Subclasses may override to use a
-   * different array implementation.  By default, this returns a {@link
-   * GenericData.Array}.*/
-  @SuppressWarnings("unchecked")
+   * different array implementation.  By default, this calls {@link
+   * GenericData#newArray(Object, int, Schema)}.*/
   protected Object newArray(Object old, int size, Schema schema) {
-    if (old instanceof Collection) {
-      ((Collection) old).clear();
-      return old;
-    } else return new GenericData.Array(size, schema);
+    return data.newArray(old, size, schema);
   }
 
   /** Called to create new array instances.  Subclasses may override to use a
@@ -37,6 +37,8 @@ import org.apache.avro.io.Encoder;
 public class GenericDatumWriter<D> implements DatumWriter<D> {
   private final GenericData data;
   private Schema root;
+  private boolean compiled = GenericDatumReader.COMPILED_DEFAULT;
+  private GenericDatumCompiler.Compiled<GenericDatumCompiler.CompiledWriter> compiledWriter;
 
   public GenericDatumWriter() {
     this(GenericData.get());
@@ -63,9 +65,36 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
 
   public void setSchema(Schema root) {
     this.root = root;
+    this.compiledWriter = null;
+  }
+
+  /** Returns true if data is written through a compiled writer when possible. */
+  public boolean isCompiled() {
+    return compiled;
+  }
+
+  /**
+   * Enables or disables writing through a writer compiled from the schema.
+   * Compiled writers are cached per schema fingerprint; schemas that cannot be
+   * compiled, like the ones using logical types, are written by the interpreter
+   * as before.
+   */
+  public void setCompiled(boolean compiled) {
+    this.compiled = compiled;
   }
 
   public void write(D datum, Encoder out) throws IOException {
+    if (compiled) {
+      GenericDatumCompiler.Compiled<GenericDatumCompiler.CompiledWriter> writer = compiledWriter;
+      if (writer == null) {
+        writer = GenericDatumCompiler.writer(this, root);
+        compiledWriter = writer;
+      }
+      if (writer.compiled()) {
+        writer.get().write(data, datum, out);
+        return;
+      }
+    }
     write(root, datum, out);
   }
 
@@ -196,6 +225,10 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
    * representations.
    */
   protected void writeRecord(Schema schema, Object datum, Encoder out) throws IOException {
+    if (datum instanceof LazyRecord
+        && ((LazyRecord) datum).copyTo(schema, out)) {
+      return;
+    }
     Object state = data.getRecordState(datum, schema);
     for (Field f : schema.getFields()) {
       writeField(datum, f, out, state);
@@ -229,6 +262,17 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
   protected void writeArray(Schema schema, Object datum, Encoder out)
     throws IOException {
     Schema element = schema.getElementType();
+    if (datum instanceof GenericData.PrimitiveArray
+        && ((GenericData.PrimitiveArray<?>) datum).getElementType()
+           == GenericData.primitiveElementType(schema)) {
+      GenericData.PrimitiveArray<?> primitives =
+        (GenericData.PrimitiveArray<?>) datum;
+      out.writeArrayStart();
+      out.setItemCount(primitives.size());
+      primitives.writeElements(out);
+      out.writeArrayEnd();
+      return;
+    }
     long size = getArraySize(datum);
     if (size >= 0) {
       long actualSize = 0;
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+
+/**
+ * A record that is a view of its binary encoding. Fields are decoded when
+ * first accessed: the offsets of the fields are found as needed, by skipping
+ * the preceding fields, and only the fields accessed are decoded.
+ * <p/>
+ * A record that is not modified by {@link #put(int, Object)} is written by
+ * {@link GenericDatumWriter} to a {@link BinaryEncoder} by copying its
+ * encoding, without encoding its fields. Once a field whose value may be
+ * changed in place, e.g. a record, array, map, string or bytes, has been
+ * read, the record is encoded field by field instead, so that such changes
+ * are written. The bytes are not copied, so must not be changed while the
+ * record is in use. Like its superclass, this is
+ * not thread-safe.
+ */
+public class LazyRecord extends GenericData.Record {
+  private static final Object UNREAD = new Object();
+
+  private final GenericData data;
+  private final byte[] bytes;
+  private final int offset;
+  private final int length;
+  private final int[] offsets;          // of each field and of the end
+  private int found;                    // last offset found
+  private boolean modified;
+  private boolean exposed;              // a mutable field value was read
+  private DatumReader<?>[] readers;
+  private BinaryDecoder decoder;
+
+  /** Creates a view of the binary encoding of a record. */
+  public LazyRecord(Schema schema, byte[] bytes, int offset, int length) {
+    this(schema, GenericData.get(), bytes, offset, length);
+  }
+
+  /** Creates a view of the binary encoding of a record, held by the
+   * remaining bytes of a buffer. */
+  public LazyRecord(Schema schema, ByteBuffer buffer) {
+    this(schema, GenericData.get(), array(buffer),
+         buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0,
+         buffer.remaining());
+  }
+
+  /**
+   * Creates a view of the binary encoding of a record, whose fields are
+   * decoded as by {@link GenericDatumReader} with the given model.
+   */
+  public LazyRecord(Schema schema, GenericData data,
+                    byte[] bytes, int offset, int length) {
+    super(schema);
+    this.data = data;
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+    int n = schema.getFields().size();
+    for (int i = 0; i < n; i++) {
+      super.put(i, UNREAD);
+    }
+    this.offsets = new int[n + 1];
+  }
+
+  private static byte[] array(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return buffer.array();
+    }
+    byte[] copy = new byte[buffer.remaining()];
+    buffer.duplicate().get(copy);
+    return copy;
+  }
+
+  @Override
+  public Object get(int i) {
+    Object value = super.get(i);
+    if (value == UNREAD) {
+      value = read(i);
+      super.put(i, value);
+      if (!isImmutable(value)) {
+        exposed = true;
+      }
+    }
+    return value;
+  }
+
+  private static boolean isImmutable(Object value) {
+    return value == null || value instanceof String || value instanceof Integer
+      || value instanceof Long || value instanceof Double
+      || value instanceof Boolean || value instanceof Float
+      || value instanceof Enum || value instanceof GenericData.EnumSymbol;
+  }
+
+  @Override
+  public Object get(String key) {
+    Field field = getSchema().getField(key);
+    if (field == null) {
+      throw new IllegalArgumentException("Invalid field " + key);
+    }
+    return get(field.pos());
+  }
+
+  @Override
+  public void put(int i, Object v) {
+    super.put(i, v);
+    modified = true;
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    Field field = getSchema().getField(key);
+    if (field == null)
+      throw new AvroRuntimeException("Not a valid schema field: " + key);
+    put(field.pos(), value);
+  }
+
+  /** Returns true if a field was set since this was created. */
+  public boolean isModified() {
+    return modified;
+  }
+
+  /** Returns the encoding of this record, as it was created. */
+  public ByteBuffer getEncoding() {
+    return ByteBuffer.wrap(bytes, offset, length).slice();
+  }
+
+  private Object read(int i) {
+    try {
+      int start = offsetOf(i);
+      int end = offsetOf(i + 1);
+      if (readers == null) {
+        readers = new DatumReader<?>[offsets.length - 1];
+      }
+      if (readers[i] == null) {
+        Schema fieldSchema = getSchema().getFields().get(i).schema();
+        readers[i] = data.createDatumReader(fieldSchema, fieldSchema);
+      }
+      decoder = DecoderFactory.get().binaryDecoder(
+          bytes, offset + start, end - start, decoder);
+      return readers[i].read(null, decoder);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /** Returns the offset of a field, or of the end for the field count. */
+  private int offsetOf(int i) throws IOException {
+    if (i <= found) {
+      return offsets[i];
+    }
+    // a direct decoder reads no further than each field skipped
+    Position in = new Position(bytes, offset + offsets[found],
+                               length - offsets[found]);
+    BinaryDecoder skipper = DecoderFactory.get().directBinaryDecoder(in, null);
+    List<Field> fields = getSchema().getFields();
+    while (found < i) {
+      GenericDatumReader.skip(fields.get(found).schema(), skipper);
+      offsets[++found] = in.position() - offset;
+    }
+    return offsets[i];
+  }
+
+  private static class Position extends ByteArrayInputStream {
+    Position(byte[] bytes, int offset, int length) {
+      super(bytes, offset, length);
+    }
+    int position() {
+      return pos;
+    }
+  }
+
+  /**
+   * Writes the encoding of this record, if not modified and no field that
+   * might have been changed in place was read, to a binary encoder, for the
+   * same schema.
+   * @return false if nothing was written, and the record must be encoded.
+   */
+  boolean copyTo(Schema writeSchema, Encoder out) throws IOException {
+    if (modified || exposed || !(out instanceof BinaryEncoder)
+        || (writeSchema != getSchema() && !writeSchema.equals(getSchema()))) {
+      return false;
+    }
+    out.writeFixed(bytes, offset, length);
+    return true;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A reusable sequence of data, read by {@link DatumReader#readBatch(int,
+ * Batch, Decoder)}. Clearing a batch keeps its data, to be reused by the
+ * following reads.
+ */
+public class Batch<D> implements Iterable<D> {
+  private Object[] data;
+  private int size;
+
+  public Batch() {
+    this(16);
+  }
+
+  public Batch(int capacity) {
+    this.data = new Object[Math.max(capacity, 1)];
+  }
+
+  /** Returns the number of data in this batch. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns a datum of this batch. */
+  @SuppressWarnings("unchecked")
+  public D get(int i) {
+    if (i >= size)
+      throw new IndexOutOfBoundsException("Index " + i + " Size " + size);
+    return (D) data[i];
+  }
+
+  /** Empties this batch, keeping its data for reuse. */
+  public void clear() {
+    size = 0;
+  }
+
+  /** Returns the datum previously at the end of this batch, to be reused by
+   * the next one {@link #add(Object) added}, or null if none. */
+  @SuppressWarnings("unchecked")
+  public D reusable() {
+    return size < data.length ? (D) data[size] : null;
+  }
+
+  /** Adds a datum to the end of this batch. */
+  public void add(D datum) {
+    if (size == data.length) {
+      data = Arrays.copyOf(data, size * 2);
+    }
+    data[size++] = datum;
+  }
+
+  @Override
+  public Iterator<D> iterator() {
+    return new Iterator<D>() {
+      private int position = 0;
+      @Override
+      public boolean hasNext() {
+        return position < size;
+      }
+      @Override
+      @SuppressWarnings("unchecked")
+      public D next() {
+        if (position >= size)
+          throw new NoSuchElementException();
+        return (D) data[position++];
+      }
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -21,6 +21,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.util.Arrays;
@@ -257,6 +258,96 @@ public class BinaryDecoder extends Decoder {
         | (((long) n2) << 32));
   }
 
+  @Override
+  public void readInts(int[] values, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int safe = limit - 5;                       // room for the longest int
+      if (pos > safe) {
+        values[off++] = readInt();                // refills the buffer
+        continue;
+      }
+      byte[] b = buf;
+      int p = pos;
+      while (off < end && p <= safe) {
+        int v = b[p++];
+        int n = v & 0x7f;
+        for (int shift = 7; v < 0; shift += 7) {
+          if (shift > 28) {
+            pos = p;
+            throw new IOException("Invalid int encoding");
+          }
+          v = b[p++];
+          n ^= (v & 0x7f) << shift;
+        }
+        values[off++] = (n >>> 1) ^ -(n & 1);     // back to two's-complement
+      }
+      pos = p;
+    }
+  }
+
+  @Override
+  public void readLongs(long[] values, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int safe = limit - 10;                      // room for the longest long
+      if (pos > safe) {
+        values[off++] = readLong();               // refills the buffer
+        continue;
+      }
+      byte[] b = buf;
+      int p = pos;
+      while (off < end && p <= safe) {
+        int v = b[p++];
+        long l = v & 0x7f;
+        for (int shift = 7; v < 0; shift += 7) {
+          if (shift > 63) {
+            pos = p;
+            throw new IOException("Invalid long encoding");
+          }
+          v = b[p++];
+          l ^= (v & 0x7fL) << shift;
+        }
+        values[off++] = (l >>> 1) ^ -(l & 1);     // back to two's-complement
+      }
+      pos = p;
+    }
+  }
+
+  @Override
+  public void readFloats(float[] values, int off, int len)
+    throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (limit - pos) / 4);
+      if (n == 0) {
+        values[off++] = readFloat();              // refills the buffer
+        continue;
+      }
+      ByteBuffer.wrap(buf, pos, n * 4).order(ByteOrder.LITTLE_ENDIAN)
+        .asFloatBuffer().get(values, off, n);
+      pos += n * 4;
+      off += n;
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] values, int off, int len)
+    throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (limit - pos) / 8);
+      if (n == 0) {
+        values[off++] = readDouble();             // refills the buffer
+        continue;
+      }
+      ByteBuffer.wrap(buf, pos, n * 8).order(ByteOrder.LITTLE_ENDIAN)
+        .asDoubleBuffer().get(values, off, n);
+      pos += n * 8;
+      off += n;
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     int length = readInt();
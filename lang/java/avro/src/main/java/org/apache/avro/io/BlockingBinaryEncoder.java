@@ -334,6 +334,51 @@ public class BlockingBinaryEncoder extends BufferedBinaryEncoder {
     assert check();
   }
 
+  // each item may end a block, so the buffered bulk writes do not apply
+
+  @Override
+  public void writeInts(int[] values, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeInt(values[i]);
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] values, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeLong(values[i]);
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeFloat(values[i]);
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeDouble(values[i]);
+    }
+  }
+
+  @Override
+  public void writeBooleans(boolean[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeBoolean(values[i]);
+    }
+  }
+
   @Override
   public void writeArrayEnd() throws IOException {
     BlockedValue top = blockStack[stackTop];
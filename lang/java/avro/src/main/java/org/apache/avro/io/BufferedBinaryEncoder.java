@@ -20,6 +20,7 @@ package org.apache.avro.io;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 
@@ -144,6 +145,88 @@ public class BufferedBinaryEncoder extends BinaryEncoder {
     pos += 8;
   }
 
+  @Override
+  public void writeInts(int[] values, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (buf.length - pos) / 5);
+      if (n == 0) {
+        flushBuffer();
+        continue;
+      }
+      for (int i = off; i < off + n; i++) {
+        pos += BinaryData.encodeInt(values[i], buf, pos);
+      }
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] values, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (buf.length - pos) / 10);
+      if (n == 0) {
+        flushBuffer();
+        continue;
+      }
+      for (int i = off; i < off + n; i++) {
+        pos += BinaryData.encodeLong(values[i], buf, pos);
+      }
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] values, int off, int len)
+    throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (buf.length - pos) / 4);
+      if (n == 0) {
+        flushBuffer();
+        continue;
+      }
+      ByteBuffer.wrap(buf, pos, n * 4).order(ByteOrder.LITTLE_ENDIAN)
+        .asFloatBuffer().put(values, off, n);
+      pos += n * 4;
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] values, int off, int len)
+    throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (buf.length - pos) / 8);
+      if (n == 0) {
+        flushBuffer();
+        continue;
+      }
+      ByteBuffer.wrap(buf, pos, n * 8).order(ByteOrder.LITTLE_ENDIAN)
+        .asDoubleBuffer().put(values, off, n);
+      pos += n * 8;
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeBooleans(boolean[] values, int off, int len)
+    throws IOException {
+    int end = off + len;
+    while (off < end) {
+      if (pos == buf.length) {
+        flushBuffer();
+      }
+      int n = Math.min(end - off, buf.length - pos);
+      for (int i = off; i < off + n; i++) {
+        buf[pos++] = (byte) (values[i] ? 1 : 0);
+      }
+      off += n;
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     if (len > bulkLimit) {
@@ -0,0 +1,363 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.util.Arrays;
+import org.apache.avro.util.Strings;
+import org.apache.avro.util.Utf8;
+
+/**
+ * A {@link BinaryDecoder} that reads straight from a {@link ByteBuffer},
+ * heap, direct or memory-mapped, without copying it into a byte[] buffer
+ * first.
+ * <p/>
+ * The decoder reads from a duplicate of the buffer, between its position and
+ * limit when it is configured; the position of the buffer passed in is not
+ * changed. If <i>sliceBytes</i> is set, {@link #readBytes(ByteBuffer)}
+ * returns slices of the source buffer instead of copies. Such slices share
+ * their content with the source buffer, are only valid as long as it is, and
+ * of a heap buffer have a non-zero {@link ByteBuffer#arrayOffset()}.
+ *
+ * @see DecoderFactory#binaryDecoder(ByteBuffer, BinaryDecoder)
+ */
+class ByteBufferBinaryDecoder extends BinaryDecoder {
+  private ByteBuffer buffer;
+  private byte[] array; // the backing array of a heap buffer, or null
+  private int arrayOffset;
+  private int pos;
+  private int limit;
+  private boolean sliceBytes;
+
+  ByteBufferBinaryDecoder(ByteBuffer buffer, boolean sliceBytes) {
+    super();
+    configure(buffer, sliceBytes);
+  }
+
+  ByteBufferBinaryDecoder configure(ByteBuffer buffer, boolean sliceBytes) {
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    if (this.buffer.hasArray()) {
+      this.array = this.buffer.array();
+      this.arrayOffset = this.buffer.arrayOffset();
+    } else {
+      this.array = null;
+      this.arrayOffset = 0;
+    }
+    this.pos = this.buffer.position();
+    this.limit = this.buffer.limit();
+    this.sliceBytes = sliceBytes;
+    return this;
+  }
+
+  @Override
+  public void readNull() throws IOException {
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    if (pos == limit) {
+      throw new EOFException();
+    }
+    return buffer.get(pos++) == 1;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    if (limit - pos < 5) {
+      return (int) readVarLongChecked(5, "Invalid int encoding");
+    }
+    int p = pos;
+    int b = buffer.get(p++) & 0xff;
+    int n = b & 0x7f;
+    if (b > 0x7f) {
+      b = buffer.get(p++) & 0xff;
+      n ^= (b & 0x7f) << 7;
+      if (b > 0x7f) {
+        b = buffer.get(p++) & 0xff;
+        n ^= (b & 0x7f) << 14;
+        if (b > 0x7f) {
+          b = buffer.get(p++) & 0xff;
+          n ^= (b & 0x7f) << 21;
+          if (b > 0x7f) {
+            b = buffer.get(p++) & 0xff;
+            n ^= (b & 0x7f) << 28;
+            if (b > 0x7f) {
+              throw new IOException("Invalid int encoding");
+            }
+          }
+        }
+      }
+    }
+    pos = p;
+    return (n >>> 1) ^ -(n & 1); // back to two's-complement
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    if (limit - pos < 10) {
+      return readVarLongChecked(10, "Invalid long encoding");
+    }
+    int p = pos;
+    long b = buffer.get(p++) & 0xff;
+    long l = b & 0x7f;
+    for (int shift = 7; b > 0x7f; shift += 7) {
+      if (shift > 63) {
+        throw new IOException("Invalid long encoding");
+      }
+      b = buffer.get(p++) & 0xff;
+      l ^= (b & 0x7f) << shift;
+    }
+    pos = p;
+    return (l >>> 1) ^ -(l & 1); // back to two's-complement
+  }
+
+  /** Decodes a zig-zag varint of at most maxBytes near the limit. */
+  private long readVarLongChecked(int maxBytes, String invalid)
+      throws IOException {
+    int p = pos;
+    long l = 0;
+    for (int i = 0; i < maxBytes; i++) {
+      if (p == limit) {
+        throw new EOFException();
+      }
+      long b = buffer.get(p++) & 0xff;
+      l ^= (b & 0x7f) << (7 * i);
+      if (b <= 0x7f) {
+        pos = p;
+        return (l >>> 1) ^ -(l & 1);
+      }
+    }
+    throw new IOException(invalid);
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    ensure(4);
+    float result = buffer.getFloat(pos);
+    pos += 4;
+    return result;
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    ensure(8);
+    double result = buffer.getDouble(pos);
+    pos += 8;
+    return result;
+  }
+
+  @Override
+  public void readFloats(float[] values, int off, int len)
+    throws IOException {
+    ensure(len * 4L);
+    view().asFloatBuffer().get(values, off, len);
+    pos += len * 4;
+  }
+
+  @Override
+  public void readDoubles(double[] values, int off, int len)
+    throws IOException {
+    ensure(len * 8L);
+    view().asDoubleBuffer().get(values, off, len);
+    pos += len * 8;
+  }
+
+  /** Returns a little-endian duplicate of the buffer, from the position. */
+  private ByteBuffer view() {
+    ByteBuffer view = buffer.duplicate();
+    view.position(pos);
+    return view.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Override
+  public Utf8 readString(Utf8 old) throws IOException {
+    int length = readInt();
+    Utf8 result = (old != null ? old : new Utf8());
+    result.setByteLength(length);
+    if (0 != length) {
+      doReadBytes(result.getBytes(), 0, length);
+    }
+    return result;
+  }
+
+  @Override
+  public String readString() throws IOException {
+    int length = readInt();
+    if (length == 0) {
+      return "";
+    }
+    checkLength(length);
+    ensure(length);
+    String result;
+    if (array != null) {
+      result = Strings.fromUtf8(array, arrayOffset + pos, length);
+    } else {
+      byte[] tlBytes = Arrays.getBytesTmp(length);
+      get(pos, tlBytes, 0, length);
+      result = Strings.fromUtf8(tlBytes, 0, length);
+    }
+    pos += length;
+    return result;
+  }
+
+  @Override
+  public void skipString() throws IOException {
+    doSkipBytes(readInt());
+  }
+
+  @Override
+  public ByteBuffer readBytes(ByteBuffer old) throws IOException {
+    int length = readInt();
+    if (sliceBytes) {
+      checkLength(length);
+      ensure(length);
+      ByteBuffer result = buffer.duplicate();
+      result.limit(pos + length).position(pos);
+      pos += length;
+      return result.slice();
+    }
+    ByteBuffer result;
+    if (old != null && length <= old.capacity()) {
+      result = old;
+      result.clear();
+    } else {
+      result = ByteBuffer.allocate(length);
+    }
+    doReadBytes(result.array(), result.position(), length);
+    result.limit(length);
+    return result;
+  }
+
+  @Override
+  public void skipBytes() throws IOException {
+    doSkipBytes(readInt());
+  }
+
+  @Override
+  public void readFixed(byte[] bytes, int start, int length) throws IOException {
+    doReadBytes(bytes, start, length);
+  }
+
+  @Override
+  public void skipFixed(int length) throws IOException {
+    doSkipBytes(length);
+  }
+
+  @Override
+  public int readEnum() throws IOException {
+    return readInt();
+  }
+
+  @Override
+  protected void doSkipBytes(long length) throws IOException {
+    checkLength(length);
+    if (length > limit - pos) {
+      pos = limit;
+      throw new EOFException();
+    }
+    pos += length;
+  }
+
+  @Override
+  protected void doReadBytes(byte[] bytes, int start, int length)
+      throws IOException {
+    checkLength(length);
+    ensure(length);
+    get(pos, bytes, start, length);
+    pos += length;
+  }
+
+  @Override
+  public int readIndex() throws IOException {
+    return readInt();
+  }
+
+  @Override
+  public boolean isEnd() throws IOException {
+    return pos == limit;
+  }
+
+  /**
+   * Returns an {@link InputStream} over the bytes not yet read. Reading from
+   * it advances this decoder.
+   */
+  @Override
+  public InputStream inputStream() {
+    return new InputStream() {
+      @Override
+      public int read() {
+        return pos < limit ? buffer.get(pos++) & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+          return 0;
+        }
+        if (pos == limit) {
+          return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        get(pos, b, off, n);
+        pos += n;
+        return n;
+      }
+
+      @Override
+      public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, limit - pos));
+        pos += skipped;
+        return skipped;
+      }
+
+      @Override
+      public int available() {
+        return limit - pos;
+      }
+    };
+  }
+
+  private void get(int from, byte[] bytes, int start, int length) {
+    if (array != null) {
+      System.arraycopy(array, arrayOffset + from, bytes, start, length);
+    } else {
+      ByteBuffer src = buffer.duplicate();
+      src.position(from);
+      src.get(bytes, start, length);
+    }
+  }
+
+  private void ensure(long length) throws EOFException {
+    if (length > limit - pos) {
+      throw new EOFException();
+    }
+  }
+
+  private static void checkLength(long length) {
+    if (length < 0) {
+      throw new AvroRuntimeException("Malformed data. Length is negative: "
+          + length);
+    }
+  }
+}
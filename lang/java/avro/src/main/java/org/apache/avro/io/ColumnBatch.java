@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.util.Utf8;
+
+/**
+ * A reusable batch of records of a flat schema, decoded into a column per
+ * field, for loops over the values of a field without an object per record.
+ * <p/>
+ * The schema must be a record whose fields are booleans, ints, longs, floats,
+ * doubles, strings, bytes, enums or fixeds, or unions of null with one of
+ * those. Ints, longs and enum ordinals are read into a long[], floats and
+ * doubles into a double[], strings into a Utf8[] and bytes and fixeds into a
+ * ByteBuffer[]. Nullable fields have a bitmap of their null values, and the
+ * values of their null rows are unspecified. Data is decoded as written,
+ * without schema resolution. Reading into a batch reuses its arrays, strings
+ * and buffers.
+ */
+public class ColumnBatch {
+  private final Schema schema;
+  private final Column[] columns;
+  private int size;
+
+  /** One column of a batch. */
+  public static final class Column {
+    private final Field field;
+    private final Type type;                      // of the non-null branch
+    private final int nullIndex;                  // -1 if not nullable
+    private final int fixedSize;
+    private long[] longs;
+    private double[] doubles;
+    private boolean[] booleans;
+    private Utf8[] strings;
+    private ByteBuffer[] bytes;
+    private long[] nulls;
+
+    private Column(Field field) {
+      Schema schema = valueSchema(field.schema());
+      if (schema == null)
+        throw new AvroRuntimeException("Field " + field.name()
+            + " cannot be read into a column: " + field.schema());
+      this.field = field;
+      this.type = schema.getType();
+      this.nullIndex = schema == field.schema() ? -1
+        : field.schema().getTypes().indexOf(schema) ^ 1;
+      this.fixedSize = type == Type.FIXED ? schema.getFixedSize() : 0;
+      ensureCapacity(16);
+    }
+
+    /** Returns the schema of the values of a field, without null, or null if
+     * they cannot be read into a column. */
+    private static Schema valueSchema(Schema schema) {
+      if (schema.getType() == Type.UNION) {
+        List<Schema> branches = schema.getTypes();
+        if (branches.size() != 2)
+          return null;
+        int nullIndex = branches.get(0).getType() == Type.NULL ? 0 : 1;
+        if (branches.get(nullIndex).getType() != Type.NULL)
+          return null;
+        schema = branches.get(1 - nullIndex);
+      }
+      switch (schema.getType()) {
+      case BOOLEAN: case INT: case LONG: case FLOAT: case DOUBLE:
+      case STRING: case BYTES: case ENUM: case FIXED:
+        return schema;
+      default:
+        return null;
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      switch (type) {
+      case BOOLEAN:
+        if (booleans == null || booleans.length < capacity)
+          booleans = booleans == null ? new boolean[capacity]
+            : Arrays.copyOf(booleans, capacity);
+        break;
+      case INT: case LONG: case ENUM:
+        if (longs == null || longs.length < capacity)
+          longs = longs == null ? new long[capacity]
+            : Arrays.copyOf(longs, capacity);
+        break;
+      case FLOAT: case DOUBLE:
+        if (doubles == null || doubles.length < capacity)
+          doubles = doubles == null ? new double[capacity]
+            : Arrays.copyOf(doubles, capacity);
+        break;
+      case STRING:
+        if (strings == null || strings.length < capacity)
+          strings = strings == null ? new Utf8[capacity]
+            : Arrays.copyOf(strings, capacity);
+        break;
+      default:                                    // BYTES, FIXED
+        if (bytes == null || bytes.length < capacity)
+          bytes = bytes == null ? new ByteBuffer[capacity]
+            : Arrays.copyOf(bytes, capacity);
+        break;
+      }
+      if (nullIndex >= 0) {
+        int words = (capacity + 63) >>> 6;
+        if (nulls == null || nulls.length < words)
+          nulls = nulls == null ? new long[words] : Arrays.copyOf(nulls, words);
+      }
+    }
+
+    private void read(int row, Decoder in) throws IOException {
+      if (nullIndex >= 0 && in.readIndex() == nullIndex) {
+        nulls[row >>> 6] |= 1L << row;
+        return;
+      }
+      switch (type) {
+      case BOOLEAN: booleans[row] = in.readBoolean();                 break;
+      case INT:     longs[row] = in.readInt();                        break;
+      case LONG:    longs[row] = in.readLong();                       break;
+      case ENUM:    longs[row] = in.readEnum();                       break;
+      case FLOAT:   doubles[row] = in.readFloat();                    break;
+      case DOUBLE:  doubles[row] = in.readDouble();                   break;
+      case STRING:  strings[row] = in.readString(strings[row]);       break;
+      case BYTES:   bytes[row] = in.readBytes(bytes[row]);            break;
+      default:                                    // FIXED
+        ByteBuffer b = bytes[row];
+        if (b == null || !b.hasArray() || b.capacity() != fixedSize) {
+          b = bytes[row] = ByteBuffer.allocate(fixedSize);
+        }
+        in.readFixed(b.array(), b.arrayOffset(), fixedSize);
+        b.clear();
+      }
+    }
+
+    /** Returns the field of this column. */
+    public Field getField() { return field; }
+
+    /** Returns the type of this column, that of its non-null branch. */
+    public Type getType() { return type; }
+
+    /** Returns true if this column may hold nulls. */
+    public boolean isNullable() { return nullIndex >= 0; }
+
+    /** Returns true if the value of a row is null. */
+    public boolean isNull(int row) {
+      return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /** Returns the values of an int, long or enum column, enums as their
+     * ordinal. Longer than the batch. */
+    public long[] getLongs() { return longs; }
+
+    /** Returns the values of a float or double column. */
+    public double[] getDoubles() { return doubles; }
+
+    /** Returns the values of a boolean column. */
+    public boolean[] getBooleans() { return booleans; }
+
+    /** Returns the values of a string column. */
+    public Utf8[] getStrings() { return strings; }
+
+    /** Returns the values of a bytes or fixed column. */
+    public ByteBuffer[] getBytes() { return bytes; }
+
+    /** Returns the bitmap of null rows, row <i>i</i> being bit
+     * <code>i % 64</code> of element <code>i / 64</code>, or null if this
+     * column is not nullable. */
+    public long[] getNulls() { return nulls; }
+  }
+
+  /** Creates an empty batch for records of a flat schema.
+   * @throws AvroRuntimeException if the schema is not flat. */
+  public ColumnBatch(Schema schema) {
+    if (schema.getType() != Type.RECORD)
+      throw new AvroRuntimeException("Not a record: " + schema);
+    this.schema = schema;
+    List<Field> fields = schema.getFields();
+    this.columns = new Column[fields.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = new Column(fields.get(i));
+    }
+  }
+
+  /** Returns true if records of a schema can be read into columns. */
+  public static boolean isFlat(Schema schema) {
+    if (schema.getType() != Type.RECORD)
+      return false;
+    for (Field f : schema.getFields()) {
+      if (Column.valueSchema(f.schema()) == null)
+        return false;
+    }
+    return true;
+  }
+
+  public Schema getSchema() { return schema; }
+
+  /** Returns the number of records in this batch. */
+  public int size() { return size; }
+
+  /** Returns the column of a field, by position. */
+  public Column getColumn(int i) { return columns[i]; }
+
+  /** Returns the column of a field, by name. */
+  public Column getColumn(String name) {
+    Field field = schema.getField(name);
+    if (field == null)
+      throw new AvroRuntimeException("No field named " + name);
+    return columns[field.pos()];
+  }
+
+  /** Empties this batch, keeping its arrays for reuse. */
+  public void clear() { size = 0; }
+
+  /** Reads <i>count</i> records, written with this batch's schema, replacing
+   * the content of this batch. */
+  public void read(int count, Decoder in) throws IOException {
+    for (Column c : columns) {
+      c.ensureCapacity(count);
+      if (c.nulls != null) {
+        Arrays.fill(c.nulls, 0, (count + 63) >>> 6, 0L);
+      }
+    }
+    size = 0;
+    for (int row = 0; row < count; row++) {
+      for (Column c : columns) {
+        c.read(row, in);
+      }
+      size++;
+    }
+  }
+}
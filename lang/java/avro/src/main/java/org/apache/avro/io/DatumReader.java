@@ -34,5 +34,18 @@ public interface DatumReader<D> {
    * non-null it may be reused and returned. */
   D read(D reuse, Decoder in) throws IOException;
 
+  /** Read <i>count</i> data into a batch, replacing its content and reusing
+   * its previous data.  Implementations may prepare the reading once for the
+   * whole batch.  If the provided batch is null, a new one is returned. */
+  default Batch<D> readBatch(int count, Batch<D> reuse, Decoder in)
+    throws IOException {
+    Batch<D> batch = reuse != null ? reuse : new Batch<D>(count);
+    batch.clear();
+    for (int i = 0; i < count; i++) {
+      batch.add(read(batch.reusable(), in));
+    }
+    return batch;
+  }
+
 }
 
@@ -195,6 +195,50 @@ public abstract class Decoder {
    */
   public abstract long arrayNext() throws IOException;
 
+  /**
+   * Reads <i>len</i> items of an array or map into <i>values</i>, starting
+   * at <i>off</i>, as if by calling {@link #readInt()} for each. The items
+   * must all be within the current block, as returned by
+   * {@link #readArrayStart()} or {@link #arrayNext()}. Implementations may
+   * override this to decode the items in bulk.
+   */
+  public void readInts(int[] values, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      values[i] = readInt();
+    }
+  }
+
+  /** As {@link #readInts(int[], int, int)}, for longs. */
+  public void readLongs(long[] values, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      values[i] = readLong();
+    }
+  }
+
+  /** As {@link #readInts(int[], int, int)}, for floats. */
+  public void readFloats(float[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      values[i] = readFloat();
+    }
+  }
+
+  /** As {@link #readInts(int[], int, int)}, for doubles. */
+  public void readDoubles(double[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      values[i] = readDouble();
+    }
+  }
+
+  /** As {@link #readInts(int[], int, int)}, for booleans. */
+  public void readBooleans(boolean[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      values[i] = readBoolean();
+    }
+  }
+
   /**
    * Used for quickly skipping through an array.  Note you can
    * either skip the entire array, or read the entire array (with
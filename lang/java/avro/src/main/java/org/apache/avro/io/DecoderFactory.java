@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
 
@@ -36,7 +37,11 @@ public class DecoderFactory {
   private static final DecoderFactory DEFAULT_FACTORY = new DefaultDecoderFactory();
   static final int DEFAULT_BUFFER_SIZE = 8192;
 
+  static final boolean FLAT_GRAMMAR_DEFAULT = Boolean.getBoolean("avro.io.flatGrammar");
+
   int binaryDecoderBufferSize = DEFAULT_BUFFER_SIZE;
+  boolean flatGrammar = FLAT_GRAMMAR_DEFAULT;
+  boolean sliceBytes = false;
 
   /** Constructor for factory instances */
   public DecoderFactory() {
@@ -92,6 +97,51 @@ public class DecoderFactory {
     return this.binaryDecoderBufferSize;
   }
 
+  /**
+   * Configures this factory to create {@link ResolvingDecoder}s that
+   * interpret the resolving grammar compiled into a flat int array program
+   * instead of walking its symbol tree. Both produce the same results. The
+   * default is taken from the <tt>avro.io.flatGrammar</tt> system property,
+   * which also applies to {@link #get()}.
+   *
+   * @param flatGrammar Whether to use the flat grammar.
+   * @return This factory, to enable method chaining.
+   */
+  public DecoderFactory configureFlatGrammar(boolean flatGrammar) {
+    this.flatGrammar = flatGrammar;
+    return this;
+  }
+
+  /**
+   * Returns whether this factory creates {@link ResolvingDecoder}s that use
+   * the flat grammar. See {@link #configureFlatGrammar(boolean)}.
+   */
+  public boolean isFlatGrammar() {
+    return flatGrammar;
+  }
+
+  /**
+   * Configures whether the decoders this factory creates over a
+   * {@link ByteBuffer} return slices of that buffer from
+   * {@link Decoder#readBytes(ByteBuffer)} rather than copies. The default is
+   * false. See {@link #binaryDecoder(ByteBuffer, BinaryDecoder)}.
+   *
+   * @param sliceBytes Whether to return slices.
+   * @return This factory, to enable method chaining.
+   */
+  public DecoderFactory configureSliceBytes(boolean sliceBytes) {
+    this.sliceBytes = sliceBytes;
+    return this;
+  }
+
+  /**
+   * Returns whether the {@link ByteBuffer} decoders of this factory return
+   * slices of their buffer. See {@link #configureSliceBytes(boolean)}.
+   */
+  public boolean isSliceBytes() {
+    return sliceBytes;
+  }
+
   /** @deprecated use the equivalent
    *  {@link #binaryDecoder(InputStream, BinaryDecoder)} instead */
   @Deprecated
@@ -234,6 +284,33 @@ public class DecoderFactory {
     return binaryDecoder(bytes, 0, bytes.length, reuse);
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads the bytes
+   * between the position and the limit of <i>buffer</i>. Heap, direct and
+   * memory-mapped buffers are read in place, without copying them to an
+   * intermediate byte array. The position of <i>buffer</i> is not changed;
+   * {@link BinaryDecoder#inputStream()} tells how many bytes remain unread.
+   * <p/>
+   * If this factory is configured with {@link #configureSliceBytes(boolean)},
+   * {@link Decoder#readBytes(ByteBuffer)} returns slices of <i>buffer</i>
+   * that are only valid as long as its content is.
+   *
+   * @param buffer The buffer to read from
+   * @param reuse The BinaryDecoder to attempt to reinitialize. if null a new
+   *          BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffer</i> as its source of data. If
+   *         <i>reuse</i> is null, this will be a new instance. <i>reuse</i> may
+   *         be reinitialized if appropriate, otherwise a new instance is
+   *         returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer buffer, BinaryDecoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferBinaryDecoder.class)) {
+      return new ByteBufferBinaryDecoder(buffer, sliceBytes);
+    } else {
+      return ((ByteBufferBinaryDecoder) reuse).configure(buffer, sliceBytes);
+    }
+  }
+
   /**
    * Creates a {@link JsonDecoder} using the InputStrim provided for reading
    * data that conforms to the Schema provided.
@@ -306,6 +383,8 @@ public class DecoderFactory {
       Decoder wrapped) throws IOException {
     if (wrapped instanceof JsonExtensionDecoder) {
       return new JsonExtensionResolvingDecoder(writer, reader, wrapped);
+    } else if (flatGrammar) {
+      return new FlatResolvingDecoder(writer, reader, wrapped);
     } else {
       return new ResolvingDecoder(writer, reader, wrapped);
     }
@@ -316,5 +395,15 @@ public class DecoderFactory {
     public DecoderFactory configureDecoderBufferSize(int bufferSize) {
       throw new IllegalArgumentException("This Factory instance is Immutable");
     }
+
+    @Override
+    public DecoderFactory configureFlatGrammar(boolean flatGrammar) {
+      throw new IllegalArgumentException("This Factory instance is Immutable");
+    }
+
+    @Override
+    public DecoderFactory configureSliceBytes(boolean sliceBytes) {
+      throw new IllegalArgumentException("This Factory instance is Immutable");
+    }
   }
 }
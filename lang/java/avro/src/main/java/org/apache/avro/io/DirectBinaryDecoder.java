@@ -160,6 +160,24 @@ class DirectBinaryDecoder extends BinaryDecoder {
     return Double.longBitsToDouble(n);
   }
 
+  // reads no more than needed, so the buffered bulk reads do not apply
+
+  @Override
+  public void readFloats(float[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      values[i] = readFloat();
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      values[i] = readDouble();
+    }
+  }
+
   @Override
   public ByteBuffer readBytes(ByteBuffer old) throws IOException {
     int length = readInt();
@@ -238,6 +238,54 @@ public abstract class Encoder implements Flushable {
    */
   public abstract void startItem() throws IOException;
 
+  /**
+   * Writes <i>len</i> items of an array or map from <i>values</i>, starting
+   * at <i>off</i>, as if by calling {@link #startItem()} and
+   * {@link #writeInt(int)} for each. Implementations may override this to
+   * encode the items in bulk.
+   */
+  public void writeInts(int[] values, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeInt(values[i]);
+    }
+  }
+
+  /** As {@link #writeInts(int[], int, int)}, for longs. */
+  public void writeLongs(long[] values, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeLong(values[i]);
+    }
+  }
+
+  /** As {@link #writeInts(int[], int, int)}, for floats. */
+  public void writeFloats(float[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeFloat(values[i]);
+    }
+  }
+
+  /** As {@link #writeInts(int[], int, int)}, for doubles. */
+  public void writeDoubles(double[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeDouble(values[i]);
+    }
+  }
+
+  /** As {@link #writeInts(int[], int, int)}, for booleans. */
+  public void writeBooleans(boolean[] values, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      startItem();
+      writeBoolean(values[i]);
+    }
+  }
+
   /**
    * Call this method to finish writing an array.
    * See {@link #writeArrayStart} for usage information.
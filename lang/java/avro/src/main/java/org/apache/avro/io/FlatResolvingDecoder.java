@@ -0,0 +1,420 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.apache.avro.io.parsing.FlatGrammar.NONE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.parsing.FlatGrammar;
+import org.apache.avro.io.parsing.FlatParser;
+import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
+import org.apache.avro.io.parsing.Symbol;
+import org.apache.avro.util.Utf8;
+
+/**
+ * A {@link ResolvingDecoder} driven by a {@link FlatParser} over the
+ * resolving grammar compiled into a {@link FlatGrammar}, rather than by the
+ * {@link Symbol} tree. It behaves exactly like its superclass.
+ * <p/>
+ * Use {@link DecoderFactory#configureFlatGrammar(boolean)} to select it.
+ */
+final class FlatResolvingDecoder extends ResolvingDecoder
+    implements FlatParser.ActionHandler {
+
+  private final FlatParser flat;
+  private final FlatGrammar grammar;
+  private Decoder backup;
+
+  FlatResolvingDecoder(Schema writer, Schema reader, Decoder in)
+      throws IOException {
+    this(ResolvingGrammarGenerator.getOrCreateFlat(writer, reader), in);
+  }
+
+  private FlatResolvingDecoder(FlatGrammar grammar, Decoder in) {
+    // no Symbol parser is built: every method that uses it is overridden
+    this.grammar = grammar;
+    this.flat = new FlatParser(grammar, this, this);
+    this.in = in;
+    this.backup = in;
+  }
+
+  @Override
+  public ValidatingDecoder configure(Decoder in) throws IOException {
+    flat.reset();
+    this.in = in;
+    this.backup = in;
+    return this;
+  }
+
+  @Override
+  Symbol.FieldOrderAction readFieldOrderAction() throws IOException {
+    return (Symbol.FieldOrderAction)
+        grammar.symbol(flat.advance(FlatGrammar.FIELD_ACTION));
+  }
+
+  @Override
+  void processImplicitActions() throws IOException {
+    flat.processImplicitActions();
+  }
+
+  @Override
+  boolean itemsAre(Symbol terminal) {
+    return false;                     // the symbol parser is not advanced
+  }
+
+  @Override
+  public void readNull() throws IOException {
+    flat.advance(FlatGrammar.NULL);
+    in.readNull();
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    flat.advance(FlatGrammar.BOOLEAN);
+    return in.readBoolean();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    flat.advance(FlatGrammar.INT);
+    return in.readInt();
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    int actual = flat.advance(FlatGrammar.LONG);
+    if (actual == FlatGrammar.INT) {
+      return in.readInt();
+    } else if (actual == FlatGrammar.DOUBLE) {
+      return (long) in.readDouble();
+    } else {
+      assert actual == FlatGrammar.LONG;
+      return in.readLong();
+    }
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    int actual = flat.advance(FlatGrammar.FLOAT);
+    if (actual == FlatGrammar.INT) {
+      return (float) in.readInt();
+    } else if (actual == FlatGrammar.LONG) {
+      return (float) in.readLong();
+    } else {
+      assert actual == FlatGrammar.FLOAT;
+      return in.readFloat();
+    }
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    int actual = flat.advance(FlatGrammar.DOUBLE);
+    if (actual == FlatGrammar.INT) {
+      return (double) in.readInt();
+    } else if (actual == FlatGrammar.LONG) {
+      return (double) in.readLong();
+    } else if (actual == FlatGrammar.FLOAT) {
+      return (double) in.readFloat();
+    } else {
+      assert actual == FlatGrammar.DOUBLE;
+      return in.readDouble();
+    }
+  }
+
+  @Override
+  public Utf8 readString(Utf8 old) throws IOException {
+    if (flat.advance(FlatGrammar.STRING) == FlatGrammar.BYTES) {
+      return new Utf8(in.readBytes(null).array());
+    } else {
+      return in.readString(old);
+    }
+  }
+
+  @Override
+  public String readString() throws IOException {
+    if (flat.advance(FlatGrammar.STRING) == FlatGrammar.BYTES) {
+      return new String(in.readBytes(null).array(), StandardCharsets.UTF_8);
+    } else {
+      return in.readString();
+    }
+  }
+
+  @Override
+  public void skipString() throws IOException {
+    if (flat.advance(FlatGrammar.STRING) == FlatGrammar.BYTES) {
+      in.skipBytes();
+    } else {
+      in.skipString();
+    }
+  }
+
+  @Override
+  public ByteBuffer readBytes(ByteBuffer old) throws IOException {
+    if (flat.advance(FlatGrammar.BYTES) == FlatGrammar.STRING) {
+      Utf8 s = in.readString(null);
+      return ByteBuffer.wrap(s.getBytes(), 0, s.getByteLength());
+    } else {
+      return in.readBytes(old);
+    }
+  }
+
+  @Override
+  public void skipBytes() throws IOException {
+    if (flat.advance(FlatGrammar.BYTES) == FlatGrammar.STRING) {
+      in.skipString();
+    } else {
+      in.skipBytes();
+    }
+  }
+
+  private void checkFixed(int size) throws IOException {
+    flat.advance(FlatGrammar.FIXED);
+    int expected = grammar.arg0(flat.popSymbol());
+    if (size != expected) {
+      throw new AvroTypeException(
+        "Incorrect length for fixed binary: expected " +
+        expected + " but received " + size + " bytes.");
+    }
+  }
+
+  @Override
+  public void readFixed(byte[] bytes, int start, int len) throws IOException {
+    checkFixed(len);
+    in.readFixed(bytes, start, len);
+  }
+
+  @Override
+  public void skipFixed(int length) throws IOException {
+    checkFixed(length);
+    in.skipFixed(length);
+  }
+
+  @Override
+  protected void skipFixed() throws IOException {
+    flat.advance(FlatGrammar.FIXED);
+    in.skipFixed(grammar.arg0(flat.popSymbol()));
+  }
+
+  @Override
+  public int readEnum() throws IOException {
+    flat.advance(FlatGrammar.ENUM);
+    Symbol.EnumAdjustAction top =
+        (Symbol.EnumAdjustAction) grammar.symbol(flat.popSymbol());
+    int n = in.readEnum();
+    if (top.noAdjustments) return n;
+    Object o = top.adjustments[n];
+    if (o instanceof Integer) {
+      return ((Integer) o).intValue();
+    } else {
+      throw new AvroTypeException((String) o);
+    }
+  }
+
+  @Override
+  public long readArrayStart() throws IOException {
+    flat.advance(FlatGrammar.ARRAY_START);
+    long result = in.readArrayStart();
+    if (result == 0) {
+      flat.advance(FlatGrammar.ARRAY_END);
+    }
+    return result;
+  }
+
+  @Override
+  public long arrayNext() throws IOException {
+    flat.processTrailingImplicitActions();
+    long result = in.arrayNext();
+    if (result == 0) {
+      flat.advance(FlatGrammar.ARRAY_END);
+    }
+    return result;
+  }
+
+  @Override
+  public long skipArray() throws IOException {
+    flat.advance(FlatGrammar.ARRAY_START);
+    for (long c = in.skipArray(); c != 0; c = in.skipArray()) {
+      while (c-- > 0) {
+        flat.skipRepeater();
+      }
+    }
+    flat.advance(FlatGrammar.ARRAY_END);
+    return 0;
+  }
+
+  @Override
+  public long readMapStart() throws IOException {
+    flat.advance(FlatGrammar.MAP_START);
+    long result = in.readMapStart();
+    if (result == 0) {
+      flat.advance(FlatGrammar.MAP_END);
+    }
+    return result;
+  }
+
+  @Override
+  public long mapNext() throws IOException {
+    flat.processTrailingImplicitActions();
+    long result = in.mapNext();
+    if (result == 0) {
+      flat.advance(FlatGrammar.MAP_END);
+    }
+    return result;
+  }
+
+  @Override
+  public long skipMap() throws IOException {
+    flat.advance(FlatGrammar.MAP_START);
+    for (long c = in.skipMap(); c != 0; c = in.skipMap()) {
+      while (c-- > 0) {
+        flat.skipRepeater();
+      }
+    }
+    flat.advance(FlatGrammar.MAP_END);
+    return 0;
+  }
+
+  @Override
+  public int readIndex() throws IOException {
+    flat.advance(FlatGrammar.UNION);
+    int top = flat.popSymbol();
+    int result;
+    if (grammar.op(top) == FlatGrammar.OP_UNION_ADJUST) {
+      result = grammar.arg0(top);
+      top = grammar.arg1(top);
+    } else {
+      result = in.readIndex();
+      top = grammar.branch(top, result);
+    }
+    flat.pushSymbol(top);
+    return result;
+  }
+
+  @Override
+  public int doAction(int input, int top) throws IOException {
+    switch (grammar.op(top)) {
+    case FlatGrammar.OP_FIELD_ORDER:
+      return input == FlatGrammar.FIELD_ACTION ? top : NONE;
+    case FlatGrammar.OP_RESOLVE:
+      if (grammar.arg1(top) != input) {
+        throw new AvroTypeException("Found " + grammar.symbol(grammar.arg1(top))
+            + " while looking for "
+            + (input == NONE ? null : grammar.symbol(input)));
+      }
+      return grammar.arg0(top);
+    case FlatGrammar.OP_SKIP:
+      flat.skipSymbol(grammar.arg0(top));
+      return NONE;
+    case FlatGrammar.OP_WRITER_UNION:
+      flat.pushSymbol(grammar.branch(flat.popSymbol(), in.readIndex()));
+      return NONE;
+    case FlatGrammar.OP_ERROR:
+      throw new AvroTypeException(((Symbol.ErrorAction) grammar.symbol(top)).msg);
+    case FlatGrammar.OP_DEFAULT_START:
+      backup = in;
+      in = DecoderFactory.get().binaryDecoder(
+          ((Symbol.DefaultStartAction) grammar.symbol(top)).contents, null);
+      return NONE;
+    case FlatGrammar.OP_DEFAULT_END:
+      in = backup;
+      return NONE;
+    default:
+      throw new AvroTypeException("Unknown action: " + grammar.symbol(top));
+    }
+  }
+
+  @Override
+  public void skipAction() throws IOException {
+    int top = flat.popSymbol();
+    switch (grammar.op(top)) {
+    case FlatGrammar.OP_RESOLVE:
+      flat.pushSymbol(grammar.arg0(top));
+      break;
+    case FlatGrammar.OP_SKIP:
+      flat.pushSymbol(grammar.arg0(top));
+      break;
+    case FlatGrammar.OP_WRITER_UNION:
+      flat.pushSymbol(grammar.branch(flat.popSymbol(), in.readIndex()));
+      break;
+    case FlatGrammar.OP_ERROR:
+      throw new AvroTypeException(((Symbol.ErrorAction) grammar.symbol(top)).msg);
+    case FlatGrammar.OP_DEFAULT_START:
+      backup = in;
+      in = DecoderFactory.get().binaryDecoder(
+          ((Symbol.DefaultStartAction) grammar.symbol(top)).contents, null);
+      break;
+    case FlatGrammar.OP_DEFAULT_END:
+      in = backup;
+      break;
+    default:
+      break;
+    }
+  }
+
+  @Override
+  public void skipTopSymbol() throws IOException {
+    switch (flat.topSymbol()) {
+    case FlatGrammar.NULL:
+      readNull();
+      break;
+    case FlatGrammar.BOOLEAN:
+      readBoolean();
+      break;
+    case FlatGrammar.INT:
+      readInt();
+      break;
+    case FlatGrammar.LONG:
+      readLong();
+      break;
+    case FlatGrammar.FLOAT:
+      readFloat();
+      break;
+    case FlatGrammar.DOUBLE:
+      readDouble();
+      break;
+    case FlatGrammar.STRING:
+      skipString();
+      break;
+    case FlatGrammar.BYTES:
+      skipBytes();
+      break;
+    case FlatGrammar.ENUM:
+      readEnum();
+      break;
+    case FlatGrammar.FIXED:
+      skipFixed();
+      break;
+    case FlatGrammar.UNION:
+      readIndex();
+      break;
+    case FlatGrammar.ARRAY_START:
+      skipArray();
+      break;
+    case FlatGrammar.MAP_START:
+      skipMap();
+      break;
+    default:
+      break;
+    }
+  }
+}
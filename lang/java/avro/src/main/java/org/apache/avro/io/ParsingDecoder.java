@@ -34,6 +34,12 @@ public abstract class ParsingDecoder extends Decoder
     this.parser = new SkipParser(root, this, this);
   }
 
+  /** For decoders that drive a parser of their own: {@link #parser} is null
+   * and every method that uses it must be overridden. */
+  ParsingDecoder() {
+    this.parser = null;
+  }
+
   protected abstract void skipFixed() throws IOException;
 
   @Override
@@ -63,6 +63,11 @@ public class ResolvingDecoder extends ValidatingDecoder {
     super((Symbol) resolver, in);
   }
 
+  /** See {@link ParsingDecoder#ParsingDecoder()}. Such decoders override
+   * {@link #readFieldOrderAction()} and {@link #processImplicitActions()}. */
+  ResolvingDecoder() {
+  }
+
   /**
    * Produces an opaque resolver that can be used to construct a new
    * {@link ResolvingDecoder#ResolvingDecoder(Object, Decoder)}. The
@@ -122,8 +127,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
    *
    */
   public final Schema.Field[] readFieldOrder() throws IOException {
-    return ((Symbol.FieldOrderAction) parser.advance(Symbol.FIELD_ACTION)).
-      fields;
+    return readFieldOrderAction().fields;
   }
 
   /**
@@ -132,11 +136,15 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * (all) of its fields in the order specified by its own schema (useful for optimizations).
    */
   public final Schema.Field[] readFieldOrderIfDiff() throws IOException {
-    Symbol.FieldOrderAction top
-            = (Symbol.FieldOrderAction) parser.advance(Symbol.FIELD_ACTION);
+    Symbol.FieldOrderAction top = readFieldOrderAction();
     return (top.noReorder ? null : top.fields);
   }
 
+  /** Advances to the field order action of the record about to be read. */
+  Symbol.FieldOrderAction readFieldOrderAction() throws IOException {
+    return (Symbol.FieldOrderAction) parser.advance(Symbol.FIELD_ACTION);
+  }
+
   /**
    * Consume any more data that has been written by the writer but not
    * needed by the reader so that the the underlying decoder is in proper
@@ -153,6 +161,11 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * @throws IOException
    */
   public final void drain() throws IOException {
+    processImplicitActions();
+  }
+
+  /** Processes the implicit actions left before the next datum. */
+  void processImplicitActions() throws IOException {
     parser.processImplicitActions();
   }
 
@@ -52,6 +52,10 @@ public class ValidatingDecoder extends ParsingDecoder
     this(ValidatingGrammarGenerator.getRootSymbol(schema), in);
   }
 
+  /** See {@link ParsingDecoder#ParsingDecoder()}. */
+  ValidatingDecoder() {
+  }
+
 
   /** Re-initialize, reading from a new underlying Decoder. */
   public ValidatingDecoder configure(Decoder in) throws IOException {
@@ -188,6 +192,64 @@ public class ValidatingDecoder extends ParsingDecoder
     return result;
   }
 
+  /** Returns true if the next items are all of a single terminal, as for an
+   * array of a primitive type that needs no resolution. The parser is then
+   * back in the same state after each item, so the items can be read from
+   * the underlying decoder without advancing it. */
+  boolean itemsAre(Symbol terminal) {
+    Symbol top = parser.topSymbol();
+    return top.kind == Symbol.Kind.REPEATER
+      && top.production.length == 2 && top.production[1] == terminal;
+  }
+
+  @Override
+  public void readInts(int[] values, int off, int len) throws IOException {
+    if (itemsAre(Symbol.INT)) {
+      in.readInts(values, off, len);
+    } else {
+      super.readInts(values, off, len);
+    }
+  }
+
+  @Override
+  public void readLongs(long[] values, int off, int len) throws IOException {
+    if (itemsAre(Symbol.LONG)) {
+      in.readLongs(values, off, len);
+    } else {
+      super.readLongs(values, off, len);
+    }
+  }
+
+  @Override
+  public void readFloats(float[] values, int off, int len)
+    throws IOException {
+    if (itemsAre(Symbol.FLOAT)) {
+      in.readFloats(values, off, len);
+    } else {
+      super.readFloats(values, off, len);
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] values, int off, int len)
+    throws IOException {
+    if (itemsAre(Symbol.DOUBLE)) {
+      in.readDoubles(values, off, len);
+    } else {
+      super.readDoubles(values, off, len);
+    }
+  }
+
+  @Override
+  public void readBooleans(boolean[] values, int off, int len)
+    throws IOException {
+    if (itemsAre(Symbol.BOOLEAN)) {
+      in.readBooleans(values, off, len);
+    } else {
+      super.readBooleans(values, off, len);
+    }
+  }
+
   @Override
   public long skipArray() throws IOException {
     parser.advance(Symbol.ARRAY_START);
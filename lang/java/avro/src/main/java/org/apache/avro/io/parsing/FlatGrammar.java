@@ -0,0 +1,286 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io.parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A grammar compiled from a {@link Symbol} tree into flat integer arrays, to
+ * be interpreted by a {@link FlatParser}.
+ *
+ * <p>Every symbol reachable from the root gets an integer id. The terminal
+ * symbols have fixed ids (see {@link #NULL} and friends) so that decoders can
+ * pass them as constants. For each id the program holds {@link #STRIDE} ints:
+ * the opcode, two opcode specific arguments and the offset of the production
+ * in the code array. Productions are stored length prefixed and, like
+ * {@link Symbol#production}, in the reverse order of the grammar so that they
+ * can be copied straight onto the parser stack. The original symbols are kept
+ * in a side table for the payload of actions and for error messages.
+ */
+public final class FlatGrammar {
+
+  /** The ids of the terminal symbols, shared by all grammars. */
+  public static final int NULL = 0;
+  public static final int BOOLEAN = 1;
+  public static final int INT = 2;
+  public static final int LONG = 3;
+  public static final int FLOAT = 4;
+  public static final int DOUBLE = 5;
+  public static final int STRING = 6;
+  public static final int BYTES = 7;
+  public static final int FIXED = 8;
+  public static final int ENUM = 9;
+  public static final int UNION = 10;
+  public static final int ARRAY_START = 11;
+  public static final int ARRAY_END = 12;
+  public static final int MAP_START = 13;
+  public static final int MAP_END = 14;
+  public static final int ITEM_END = 15;
+  public static final int FIELD_ACTION = 16;
+  public static final int MAP_KEY_MARKER = 17;
+
+  /** The input passed to action handlers when no terminal is sought. */
+  public static final int NONE = -1;
+
+  private static final Symbol[] TERMINALS = {
+    Symbol.NULL, Symbol.BOOLEAN, Symbol.INT, Symbol.LONG, Symbol.FLOAT,
+    Symbol.DOUBLE, Symbol.STRING, Symbol.BYTES, Symbol.FIXED, Symbol.ENUM,
+    Symbol.UNION, Symbol.ARRAY_START, Symbol.ARRAY_END, Symbol.MAP_START,
+    Symbol.MAP_END, Symbol.ITEM_END, Symbol.FIELD_ACTION, Symbol.MAP_KEY_MARKER
+  };
+
+  /** Opcodes of the non-action symbols. */
+  public static final int OP_TERMINAL = 0;
+  public static final int OP_ROOT = 1;
+  public static final int OP_SEQUENCE = 2;
+  /** Argument 0 is the id of the end terminal. */
+  public static final int OP_REPEATER = 3;
+  /** Argument 0 is the offset of the length prefixed branch ids in the code. */
+  public static final int OP_ALTERNATIVE = 4;
+
+  /** Implicit actions, which the parser hands to its action handler. */
+  static final int FIRST_IMPLICIT = 8;
+  public static final int OP_FIELD_ORDER = 8;
+  /** Argument 0 is the writer's symbol, argument 1 the reader's. */
+  public static final int OP_RESOLVE = 9;
+  public static final int OP_WRITER_UNION = 10;
+  public static final int OP_ERROR = 11;
+  public static final int OP_DEFAULT_START = 12;
+  /** Argument 0 is the reader's branch, argument 1 the symbol to parse. */
+  public static final int OP_UNION_ADJUST = 13;
+  /** Any other implicit action, available from {@link #symbol(int)}. */
+  public static final int OP_IMPLICIT = 14;
+
+  /** Trailing implicit actions. */
+  static final int FIRST_TRAILING = 16;
+  /** Argument 0 is the symbol to skip. */
+  public static final int OP_SKIP = 16;
+  public static final int OP_DEFAULT_END = 17;
+  public static final int OP_TRAILING = 18;
+
+  /** Explicit actions, which the decoders pop themselves. */
+  static final int FIRST_EXPLICIT = 24;
+  /** Argument 0 is the size. */
+  public static final int OP_INT_CHECK = 24;
+  /** Argument 0 is the number of reader symbols. */
+  public static final int OP_ENUM_ADJUST = 25;
+  public static final int OP_EXPLICIT = 26;
+
+  static final int STRIDE = 4;
+  static final int OP = 0;
+  static final int ARG0 = 1;
+  static final int ARG1 = 2;
+  static final int PRODUCTION = 3;
+
+  final int[] program;
+  final int[] code;
+  private final Symbol[] symbols;
+  private final int root;
+
+  private FlatGrammar(int[] program, int[] code, Symbol[] symbols, int root) {
+    this.program = program;
+    this.code = code;
+    this.symbols = symbols;
+    this.root = root;
+  }
+
+  /** Returns the id of the root symbol. */
+  public int root() {
+    return root;
+  }
+
+  /** Returns the opcode of the given symbol. */
+  public int op(int id) {
+    return program[id * STRIDE + OP];
+  }
+
+  /** Returns the first argument of the given symbol. */
+  public int arg0(int id) {
+    return program[id * STRIDE + ARG0];
+  }
+
+  /** Returns the second argument of the given symbol. */
+  public int arg1(int id) {
+    return program[id * STRIDE + ARG1];
+  }
+
+  /** Returns the id of branch <tt>index</tt> of the given alternative. */
+  public int branch(int alternative, int index) {
+    int at = program[alternative * STRIDE + ARG0];
+    if (index < 0 || index >= code[at]) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return code[at + 1 + index];
+  }
+
+  /** Returns the symbol the given id was compiled from. */
+  public Symbol symbol(int id) {
+    return symbols[id];
+  }
+
+  /** Returns the printable name of the given id. */
+  String name(int id) {
+    return id == NONE ? "null" : String.valueOf(symbols[id]);
+  }
+
+  /** Returns the number of symbols in this grammar. */
+  public int size() {
+    return symbols.length;
+  }
+
+  /**
+   * Compiles the grammar rooted at <tt>root</tt>, as returned by
+   * {@link ResolvingGrammarGenerator#generate} or
+   * {@link JsonGrammarGenerator#generate}.
+   */
+  public static FlatGrammar compile(Symbol root) {
+    Map<Symbol, Integer> ids = new IdentityHashMap<>();
+    List<Symbol> nodes = new ArrayList<>();
+    for (Symbol t : TERMINALS) {
+      id(t, ids, nodes);
+    }
+    int rootId = id(root, ids, nodes);
+    int[] program = new int[STRIDE * 64];
+    int[] code = new int[64];
+    int codeSize = 0;
+    // nodes grows while we walk it: referenced symbols get an id on first use.
+    for (int i = 0; i < nodes.size(); i++) {
+      Symbol s = nodes.get(i);
+      int[] args = { 0, 0 };
+      int op = opcode(s, args, ids, nodes);
+      int production = -1;
+      if (op == OP_ROOT || op == OP_SEQUENCE || op == OP_REPEATER) {
+        Symbol[] p = s.production;
+        code = ensure(code, codeSize + p.length + 1);
+        production = codeSize;
+        code[codeSize++] = p.length;
+        for (Symbol e : p) {
+          code[codeSize++] = id(e, ids, nodes);
+        }
+      } else if (op == OP_ALTERNATIVE) {
+        Symbol.Alternative a = (Symbol.Alternative) s;
+        code = ensure(code, codeSize + a.symbols.length + 1);
+        args[0] = codeSize;
+        code[codeSize++] = a.symbols.length;
+        for (Symbol e : a.symbols) {
+          code[codeSize++] = id(e, ids, nodes);
+        }
+      }
+      program = ensure(program, (i + 1) * STRIDE);
+      program[i * STRIDE + OP] = op;
+      program[i * STRIDE + ARG0] = args[0];
+      program[i * STRIDE + ARG1] = args[1];
+      program[i * STRIDE + PRODUCTION] = production;
+    }
+    return new FlatGrammar(Arrays.copyOf(program, nodes.size() * STRIDE),
+        Arrays.copyOf(code, codeSize), nodes.toArray(new Symbol[nodes.size()]),
+        rootId);
+  }
+
+  private static int opcode(Symbol s, int[] args, Map<Symbol, Integer> ids,
+      List<Symbol> nodes) {
+    switch (s.kind) {
+    case TERMINAL:
+      return OP_TERMINAL;
+    case ROOT:
+      return OP_ROOT;
+    case SEQUENCE:
+      return OP_SEQUENCE;
+    case REPEATER:
+      args[0] = id(((Symbol.Repeater) s).end, ids, nodes);
+      return OP_REPEATER;
+    case ALTERNATIVE:
+      return OP_ALTERNATIVE;
+    case EXPLICIT_ACTION:
+      if (s instanceof Symbol.EnumAdjustAction) {
+        args[0] = ((Symbol.EnumAdjustAction) s).size;
+        return OP_ENUM_ADJUST;
+      } else if (s instanceof Symbol.IntCheckAction) {
+        args[0] = ((Symbol.IntCheckAction) s).size;
+        return OP_INT_CHECK;
+      }
+      return OP_EXPLICIT;
+    case IMPLICIT_ACTION:
+      if (s instanceof Symbol.FieldOrderAction) {
+        return OP_FIELD_ORDER;
+      } else if (s instanceof Symbol.ResolvingAction) {
+        Symbol.ResolvingAction r = (Symbol.ResolvingAction) s;
+        args[0] = id(r.writer, ids, nodes);
+        args[1] = id(r.reader, ids, nodes);
+        return OP_RESOLVE;
+      } else if (s instanceof Symbol.SkipAction) {
+        args[0] = id(((Symbol.SkipAction) s).symToSkip, ids, nodes);
+        return OP_SKIP;
+      } else if (s instanceof Symbol.WriterUnionAction) {
+        return OP_WRITER_UNION;
+      } else if (s instanceof Symbol.ErrorAction) {
+        return OP_ERROR;
+      } else if (s instanceof Symbol.DefaultStartAction) {
+        return OP_DEFAULT_START;
+      } else if (s == Symbol.DEFAULT_END_ACTION) {
+        return OP_DEFAULT_END;
+      } else if (s instanceof Symbol.UnionAdjustAction) {
+        Symbol.UnionAdjustAction u = (Symbol.UnionAdjustAction) s;
+        args[0] = u.rindex;
+        args[1] = id(u.symToParse, ids, nodes);
+        return OP_UNION_ADJUST;
+      }
+      return ((Symbol.ImplicitAction) s).isTrailing ? OP_TRAILING : OP_IMPLICIT;
+    default:
+      throw new IllegalArgumentException("Unknown symbol kind: " + s.kind);
+    }
+  }
+
+  private static int id(Symbol s, Map<Symbol, Integer> ids, List<Symbol> nodes) {
+    Integer id = ids.get(s);
+    if (id == null) {
+      id = nodes.size();
+      ids.put(s, id);
+      nodes.add(s);
+    }
+    return id;
+  }
+
+  private static int[] ensure(int[] a, int size) {
+    return size <= a.length ? a : Arrays.copyOf(a, Math.max(size, a.length * 2));
+  }
+}
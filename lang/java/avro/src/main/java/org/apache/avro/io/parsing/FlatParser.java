@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io.parsing;
+
+import static org.apache.avro.io.parsing.FlatGrammar.ARG0;
+import static org.apache.avro.io.parsing.FlatGrammar.FIRST_EXPLICIT;
+import static org.apache.avro.io.parsing.FlatGrammar.FIRST_IMPLICIT;
+import static org.apache.avro.io.parsing.FlatGrammar.FIRST_TRAILING;
+import static org.apache.avro.io.parsing.FlatGrammar.OP;
+import static org.apache.avro.io.parsing.FlatGrammar.OP_REPEATER;
+import static org.apache.avro.io.parsing.FlatGrammar.OP_ROOT;
+import static org.apache.avro.io.parsing.FlatGrammar.OP_SEQUENCE;
+import static org.apache.avro.io.parsing.FlatGrammar.OP_TERMINAL;
+import static org.apache.avro.io.parsing.FlatGrammar.PRODUCTION;
+import static org.apache.avro.io.parsing.FlatGrammar.STRIDE;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.AvroTypeException;
+
+/**
+ * The counterpart of {@link SkipParser} for a {@link FlatGrammar}. The stack
+ * holds symbol ids and the symbols are dispatched on their opcode, so that
+ * advancing over a schema touches nothing but two int arrays.
+ */
+public class FlatParser {
+  /**
+   * The clients implement this interface to handle the implicit actions.
+   */
+  public interface ActionHandler {
+    /**
+     * Handle the action <tt>top</tt> when <tt>input</tt> is sought to be
+     * taken off the stack.
+     * @param input The terminal sought, or {@link FlatGrammar#NONE}.
+     * @param top The action at the top of the stack.
+     * @return {@link FlatGrammar#NONE} if advance() is to continue processing
+     * the stack, otherwise the id advance() should return.
+     */
+    int doAction(int input, int top) throws IOException;
+  }
+
+  protected final FlatGrammar grammar;
+  private final int[] program;
+  private final int[] code;
+  private final ActionHandler actionHandler;
+  private final SkipParser.SkipHandler skipHandler;
+  protected int[] stack;
+  protected int pos;
+
+  public FlatParser(FlatGrammar grammar, ActionHandler actionHandler,
+      SkipParser.SkipHandler skipHandler) {
+    this.grammar = grammar;
+    this.program = grammar.program;
+    this.code = grammar.code;
+    this.actionHandler = actionHandler;
+    this.skipHandler = skipHandler;
+    this.stack = new int[16];
+    this.stack[0] = grammar.root();
+    this.pos = 1;
+  }
+
+  public FlatGrammar getGrammar() {
+    return grammar;
+  }
+
+  /**
+   * Expands the top of the stack until it is a terminal and checks it
+   * matches <tt>input</tt>.
+   * @return The terminal at the top of the stack unless an implicit action
+   * resulted in another id, in which case that id is returned.
+   * @see Parser#advance(Symbol)
+   */
+  public final int advance(int input) throws IOException {
+    final int[] program = this.program;
+    for (;;) {
+      int top = stack[--pos];
+      if (top == input) {
+        return top; // A common case
+      }
+      int op = program[top * STRIDE + OP];
+      switch (op) {
+      case OP_TERMINAL:
+        throw new AvroTypeException("Attempt to process a "
+            + grammar.name(input) + " when a "
+            + grammar.name(top) + " was expected.");
+      case OP_REPEATER:
+        if (input == program[top * STRIDE + ARG0]) {
+          return input;
+        }
+        pushProduction(top);
+        break;
+      case OP_ROOT:
+      case OP_SEQUENCE:
+        pushProduction(top);
+        break;
+      default:
+        if (op >= FIRST_IMPLICIT && op < FIRST_EXPLICIT) {
+          int result = actionHandler.doAction(input, top);
+          if (result != FlatGrammar.NONE) {
+            return result;
+          }
+        } else {
+          throw new AvroTypeException("Attempt to process a "
+              + grammar.name(input) + " when a "
+              + grammar.name(top) + " was expected.");
+        }
+      }
+    }
+  }
+
+  /**
+   * Skips data by calling <code>skipXyz</code> or <code>readXyz</code>
+   * methods on the skip handler, until the stack reaches the target level.
+   * @see SkipParser#skipTo(int)
+   */
+  public final void skipTo(int target) throws IOException {
+    while (target < pos) {
+      int top = stack[pos - 1];
+      int op = program[top * STRIDE + OP];
+      if (op == OP_TERMINAL) {
+        skipHandler.skipTopSymbol();
+      } else if (op >= FIRST_IMPLICIT) {
+        skipHandler.skipAction();
+      } else {
+        --pos;
+        pushProduction(top);
+      }
+    }
+  }
+
+  /**
+   * Skips the repeater at the top the stack.
+   */
+  public final void skipRepeater() throws IOException {
+    int target = pos;
+    int repeater = stack[--pos];
+    assert program[repeater * STRIDE + OP] == OP_REPEATER;
+    pushProduction(repeater);
+    skipTo(target);
+  }
+
+  /**
+   * Pushes the given symbol on to the stack and skips it.
+   */
+  public final void skipSymbol(int symToSkip) throws IOException {
+    int target = pos;
+    pushSymbol(symToSkip);
+    skipTo(target);
+  }
+
+  /**
+   * Performs any implicit actions at the top the stack, expanding any
+   * production (other than the root) that may be encountered.
+   * @see Parser#processImplicitActions()
+   */
+  public final void processImplicitActions() throws IOException {
+    while (pos > 1) {
+      int top = stack[pos - 1];
+      int op = program[top * STRIDE + OP];
+      if (op >= FIRST_IMPLICIT && op < FIRST_EXPLICIT) {
+        pos--;
+        actionHandler.doAction(FlatGrammar.NONE, top);
+      } else if (op != OP_TERMINAL) {
+        pos--;
+        pushProduction(top);
+      } else {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Performs any "trailing" implicit actions at the top the stack.
+   */
+  public final void processTrailingImplicitActions() throws IOException {
+    while (pos >= 1) {
+      int top = stack[pos - 1];
+      int op = program[top * STRIDE + OP];
+      if (op >= FIRST_TRAILING && op < FIRST_EXPLICIT) {
+        pos--;
+        actionHandler.doAction(FlatGrammar.NONE, top);
+      } else {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Pushes the production of the given symbol.
+   */
+  public final void pushProduction(int sym) {
+    int p = program[sym * STRIDE + PRODUCTION];
+    int l = code[p];
+    if (pos + l > stack.length) {
+      stack = Arrays.copyOf(stack, Math.max(pos + l, stack.length + (stack.length >> 1)));
+    }
+    System.arraycopy(code, p + 1, stack, pos, l);
+    pos += l;
+  }
+
+  /**
+   * Pops and returns the top symbol from the stack.
+   */
+  public final int popSymbol() {
+    return stack[--pos];
+  }
+
+  /**
+   * Returns the top symbol from the stack.
+   */
+  public final int topSymbol() {
+    return stack[pos - 1];
+  }
+
+  /**
+   * Pushes <tt>sym</tt> on to the stack.
+   */
+  public final void pushSymbol(int sym) {
+    if (pos == stack.length) {
+      stack = Arrays.copyOf(stack, stack.length + (stack.length >> 1));
+    }
+    stack[pos++] = sym;
+  }
+
+  /**
+   * Returns the depth of the stack.
+   */
+  public final int depth() {
+    return pos;
+  }
+
+  public final void reset() {
+    pos = 1;
+  }
+}
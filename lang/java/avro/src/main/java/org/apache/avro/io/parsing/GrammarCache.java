@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io.parsing;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.apache.avro.Fingerprint128;
+import org.apache.avro.Schema;
+import org.apache.avro.util.BoundedCache;
+
+/**
+ * Creates the bounded caches of the grammar generators. They are keyed by
+ * {@link Schema#getFingerprint128()} rather than by the schemas, so that
+ * cached grammars do not pin schemas and lookups do not compare schemas.
+ * All caches share the <tt>avro.symbolCache.maxSize</tt>,
+ * <tt>avro.symbolCache.maxWeight</tt> and <tt>avro.symbolCache.policy</tt>
+ * system properties, see {@link BoundedCache#fromSystemProperties}. The
+ * weight of a grammar is its number of symbols.
+ */
+final class GrammarCache {
+
+  static final String PROPERTY_PREFIX = "avro.symbolCache";
+  static final long DEFAULT_MAX_SIZE = 1024;
+  static final long DEFAULT_MAX_WEIGHT = 1L << 20;
+
+  private GrammarCache() {
+  }
+
+  static <K, V> BoundedCache<K, V> create(ToLongFunction<? super V> weigher) {
+    return BoundedCache.fromSystemProperties(PROPERTY_PREFIX,
+        DEFAULT_MAX_SIZE, DEFAULT_MAX_WEIGHT, weigher);
+  }
+
+  /** Returns the number of distinct symbols reachable from <tt>root</tt>. */
+  static long weigh(Symbol root) {
+    Set<Symbol> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<Symbol> todo = new ArrayDeque<>();
+    todo.push(root);
+    while (!todo.isEmpty()) {
+      Symbol s = todo.pop();
+      if (s == null || !seen.add(s)) {
+        continue;
+      }
+      if (s.production != null) {
+        for (Symbol p : s.production) {
+          todo.push(p);
+        }
+      }
+      if (s instanceof Symbol.Alternative) {
+        for (Symbol b : ((Symbol.Alternative) s).symbols) {
+          todo.push(b);
+        }
+      } else if (s instanceof Symbol.ResolvingAction) {
+        todo.push(((Symbol.ResolvingAction) s).writer);
+        todo.push(((Symbol.ResolvingAction) s).reader);
+      } else if (s instanceof Symbol.SkipAction) {
+        todo.push(((Symbol.SkipAction) s).symToSkip);
+      } else if (s instanceof Symbol.UnionAdjustAction) {
+        todo.push(((Symbol.UnionAdjustAction) s).symToParse);
+      }
+    }
+    return seen.size();
+  }
+
+  /** The key of a grammar resolving a writer's to a reader's schema. */
+  static final class Key {
+    private final Fingerprint128 writer;
+    private final Fingerprint128 reader;
+
+    Key(Schema writer, Schema reader) {
+      this.writer = writer.getFingerprint128();
+      this.reader = reader.getFingerprint128();
+    }
+
+    @Override
+    public int hashCode() {
+      return writer.hashCode() * 31 + reader.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return writer.equals(other.writer) && reader.equals(other.reader);
+    }
+  }
+}
@@ -21,12 +21,12 @@ package org.apache.avro.io.parsing;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
+import org.apache.avro.Fingerprint128;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.util.BoundedCache;
 import static org.apache.avro.io.parsing.ValidatingGrammarGenerator.DISABLE_SYMBOL_CACHE;
 
 /**
@@ -50,12 +50,20 @@ public class JsonGrammarGenerator extends ValidatingGrammarGenerator {
     return IMPL.apply(schema);
   }
 
+  /**
+   * Returns the cache behind {@link #getRootSymbol(Schema)}, to monitor it.
+   */
+  public static BoundedCache<?, Symbol> jsonGrammarCache() {
+    return Cache.ROOT_SYMBOL_CACHE;
+  }
+
   private static final class Cache {
-    private static final ConcurrentMap<Schema, Symbol> ROOT_SYMBOL_CACHE
-            = new ConcurrentHashMap<>(16);
+    private static final BoundedCache<Fingerprint128, Symbol> ROOT_SYMBOL_CACHE
+            = GrammarCache.create(GrammarCache::weigh);
 
     private static Symbol getCachedRootSymbol(final Schema schema) {
-      return ROOT_SYMBOL_CACHE.computeIfAbsent(schema, JsonGrammarGenerator::generateRoot);
+      return ROOT_SYMBOL_CACHE.computeIfAbsent(schema.getFingerprint128(),
+              (x) -> JsonGrammarGenerator.generateRoot(schema));
     }
 
   }
@@ -27,8 +27,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiFunction;
 
 import org.apache.avro.AvroTypeException;
@@ -38,6 +36,7 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import static org.apache.avro.io.parsing.ValidatingGrammarGenerator.DISABLE_SYMBOL_CACHE;
+import org.apache.avro.util.BoundedCache;
 import org.apache.avro.util.internal.Accessor;
 import org.apache.avro.util.internal.Accessor.ResolvingGrammarGeneratorAccessor;
 
@@ -63,10 +62,26 @@ public class ResolvingGrammarGenerator extends ValidatingGrammarGenerator {
             ? ResolvingGrammarGenerator::create : Cache::getCachedSymbol;
 
 
+  private static final BiFunction<Schema, Schema, FlatGrammar> FLAT_IMPL = DISABLE_SYMBOL_CACHE
+            ? ResolvingGrammarGenerator::createFlat : Cache::getCachedFlatGrammar;
+
+
   public static Symbol getOrCreate(Schema writer, Schema reader) {
     return IMPL.apply(writer, reader);
   }
 
+  /**
+   * Returns the resolving grammar for the two schemas compiled into a
+   * {@link FlatGrammar}.
+   */
+  public static FlatGrammar getOrCreateFlat(Schema writer, Schema reader) {
+    return FLAT_IMPL.apply(writer, reader);
+  }
+
+  private static FlatGrammar createFlat(Schema writer, Schema reader) {
+    return FlatGrammar.compile(getOrCreate(writer, reader));
+  }
+
   public static Symbol create(Schema writer, Schema reader) {
     try {
       return INSTANCE.generate(writer, reader);
@@ -76,13 +91,37 @@ public class ResolvingGrammarGenerator extends ValidatingGrammarGenerator {
   }
 
 
+  /**
+   * Returns the cache behind {@link #getOrCreate(Schema, Schema)}, to
+   * monitor it.
+   */
+  public static BoundedCache<?, Symbol> resolvingGrammarCache() {
+    return Cache.ROOT_SYMBOL_CACHE;
+  }
+
+  /**
+   * Returns the cache behind {@link #getOrCreateFlat(Schema, Schema)}, to
+   * monitor it.
+   */
+  public static BoundedCache<?, FlatGrammar> flatGrammarCache() {
+    return Cache.FLAT_GRAMMAR_CACHE;
+  }
+
   private static class Cache {
-    private static final ConcurrentMap<RWSchemas, Symbol> ROOT_SYMBOL_CACHE
-            = new ConcurrentHashMap<>(16);
+    private static final BoundedCache<GrammarCache.Key, Symbol> ROOT_SYMBOL_CACHE
+            = GrammarCache.create(GrammarCache::weigh);
 
     private static Symbol getCachedSymbol(final Schema writer, final Schema reader) {
-      return ROOT_SYMBOL_CACHE.computeIfAbsent(new RWSchemas(writer, reader),
-              (x) ->  ResolvingGrammarGenerator.create(x.getWriter(), x.getReader()));
+      return ROOT_SYMBOL_CACHE.computeIfAbsent(new GrammarCache.Key(writer, reader),
+              (x) ->  ResolvingGrammarGenerator.create(writer, reader));
+    }
+
+    private static final BoundedCache<GrammarCache.Key, FlatGrammar> FLAT_GRAMMAR_CACHE
+            = GrammarCache.create(FlatGrammar::size);
+
+    private static FlatGrammar getCachedFlatGrammar(final Schema writer, final Schema reader) {
+      return FLAT_GRAMMAR_CACHE.computeIfAbsent(new GrammarCache.Key(writer, reader),
+              (x) ->  ResolvingGrammarGenerator.createFlat(writer, reader));
     }
 
   }
@@ -20,12 +20,12 @@ package org.apache.avro.io.parsing;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
+import org.apache.avro.Fingerprint128;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.util.BoundedCache;
 
 /**
  * The class that generates validating grammar.
@@ -48,12 +48,20 @@ public class ValidatingGrammarGenerator {
     return IMPL.apply(schema);
   }
 
+  /**
+   * Returns the cache behind {@link #getRootSymbol(Schema)}, to monitor it.
+   */
+  public static BoundedCache<?, Symbol> validatingGrammarCache() {
+    return Cache.ROOT_SYMBOL_CACHE;
+  }
+
   private static class Cache {
-    private static final ConcurrentMap<Schema, Symbol> ROOT_SYMBOL_CACHE
-            = new ConcurrentHashMap<>(16);
+    private static final BoundedCache<Fingerprint128, Symbol> ROOT_SYMBOL_CACHE
+            = GrammarCache.create(GrammarCache::weigh);
 
     private static Symbol getCachedRootSymbol(final Schema schema) {
-      return ROOT_SYMBOL_CACHE.computeIfAbsent(schema, ValidatingGrammarGenerator::generateRoot);
+      return ROOT_SYMBOL_CACHE.computeIfAbsent(schema.getFingerprint128(),
+              (x) -> ValidatingGrammarGenerator.generateRoot(schema));
     }
 
   }
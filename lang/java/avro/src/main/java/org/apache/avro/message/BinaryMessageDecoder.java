@@ -20,6 +20,7 @@
 package org.apache.avro.message;
 
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaInterner;
 import org.apache.avro.SchemaNormalization;
 import org.apache.avro.generic.GenericData;
 import java.io.IOException;
@@ -123,6 +124,7 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
    * @param writeSchema a {@link Schema} to use when decoding buffers
    */
   public void addSchema(Schema writeSchema) {
+    writeSchema = SchemaInterner.internIfEnabled(writeSchema);
     long fp = SchemaNormalization.parsingFingerprint64(writeSchema);
     codecByFingerprint.put(fp,
         new RawMessageDecoder<>(model, writeSchema, readSchema));
@@ -30,12 +30,8 @@ import org.apache.avro.io.ResolvingDecoder;
 class ArrayAccessor {
 
   static void writeArray(boolean[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeBoolean(data[i]);
-    }
+    out.setItemCount(data.length);
+    out.writeBooleans(data, 0, data.length);
   }
 
   // short, and char arrays are upcast to avro int
@@ -59,39 +55,23 @@ class ArrayAccessor {
   }
 
   static void writeArray(int[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeInt(data[i]);
-    }
+    out.setItemCount(data.length);
+    out.writeInts(data, 0, data.length);
   }
 
   static void writeArray(long[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeLong(data[i]);
-    }
+    out.setItemCount(data.length);
+    out.writeLongs(data, 0, data.length);
   }
 
   static void writeArray(float[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeFloat(data[i]);
-    }
+    out.setItemCount(data.length);
+    out.writeFloats(data, 0, data.length);
   }
 
   static void writeArray(double[] data, Encoder out) throws IOException {
-    int size = data.length;
-    out.setItemCount(size);
-    for (int i = 0; i < size; i++) {
-      out.startItem();
-      out.writeDouble(data[i]);
-    }
+    out.setItemCount(data.length);
+    out.writeDoubles(data, 0, data.length);
   }
 
   static Object readArray(Object array, Class<?> elementType, long l,
@@ -121,10 +101,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readBoolean();
-        index++;
-      }
+      in.readBooleans(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -137,10 +115,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readInt();
-        index++;
-      }
+      in.readInts(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -185,10 +161,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readLong();
-        index++;
-      }
+      in.readLongs(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -201,10 +175,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readFloat();
-        index++;
-      }
+      in.readFloats(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -217,10 +189,8 @@ class ArrayAccessor {
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readDouble();
-        index++;
-      }
+      in.readDoubles(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
@@ -0,0 +1,546 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/**
+ * A {@link FieldAccess} through {@link MethodHandle}s, for when
+ * <tt>sun.misc.Unsafe</tt> is not available. Each field gets a getter and a
+ * setter handle, adapted to take the record as an <tt>Object</tt>, and
+ * primitive fields are read and written with exact invocations of their
+ * primitive type, without boxing.
+ */
+class FieldAccessHandle extends FieldAccess {
+
+  @Override
+  protected FieldAccessor getAccessor(Field field) {
+    AvroEncode enc = field.getAnnotation(AvroEncode.class);
+    if (enc != null)
+      try {
+        return new HandleCustomEncodedField(field, enc.using().newInstance());
+      } catch (Exception e) {
+        throw new AvroRuntimeException("Could not instantiate custom Encoding");
+      }
+    Class<?> c = field.getType();
+    if (c == int.class)
+      return new HandleIntField(field);
+    else if (c == long.class)
+      return new HandleLongField(field);
+    else if (c == byte.class)
+      return new HandleByteField(field);
+    else if (c == float.class)
+      return new HandleFloatField(field);
+    else if (c == double.class)
+      return new HandleDoubleField(field);
+    else if (c == char.class)
+      return new HandleCharField(field);
+    else if (c == boolean.class)
+      return new HandleBooleanField(field);
+    else if (c == short.class)
+      return new HandleShortField(field);
+    else
+      return new HandleObjectField(field);
+  }
+
+  /** Field handles only throw unchecked exceptions. */
+  static RuntimeException rethrow(Throwable t) {
+    if (t instanceof RuntimeException)
+      return (RuntimeException) t;
+    if (t instanceof Error)
+      throw (Error) t;
+    return new AvroRuntimeException(t);
+  }
+
+  abstract static class HandleCachedField extends FieldAccessor {
+    protected final MethodHandle getter;          // (Object)T
+    protected final MethodHandle setter;          // (Object,T)void
+    protected final Field field;
+    protected final boolean isStringable;
+
+    HandleCachedField(Field f) {
+      f.setAccessible(true);
+      Class<?> type = f.getType().isPrimitive() ? f.getType() : Object.class;
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.getter = lookup.unreflectGetter(f)
+          .asType(MethodType.methodType(type, Object.class));
+        this.setter = lookup.unreflectSetter(f)
+          .asType(MethodType.methodType(void.class, Object.class, type));
+      } catch (IllegalAccessException e) {
+        throw new AvroRuntimeException(e);
+      }
+      this.field = f;
+      this.isStringable = f.isAnnotationPresent(Stringable.class);
+    }
+
+    @Override
+    protected Field getField() {
+      return field;
+    }
+
+    @Override
+    protected boolean supportsIO() {
+      return true;
+    }
+
+    @Override
+    protected boolean isStringable() {
+      return isStringable;
+    }
+  }
+
+  final static class HandleIntField extends HandleCachedField {
+    HandleIntField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (int) (Integer) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (int) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      int value = in.readInt();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      int value;
+      try {
+        value = (int) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeInt(value);
+    }
+  }
+
+  final static class HandleFloatField extends HandleCachedField {
+    HandleFloatField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (float) (Float) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (float) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      float value = in.readFloat();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      float value;
+      try {
+        value = (float) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeFloat(value);
+    }
+  }
+
+  final static class HandleShortField extends HandleCachedField {
+    HandleShortField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (short) (Short) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (short) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      short value = (short) in.readInt();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      short value;
+      try {
+        value = (short) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeInt(value);
+    }
+  }
+
+  final static class HandleByteField extends HandleCachedField {
+    HandleByteField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (byte) (Byte) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (byte) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      byte value = (byte) in.readInt();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      byte value;
+      try {
+        value = (byte) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeInt(value);
+    }
+  }
+
+  final static class HandleBooleanField extends HandleCachedField {
+    HandleBooleanField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (boolean) (Boolean) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (boolean) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      boolean value = in.readBoolean();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      boolean value;
+      try {
+        value = (boolean) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeBoolean(value);
+    }
+  }
+
+  final static class HandleCharField extends HandleCachedField {
+    HandleCharField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (char) (Character) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (char) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      char value = (char) in.readInt();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      char value;
+      try {
+        value = (char) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeInt(value);
+    }
+  }
+
+  final static class HandleLongField extends HandleCachedField {
+    HandleLongField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (long) (Long) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (long) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      long value = in.readLong();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      long value;
+      try {
+        value = (long) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeLong(value);
+    }
+  }
+
+  final static class HandleDoubleField extends HandleCachedField {
+    HandleDoubleField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, (double) (Double) value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (double) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      double value = in.readDouble();
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      double value;
+      try {
+        value = (double) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+      out.writeDouble(value);
+    }
+  }
+
+  final static class HandleObjectField extends HandleCachedField {
+    HandleObjectField(Field f) {
+      super(f);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (Object) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected boolean supportsIO() {
+      return false;
+    }
+  }
+
+  final static class HandleCustomEncodedField extends HandleCachedField {
+    private final CustomEncoding<?> encoding;
+
+    HandleCustomEncodedField(Field f, CustomEncoding<?> encoding) {
+      super(f);
+      this.encoding = encoding;
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (Object) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      set(object, encoding.read(in));
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      encoding.write(get(object), out);
+    }
+
+    @Override
+    protected boolean isCustomEncoded() {
+      return true;
+    }
+  }
+}
@@ -19,6 +19,8 @@ package org.apache.avro.reflect;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -37,7 +39,6 @@ import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.AvroRemoteException;
@@ -246,8 +247,10 @@ public class ReflectData extends SpecificData {
     private final Class<?> clazz;
     private final Map<String, FieldAccessor> byName =
         new HashMap<>();
-    //getAccessorsFor is already synchronized, no need to wrap
-    final Map<Schema, FieldAccessor[]> bySchema = new WeakHashMap<>();
+    // weakly keyed by schema, so that lookups need no lock
+    private final ConcurrentHashMap<Object, FieldAccessor[]> bySchema =
+      new ConcurrentHashMap<>();
+    private final ReferenceQueue<Schema> collected = new ReferenceQueue<>();
 
     private ClassAccessorData(Class<?> c) {
       clazz = c;
@@ -267,16 +270,33 @@ public class ReflectData extends SpecificData {
      * Return the field accessors as an array, indexed by the field
      * index of the given schema.
      */
-    private synchronized FieldAccessor[] getAccessorsFor(Schema schema) {
-      //if synchronized is removed from this method, adjust bySchema appropriately
-      FieldAccessor[] result = bySchema.get(schema);
+    private FieldAccessor[] getAccessorsFor(Schema schema) {
+      FieldAccessor[] result = bySchema.get(new SchemaLookup(schema));
       if (result == null) {
+        expunge();
         result = createAccessorsFor(schema);
-        bySchema.put(schema, result);
+        FieldAccessor[] prior =
+          bySchema.putIfAbsent(new SchemaKey(schema, collected), result);
+        if (prior != null) {
+          result = prior;                   // added by another thread
+        }
       }
       return result;
     }
 
+    /** Removes the entries of collected schemas. */
+    private void expunge() {
+      for (Object key; (key = collected.poll()) != null;) {
+        bySchema.remove(key);
+      }
+    }
+
+    /** Returns the number of schemas with accessors not yet collected. */
+    int schemaCount() {
+      expunge();
+      return bySchema.size();
+    }
+
     private FieldAccessor[] createAccessorsFor(Schema schema) {
       List<Schema.Field> avroFields = schema.getFields();
       FieldAccessor[] result = new FieldAccessor[avroFields.size()];
@@ -296,6 +316,55 @@ public class ReflectData extends SpecificData {
     }
   }
 
+  /** A key of {@link ClassAccessorData} entries, which holds its schema
+   * weakly. Keys are equal when their schemas are. */
+  private static final class SchemaKey extends WeakReference<Schema> {
+    private final int hash;
+
+    SchemaKey(Schema schema, ReferenceQueue<Schema> queue) {
+      super(schema, queue);
+      this.hash = schema.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      Schema schema = get();
+      return schema != null && o instanceof SchemaKey
+        && schema.equals(((SchemaKey) o).get());
+    }
+  }
+
+  /** Looks up a {@link SchemaKey} without creating a reference. */
+  private static final class SchemaLookup {
+    private final Schema schema;
+
+    SchemaLookup(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public int hashCode() {
+      return schema.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SchemaKey)) {
+        return false;
+      }
+      Schema other = ((SchemaKey) o).get();
+      return other == schema || schema.equals(other);
+    }
+  }
+
   private ClassAccessorData getClassAccessorData(Class<?> c) {
     return ACCESSOR_CACHE.get(c);
   }
@@ -356,6 +425,12 @@ public class ReflectData extends SpecificData {
     return (datum instanceof Map) && !isNonStringMap(datum);
   }
 
+  /** Maps resolve by the class of their keys, see {@link #isMap(Object)}. */
+  @Override
+  protected boolean resolvesUnionByClass(Class<?> c) {
+    return !Map.class.isAssignableFrom(c) && super.resolvesUnionByClass(c);
+  }
+
   /* Without the Field or Schema corresponding to the datum, it is
    * not possible to accurately find out the non-stringable nature
    * of the key. So we check the class of the keys.
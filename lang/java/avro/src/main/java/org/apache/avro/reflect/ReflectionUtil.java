@@ -33,36 +33,51 @@ class ReflectionUtil {
   private ReflectionUtil() {
   }
 
+  /** The available {@link FieldAccess} implementations, fastest first. */
+  private static final String[][] BACKENDS = {
+    { "unsafe", "org.apache.avro.reflect.FieldAccessUnsafe" },
+    { "handle", "org.apache.avro.reflect.FieldAccessHandle" },
+    { "reflect", "org.apache.avro.reflect.FieldAccessReflect" }
+  };
+
   private static FieldAccess fieldAccess;
   static {
     resetFieldAccess();
   }
+
+  /**
+   * Selects the first functional implementation, starting with the one named
+   * by the <tt>avro.reflect.fieldAccess</tt> system property, if any: one of
+   * <tt>unsafe</tt>, <tt>handle</tt> or <tt>reflect</tt>. Setting
+   * <tt>avro.disable.unsafe</tt> skips <tt>unsafe</tt>.
+   */
   static void resetFieldAccess() {
     // load only one implementation of FieldAccess
     // so it is monomorphic and the JIT can inline
-    FieldAccess access = null;
-    try {
-      if (null == System.getProperty("avro.disable.unsafe")) {
-        FieldAccess unsafeAccess = load(
-            "org.apache.avro.reflect.FieldAccessUnsafe", FieldAccess.class);
-        if (validate(unsafeAccess)) {
-          access = unsafeAccess;
-        }
+    String preferred = System.getProperty("avro.reflect.fieldAccess");
+    int first = 0;
+    for (int i = 0; i < BACKENDS.length; i++) {
+      if (BACKENDS[i][0].equals(preferred)) {
+        first = i;
       }
-    } catch (Throwable ignored) {
     }
-    if (access == null) {
+    if (first == 0 && null != System.getProperty("avro.disable.unsafe")) {
+      first = 1;
+    }
+    FieldAccess access = null;
+    for (int i = first; i < BACKENDS.length && access == null; i++) {
       try {
-        FieldAccess reflectAccess = load(
-            "org.apache.avro.reflect.FieldAccessReflect", FieldAccess.class);
-        if (validate(reflectAccess)) {
-          access = reflectAccess;
+        FieldAccess candidate = load(BACKENDS[i][1], FieldAccess.class);
+        if (validate(candidate)) {
+          access = candidate;
         }
-      } catch (Throwable oops) {
-        throw new AvroRuntimeException(
-            "Unable to load a functional FieldAccess class!");
+      } catch (Throwable ignored) {
       }
     }
+    if (access == null) {
+      throw new AvroRuntimeException(
+          "Unable to load a functional FieldAccess class!");
+    }
     fieldAccess = access;
   }
 
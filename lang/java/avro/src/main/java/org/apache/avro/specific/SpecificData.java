@@ -39,6 +39,7 @@ import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.AvroTypeException;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.util.ClassUtils;
+import org.apache.avro.util.internal.WeakIdentityCache;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
@@ -95,6 +96,12 @@ public class SpecificData extends GenericData {
     stringableClasses.add(java.io.File.class);
   }
 
+  /** Default for {@link #useCustomCoders()}, disable with -Davro.specific.useCustomCoders=false. */
+  private static final boolean USE_CUSTOM_CODERS =
+    Boolean.parseBoolean(System.getProperty("avro.specific.useCustomCoders", "true"));
+
+  private boolean useCustomCoders = USE_CUSTOM_CODERS;
+
   /** For subclasses.  Applications normally use {@link SpecificData#get()}. */
   public SpecificData() {}
 
@@ -121,6 +128,48 @@ public class SpecificData extends GenericData {
   /** Return the singleton instance. */
   public static SpecificData get() { return INSTANCE; }
 
+  /** Returns true if the generated customEncode/customDecode methods of
+   * records are used by {@link SpecificDatumReader} and
+   * {@link SpecificDatumWriter}. */
+  public boolean useCustomCoders() { return useCustomCoders; }
+
+  /** Enables or disables the use of generated customEncode/customDecode
+   * methods. */
+  public void setCustomCoders(boolean flag) { this.useCustomCoders = flag; }
+
+  /** Whether the generated coders of a record class apply to a schema, by
+   * schema instance, for the first record class seen with it. */
+  private final WeakIdentityCache<Schema, SchemaOf> schemaOfCache =
+    new WeakIdentityCache<Schema, SchemaOf>();
+
+  private static final class SchemaOf {
+    private final Class<?> recordClass;
+    private final boolean same;
+
+    SchemaOf(Class<?> recordClass, boolean same) {
+      this.recordClass = recordClass;
+      this.same = same;
+    }
+  }
+
+  /** Returns true if the schema is the one the record class was compiled
+   * with, so that its generated coders can be used.  The comparison is done
+   * once per schema instance. */
+  boolean isSchemaOf(SpecificRecordBase record, Schema schema) {
+    Class<?> c = record.getClass();
+    SchemaOf cached = schemaOfCache.get(schema);
+    if (cached == null) {
+      cached = schemaOfCache.putIfAbsent(schema,
+          new SchemaOf(c, compiledSchemaEquals(record, schema)));
+    }
+    return cached.recordClass == c ? cached.same : compiledSchemaEquals(record, schema);
+  }
+
+  private static boolean compiledSchemaEquals(SpecificRecordBase record, Schema schema) {
+    Schema compiled = record.getSchema();
+    return compiled == schema || compiled.equals(schema);
+  }
+
   @Override
   protected boolean isEnum(Object datum) {
     return datum instanceof Enum || super.isEnum(datum);
@@ -336,6 +385,21 @@ public class SpecificData extends GenericData {
     return super.getSchemaName(datum);
   }
 
+  /** Data are named by their class here and in subclasses, unless they
+   * override {@link #resolvesUnionByClass(Class)}. */
+  @Override
+  protected boolean cachesUnionBranchesByClass() {
+    return true;
+  }
+
+  /** Specific records and fixed hold the schema of their class. */
+  @Override
+  protected boolean resolvesUnionByClass(Class<?> c) {
+    return SpecificRecord.class.isAssignableFrom(c)
+      || SpecificFixed.class.isAssignableFrom(c)
+      || super.resolvesUnionByClass(c);
+  }
+
   /** True iff a class should be serialized with toString(). */
   protected boolean isStringable(Class<?> c) {
     return stringableClasses.contains(c);
@@ -17,14 +17,22 @@
  */
 package org.apache.avro.specific;
 
+import java.io.IOException;
 import javax.annotation.Nullable;
 import org.apache.avro.Schema;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.Batch;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.ResolvingDecoder;
 import org.apache.avro.util.ClassUtils;
 
 /** {@link org.apache.avro.io.DatumReader DatumReader} for generated Java classes. */
 public class SpecificDatumReader<T> extends GenericDatumReader<T> {
+  /** Whether the writer's schema is the reader's, null until computed. */
+  private Boolean writerIsReader;
+
   public SpecificDatumReader() {
     this(null, null, SpecificData.get());
   }
@@ -71,6 +79,76 @@ public class SpecificDatumReader<T> extends GenericDatumReader<T> {
         setExpected(data.getSchema(c));
     }
     super.setSchema(actual);
+    writerIsReader = null;
+  }
+
+  @Override
+  public void setExpected(Schema reader) {
+    super.setExpected(reader);
+    writerIsReader = null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T read(T reuse, Decoder in) throws IOException {
+    // when the data was written with the generated class schema, there is
+    // nothing to resolve and the generated decoder can read the binary directly.
+    Schema expected = getExpected();
+    if (in instanceof BinaryDecoder && expected != null
+        && expected.getType() == Schema.Type.RECORD && getSpecificData().useCustomCoders()) {
+      Boolean same = writerIsReader;
+      if (same == null) {
+        Schema actual = getSchema();
+        same = actual == expected || expected.equals(actual);
+        writerIsReader = same;
+      }
+      if (same) {
+        Object record = getSpecificData().newRecord(reuse, expected);
+        if (record instanceof SpecificRecordBase
+            && ((SpecificRecordBase) record).hasCustomCoders()
+            && getSpecificData().isSchemaOf((SpecificRecordBase) record, expected)) {
+          ((SpecificRecordBase) record).customDecode(in);
+          return (T) record;
+        }
+      }
+    }
+    return super.read(reuse, in);
+  }
+
+  /** Reads each record with {@link #read(Object, Decoder)} when it may be
+   * decoded by its custom coders. */
+  @Override
+  public Batch<T> readBatch(int count, Batch<T> reuse, Decoder in)
+    throws IOException {
+    Schema expected = getExpected();
+    if (!(in instanceof BinaryDecoder) || expected == null
+        || expected.getType() != Schema.Type.RECORD
+        || !getSpecificData().useCustomCoders()) {
+      return super.readBatch(count, reuse, in);
+    }
+    Batch<T> batch = reuse != null ? reuse : new Batch<T>(count);
+    batch.clear();
+    for (int i = 0; i < count; i++) {
+      batch.add(read(batch.reusable(), in));
+    }
+    return batch;
+  }
+
+  @Override
+  protected Object readRecord(Object old, Schema expected, ResolvingDecoder in)
+    throws IOException {
+    SpecificData data = getSpecificData();
+    if (data.useCustomCoders()) {
+      Object record = data.newRecord(old, expected);
+      if (record instanceof SpecificRecordBase
+          && ((SpecificRecordBase) record).hasCustomCoders()
+          && data.isSchemaOf((SpecificRecordBase) record, expected)) {
+        ((SpecificRecordBase) record).customDecode(in);
+        return record;
+      }
+      old = record;
+    }
+    return super.readRecord(old, expected, in);
   }
 
   @Override protected Class findStringClass(Schema schema) {
@@ -50,6 +50,19 @@ public class SpecificDatumWriter<T> extends GenericDatumWriter<T> {
     return (SpecificData) getData();
   }
 
+  @Override
+  protected void writeRecord(Schema schema, Object datum, Encoder out)
+    throws IOException {
+    if (datum instanceof SpecificRecordBase && getSpecificData().useCustomCoders()) {
+      SpecificRecordBase record = (SpecificRecordBase) datum;
+      if (record.hasCustomCoders() && getSpecificData().isSchemaOf(record, schema)) {
+        record.customEncode(out);
+        return;
+      }
+    }
+    super.writeRecord(schema, datum, out);
+  }
+
   @Override
   protected void writeEnum(Schema schema, Object datum, Encoder out)
     throws IOException {
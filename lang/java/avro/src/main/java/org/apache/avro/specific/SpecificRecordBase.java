@@ -24,6 +24,8 @@ import java.io.IOException;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
 
 /** Base class for generated record classes. */
 public abstract class SpecificRecordBase
@@ -67,6 +69,24 @@ public abstract class SpecificRecordBase
     return SpecificData.get().toString(this);
   }
 
+  /** Returns true if the generated class overrides {@link #customEncode} and
+   * {@link #customDecode}. */
+  protected boolean hasCustomCoders() { return false; }
+
+  /** Writes this record to the encoder in the order and representation of
+   * {@link #getSchema()}. Only available when {@link #hasCustomCoders()}. */
+  public void customEncode(Encoder out) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  /** Reads this record from the decoder. The reader's schema must be
+   * {@link #getSchema()}; when the decoder is a
+   * {@link org.apache.avro.io.ResolvingDecoder} the writer's field order is
+   * honored. Only available when {@link #hasCustomCoders()}. */
+  public void customDecode(Decoder in) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void writeExternal(ObjectOutput out)
     throws IOException {
@@ -0,0 +1,315 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A concurrent cache bounded by the number of entries and by their total
+ * weight, with hit, miss and eviction counters.
+ * <p/>
+ * Lookups are lock free. When an insert takes the cache over one of its
+ * bounds, a batch of entries is evicted under a lock, taking the cache back to
+ * about 15/16 of the bounds so that the scan is amortized over many inserts.
+ * The {@link Policy} decides which entries go first. Access times and
+ * frequencies are recorded without synchronization and are therefore
+ * approximate, which is all the eviction heuristics need.
+ */
+public final class BoundedCache<K, V> {
+
+  /** The eviction policies. */
+  public enum Policy {
+    /** Evicts the least recently used entries first. */
+    LRU,
+    /**
+     * W-TinyLFU style: the most recently inserted entries form a window that
+     * is not evicted; the others are evicted least frequently used first, as
+     * estimated by a decaying count-min sketch of all lookups, and least
+     * recently used among equals. One-off lookups therefore cannot flush
+     * entries that are used over and over.
+     */
+    TINY_LFU
+  }
+
+  private static final class Node<V> {
+    final V value;
+    final long weight;
+    final long inserted;
+    volatile long accessed;
+
+    Node(V value, long weight, long time) {
+      this.value = value;
+      this.weight = weight;
+      this.inserted = time;
+      this.accessed = time;
+    }
+  }
+
+  private final ConcurrentMap<K, Node<V>> map = new ConcurrentHashMap<>();
+  private final long maxSize;
+  private final long maxWeight;
+  private final ToLongFunction<? super V> weigher;
+  private final Policy policy;
+  private final FrequencySketch sketch;
+  private final AtomicLong weight = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final Object evictionLock = new Object();
+  private volatile long clock;
+
+  /**
+   * Creates a cache.
+   * @param maxSize The maximum number of entries.
+   * @param maxWeight The maximum total weight of the entries.
+   * @param weigher Computes the weight of a value, once when it is inserted.
+   * @param policy The eviction policy.
+   */
+  public BoundedCache(long maxSize, long maxWeight,
+      ToLongFunction<? super V> weigher, Policy policy) {
+    if (maxSize <= 0 || maxWeight <= 0) {
+      throw new IllegalArgumentException("Cache bounds must be positive: "
+          + maxSize + ", " + maxWeight);
+    }
+    this.maxSize = maxSize;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.policy = policy;
+    this.sketch = policy == Policy.TINY_LFU ? new FrequencySketch(maxSize) : null;
+  }
+
+  /**
+   * Creates a cache configured from the system properties
+   * <tt>prefix.maxSize</tt>, <tt>prefix.maxWeight</tt> and
+   * <tt>prefix.policy</tt> (<tt>LRU</tt> or <tt>TINY_LFU</tt>, the default).
+   */
+  public static <K, V> BoundedCache<K, V> fromSystemProperties(String prefix,
+      long defaultMaxSize, long defaultMaxWeight, ToLongFunction<? super V> weigher) {
+    return new BoundedCache<>(
+        Long.getLong(prefix + ".maxSize", defaultMaxSize),
+        Long.getLong(prefix + ".maxWeight", defaultMaxWeight),
+        weigher,
+        Policy.valueOf(System.getProperty(prefix + ".policy", Policy.TINY_LFU.name())
+            .toUpperCase(Locale.ROOT)));
+  }
+
+  /** Returns the cached value for <tt>key</tt>, or null. */
+  public V getIfPresent(K key) {
+    Node<V> node = map.get(key);
+    record(key, node);
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Returns the cached value for <tt>key</tt>, computing and caching it with
+   * <tt>function</tt> if it is absent. The value is computed outside of the
+   * map, so <tt>function</tt> may itself use this cache; threads that race
+   * for the same key may each compute it, and the first cached is returned.
+   */
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+    Node<V> node = map.get(key);
+    record(key, node);
+    if (node != null) {
+      return node.value;
+    }
+    V value = function.apply(key);
+    node = new Node<>(value, weigher.applyAsLong(value), tick());
+    Node<V> prior = map.putIfAbsent(key, node);
+    if (prior != null) {
+      return prior.value;
+    }
+    if (weight.addAndGet(node.weight) > maxWeight || map.size() > maxSize) {
+      evict();
+    }
+    return value;
+  }
+
+  /** Removes all entries. The counters are kept. */
+  public void invalidateAll() {
+    synchronized (evictionLock) {
+      for (Map.Entry<K, Node<V>> e : map.entrySet()) {
+        if (map.remove(e.getKey(), e.getValue())) {
+          weight.addAndGet(-e.getValue().weight);
+        }
+      }
+    }
+  }
+
+  private void record(K key, Node<V> node) {
+    if (sketch != null) {
+      sketch.increment(key.hashCode());
+    }
+    if (node == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+      node.accessed = tick();
+    }
+  }
+
+  private long tick() {
+    long t = clock + 1; // lost updates only blur the recency order
+    clock = t;
+    return t;
+  }
+
+  private void evict() {
+    synchronized (evictionLock) {
+      if (map.size() <= maxSize && weight.get() <= maxWeight) {
+        return;
+      }
+      long targetSize = maxSize - (maxSize >> 4);
+      long targetWeight = maxWeight - (maxWeight >> 4);
+      List<Map.Entry<K, Node<V>>> candidates = new ArrayList<>(map.entrySet());
+      if (policy == Policy.TINY_LFU) {
+        // Keep the admission window out of the first pass.
+        long window = Math.max(1, maxSize / 100);
+        candidates.sort(Comparator.comparingLong(e -> -e.getValue().inserted));
+        List<Map.Entry<K, Node<V>>> recent =
+            new ArrayList<>(candidates.subList(0, (int) Math.min(window, candidates.size())));
+        candidates = new ArrayList<>(candidates.subList(recent.size(), candidates.size()));
+        candidates.sort(Comparator.<Map.Entry<K, Node<V>>>comparingInt(
+            e -> sketch.frequency(e.getKey().hashCode()))
+            .thenComparingLong(e -> e.getValue().accessed));
+        recent.sort(Comparator.comparingLong(e -> e.getValue().accessed));
+        candidates.addAll(recent);
+      } else {
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().accessed));
+      }
+      for (Map.Entry<K, Node<V>> e : candidates) {
+        if (map.size() <= targetSize && weight.get() <= targetWeight) {
+          break;
+        }
+        if (map.remove(e.getKey(), e.getValue())) {
+          weight.addAndGet(-e.getValue().weight);
+          evictions.increment();
+        }
+      }
+    }
+  }
+
+  /** Returns the number of lookups that found a value. */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /** Returns the number of lookups that did not find a value. */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /** Returns the number of entries evicted to respect the bounds. */
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  /** Returns the number of entries. */
+  public long size() {
+    return map.size();
+  }
+
+  /** Returns the total weight of the entries. */
+  public long weight() {
+    return weight.get();
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  @Override
+  public String toString() {
+    return "BoundedCache{policy=" + policy + ", size=" + size() + "/" + maxSize
+        + ", weight=" + weight() + "/" + maxWeight + ", hits=" + hitCount()
+        + ", misses=" + missCount() + ", evictions=" + evictionCount() + '}';
+  }
+
+  /**
+   * A count-min sketch of 4 rows of int counters, 4 per cache entry and row,
+   * halved every ten increments per cache entry so that old popularity
+   * decays.
+   */
+  private static final class FrequencySketch {
+    private static final int[] SEEDS = {
+      0x97cb3127, 0xb2af4f49, 0x5bd1e995, 0x1b873593
+    };
+    private final int[][] rows;
+    private final int mask;
+    private final long resetAt;
+    private long increments;
+
+    FrequencySketch(long maxSize) {
+      int width = Integer.highestOneBit((int) Math.min(1 << 20, Math.max(16, maxSize * 4)) - 1) << 1;
+      this.rows = new int[SEEDS.length][width];
+      this.mask = width - 1;
+      this.resetAt = maxSize * 10;
+    }
+
+    private static int index(int hash, int seed, int mask) {
+      int h = (hash ^ (hash >>> 16)) * seed;
+      return (h ^ (h >>> 15)) & mask;
+    }
+
+    void increment(int hash) {
+      for (int i = 0; i < rows.length; i++) {
+        rows[i][index(hash, SEEDS[i], mask)]++;
+      }
+      if (++increments >= resetAt) {
+        reset();
+      }
+    }
+
+    int frequency(int hash) {
+      int result = Integer.MAX_VALUE;
+      for (int i = 0; i < rows.length; i++) {
+        result = Math.min(result, rows[i][index(hash, SEEDS[i], mask)]);
+      }
+      return result;
+    }
+
+    private synchronized void reset() {
+      if (increments < resetAt) {
+        return;
+      }
+      for (int[] row : rows) {
+        for (int i = 0; i < row.length; i++) {
+          row[i] >>>= 1;
+        }
+      }
+      increments = 0;
+    }
+  }
+}
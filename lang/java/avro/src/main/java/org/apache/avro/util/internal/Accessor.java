@@ -35,6 +35,10 @@ public class Accessor {
     protected abstract void addProp(JsonProperties props, String name, JsonNode value);
   }
 
+  public abstract static class SchemaAccessor {
+    protected abstract byte[] jsonBytes(Schema schema);
+  }
+
   public abstract static class FieldAccessor {
     protected abstract JsonNode defaultValue(Field field);
 
@@ -55,6 +59,8 @@ public class Accessor {
 
   private static volatile JsonPropertiesAccessor jsonPropertiesAccessor;
 
+  private static volatile SchemaAccessor schemaAccessor;
+
   private static volatile FieldAccessor fieldAccessor;
 
   private static volatile ResolvingGrammarGeneratorAccessor resolvingGrammarGeneratorAccessor;
@@ -65,6 +71,18 @@ public class Accessor {
     jsonPropertiesAccessor = accessor;
   }
 
+  public static void setAccessor(SchemaAccessor accessor) {
+    if (schemaAccessor != null)
+      throw new IllegalStateException("SchemaAccessor already initialized");
+    schemaAccessor = accessor;
+  }
+
+  private static SchemaAccessor schemaAccessor() {
+    if (schemaAccessor == null)
+      ensureLoaded(Schema.class);
+    return schemaAccessor;
+  }
+
   public static void setAccessor(FieldAccessor accessor) {
     if (fieldAccessor != null)
       throw new IllegalStateException("FieldAccessor already initialized");
@@ -101,6 +119,12 @@ public class Accessor {
     jsonPropertiesAccessor.addProp(props, name, value);
   }
 
+  /** Returns the memoized UTF-8 bytes of the JSON form of a schema, which
+   * must not be changed. */
+  public static byte[] jsonBytes(Schema schema) {
+    return schemaAccessor().jsonBytes(schema);
+  }
+
   public static JsonNode defaultValue(Field field) {
     return fieldAccessor.defaultValue(field);
   }
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util.internal;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent map from objects, compared by identity and weakly held, to
+ * values computed from them. Lookups take no lock; the entries of collected
+ * keys are removed as other entries are added.
+ */
+public final class WeakIdentityCache<K, V> {
+  private final ConcurrentHashMap<Object, V> map = new ConcurrentHashMap<>();
+  private final ReferenceQueue<K> collected = new ReferenceQueue<>();
+
+  /** Returns the value cached for a key, or null. */
+  public V get(K key) {
+    return map.get(new Lookup(key));
+  }
+
+  /**
+   * Caches a value for a key unless one is already, and returns the cached
+   * value. Null values are not cached.
+   */
+  public V putIfAbsent(K key, V value) {
+    if (value == null) {
+      return null;
+    }
+    for (Object stale; (stale = collected.poll()) != null;) {
+      map.remove(stale);
+    }
+    V prior = map.putIfAbsent(new Key<K>(key, collected), value);
+    return prior != null ? prior : value;
+  }
+
+  /** Returns the number of entries, including those of keys just collected. */
+  public int size() {
+    return map.size();
+  }
+
+  private static final class Key<K> extends WeakReference<K> {
+    private final int hash;
+
+    Key(K key, ReferenceQueue<K> queue) {
+      super(key, queue);
+      this.hash = System.identityHashCode(key);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      Object key = get();
+      return key != null && o instanceof Key && key == ((Key<?>) o).get();
+    }
+  }
+
+  /** Finds a {@link Key} without creating a reference. */
+  private static final class Lookup {
+    private final Object key;
+
+    Lookup(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key<?>) o).get() == key;
+    }
+  }
+}
@@ -70,6 +70,10 @@ public class TestDataFile {
     r.add(new Object[] { CodecFactory.xzCodec(0) });
     r.add(new Object[] { CodecFactory.xzCodec(1) });
     r.add(new Object[] { CodecFactory.xzCodec(6) });
+    r.add(new Object[] { CodecFactory.zstandardCodec(-1) });
+    r.add(new Object[] { CodecFactory.zstandardCodec(3, true) });
+    r.add(new Object[] { CodecFactory.zstandardCodec(19) });
+    r.add(new Object[] { CodecFactory.lz4Codec() });
     return r;
   }
 
@@ -73,6 +73,14 @@ public class TestDataFileConcat {
             { CodecFactory.xzCodec(2), CodecFactory.nullCodec(), false });
     r.add(new Object[]
             { CodecFactory.nullCodec(), CodecFactory.xzCodec(2), false });
+    r.add(new Object[]
+            { CodecFactory.zstandardCodec(1), CodecFactory.zstandardCodec(5, true), false });
+    r.add(new Object[]
+            { CodecFactory.zstandardCodec(1), CodecFactory.zstandardCodec(5, true), true });
+    r.add(new Object[]
+            { CodecFactory.lz4Codec(), CodecFactory.zstandardCodec(3), true });
+    r.add(new Object[]
+            { CodecFactory.nullCodec(), CodecFactory.lz4Codec(), false });
     return r;
   }
 
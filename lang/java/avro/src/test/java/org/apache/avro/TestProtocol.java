@@ -20,6 +20,11 @@ package org.apache.avro;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
 
 import org.junit.Test;
 
@@ -54,4 +59,27 @@ public class TestProtocol {
     assertNotNull(parsedArrayOfStringProtocol);
     assertEquals(parsedStringProtocol.toString(), parsedArrayOfStringProtocol.toString());
   }
+
+  @Test
+  public void testJsonMemoized() {
+    Protocol p = new Protocol("P", null, "foo");
+    String json = p.toString();
+    assertSame(json, p.toString());
+    assertSame(p.toString(true), p.toString(true));
+    byte[] md5 = p.getMD5();
+
+    p.addProp("a", "1");
+    assertTrue(p.toString().contains("\"a\":\"1\""));
+    assertTrue(p.toString(true).contains("\"a\" : \"1\""));
+    assertFalse(Arrays.equals(md5, p.getMD5()));
+    p.setTypes(Collections.singleton(Schema.createFixed("F", null, "foo", 1)));
+    assertTrue(p.toString().contains("\"F\""));
+
+    // changes to the types are seen too
+    Schema fixed = p.getTypes().iterator().next();
+    md5 = p.getMD5();
+    fixed.addProp("b", "2");
+    assertTrue(p.toString().contains("\"b\":\"2\""));
+    assertFalse(Arrays.equals(md5, p.getMD5()));
+  }
 }
@@ -24,19 +24,30 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import org.apache.avro.Schema.Field;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.Schema.Type;
 import org.junit.Assert;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import org.junit.Test;
 
 public class TestSchema {
@@ -152,6 +163,213 @@ public class TestSchema {
     assertEquals(s2, s3);
   }
 
+  @Test
+  public void testFingerprint64() {
+    String json = "{\"type\":\"record\",\"name\":\"R\",\"fields\":[{\"name\":\"f\",\"type\":\"int\",\"default\":1}]}";
+    Schema s = new Schema.Parser().parse(json);
+    long fp = s.getFingerprint64();
+    assertEquals(SchemaNormalization.fingerprint64(s.toString().getBytes(StandardCharsets.UTF_8)), fp);
+    assertEquals(fp, new Schema.Parser().parse(json).getFingerprint64());
+    // unlike the parsing fingerprint, defaults count
+    Schema other = new Schema.Parser().parse(json.replace("\"default\":1", "\"default\":2"));
+    assertEquals(SchemaNormalization.parsingFingerprint64(s), SchemaNormalization.parsingFingerprint64(other));
+    assertTrue(fp != other.getFingerprint64());
+    s.addProp("p", "v");
+    assertTrue(fp != s.getFingerprint64());
+    assertEquals(SchemaNormalization.fingerprint64(s.toString().getBytes(StandardCharsets.UTF_8)), s.getFingerprint64());
+  }
+
+  @Test
+  public void testFingerprint128() throws Exception {
+    String json = "{\"type\":\"record\",\"name\":\"R\",\"fields\":[{\"name\":\"f\",\"type\":\"int\",\"default\":1}]}";
+    Schema s = new Schema.Parser().parse(json);
+    Fingerprint128 fp = s.getFingerprint128();
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(s.toString().getBytes(StandardCharsets.UTF_8)),
+        fp.toBytes());
+    assertSame(fp, s.getFingerprint128());
+    assertEquals(fp, new Schema.Parser().parse(json).getFingerprint128());
+    assertEquals(fp.hashCode(), new Schema.Parser().parse(json).getFingerprint128().hashCode());
+    assertEquals(32, fp.toString().length());
+    assertEquals(fp, Fingerprint128.of(fp.toBytes()));
+    Schema other = new Schema.Parser().parse(json.replace("\"default\":1", "\"default\":2"));
+    assertNotEquals(fp, other.getFingerprint128());
+    assertEquals(s.getParsingFingerprint128(), other.getParsingFingerprint128());
+    s.addProp("p", "v");
+    assertNotEquals(fp, s.getFingerprint128());
+  }
+
+  @Test
+  public void testParserCache() throws Exception {
+    String json = "{\"type\":\"record\",\"name\":\"R\",\"namespace\":\"n\",\"fields\":["
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\"]}},"
+      + "{\"name\":\"r\",\"type\":[\"null\",\"R\"]}]}";
+    Schema.Parser first = new Schema.Parser().setCacheParsed(true);
+    Schema s = first.parse(json);
+    Schema.Parser second = new Schema.Parser().setCacheParsed(true);
+    assertSame(s, second.parse(json));
+    assertEquals(first.getTypes(), second.getTypes());
+    assertEquals(Arrays.asList("n.R", "n.E"), new ArrayList<>(second.getTypes().keySet()));
+    // later schemas may still refer to the types
+    assertSame(s.getField("e").schema(), second.parse("[\"null\",\"n.E\"]").getTypes().get(1));
+
+    // not for parsers that do not cache, or know other types, or other flags
+    assertNotSame(s, new Schema.Parser().parse(json));
+    assertNotSame(s, new Schema.Parser().setCacheParsed(true).setValidateDefaults(true).parse(json));
+    Schema.Parser other = new Schema.Parser().setCacheParsed(true);
+    other.parse("{\"type\":\"fixed\",\"name\":\"F\",\"size\":1}");
+    assertNotSame(s, other.parse(json));
+    assertEquals(s, other.parse("\"n.R\""));
 
+    // failures are not cached
+    for (int i = 0; i < 2; i++) {
+      try {
+        new Schema.Parser().setCacheParsed(true).parse("{\"type\":\"record\",\"name\":\"X\",\"fields\":[");
+        fail();
+      } catch (SchemaParseException e) {
+        // incomplete
+      }
+    }
+  }
+
+  @Test
+  public void testDataFileSchemaNotShared() throws Exception {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Cached\",\"fields\":[]}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new DataFileWriter<Object>(new GenericDatumWriter<Object>()).create(schema, out).close();
+    DataFileStream<Object> a = new DataFileStream<Object>(
+        new ByteArrayInputStream(out.toByteArray()), new GenericDatumReader<Object>());
+    DataFileStream<Object> b = new DataFileStream<Object>(
+        new ByteArrayInputStream(out.toByteArray()), new GenericDatumReader<Object>());
+    assertEquals(schema, a.getSchema());
+    // unless avro.file.cacheSchemas is set, each stream may change its own
+    assertNotSame(a.getSchema(), b.getSchema());
+    a.getSchema().addProp("p", "v");
+    assertNull(b.getSchema().getProp("p"));
+    a.close();
+    b.close();
+  }
+
+  @Test
+  public void testParsingFingerprints() throws Exception {
+    Schema s = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":[]}");
+    byte[] form = SchemaNormalization.toParsingForm(s).getBytes(StandardCharsets.UTF_8);
+    assertEquals(SchemaNormalization.fingerprint64(form), s.getParsingFingerprint64());
+    assertEquals(s.getParsingFingerprint64(), SchemaNormalization.parsingFingerprint64(s));
+    assertArrayEquals(SchemaNormalization.fingerprint("CRC-64-AVRO", form),
+        SchemaNormalization.parsingFingerprint("CRC-64-AVRO", s));
+    assertArrayEquals(SchemaNormalization.fingerprint("MD5", form),
+        SchemaNormalization.parsingFingerprint("MD5", s));
+    assertArrayEquals(SchemaNormalization.fingerprint("SHA-256", form),
+        SchemaNormalization.parsingFingerprint("SHA-256", s));
+    assertSame(s.getParsingFingerprint128(), SchemaNormalization.parsingFingerprint128(s));
+  }
+
+  @Test
+  public void testFingerprintsOfNestedChanges() throws Exception {
+    Schema s = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"O\",\"fields\":[{\"name\":\"m\",\"type\":"
+        + "{\"type\":\"map\",\"values\":[\"null\",{\"type\":\"record\",\"name\":\"I\","
+        + "\"fields\":[{\"name\":\"u\",\"type\":\"string\"}]}]}}]}");
+    long fingerprint64 = s.getFingerprint64();
+    Fingerprint128 fingerprint128 = s.getFingerprint128();
+    long parsing64 = s.getParsingFingerprint64();
+    Schema inner = s.getField("m").schema().getValueType().getTypes().get(1);
+    LogicalTypes.uuid().addToSchema(inner.getField("u").schema());
+    assertNotEquals(fingerprint64, s.getFingerprint64());
+    assertNotEquals(fingerprint128, s.getFingerprint128());
+    assertEquals(SchemaNormalization.fingerprint128(s.toString().getBytes(StandardCharsets.UTF_8)),
+        s.getFingerprint128());
+    // the parsing form does not cover logical types
+    assertEquals(parsing64, s.getParsingFingerprint64());
+
+    fingerprint128 = s.getFingerprint128();
+    inner.getField("u").addProp("p", "v");
+    assertNotEquals(fingerprint128, s.getFingerprint128());
+    // unchanged schemas keep their memos
+    assertSame(s.getFingerprint128(), s.getFingerprint128());
+  }
+
+  @Test
+  public void testChangesKeepOtherMemos() throws Exception {
+    Schema a = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"A\",\"fields\":[{\"name\":\"f\",\"type\":\"int\"}]}");
+    Schema b = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"B\",\"fields\":[{\"name\":\"f\",\"type\":\"int\"}]}");
+    Schema union = Schema.createUnion(Arrays.asList(Schema.create(Schema.Type.NULL), a));
+    String aJson = a.toString();
+    String bJson = b.toString();
+    String unionJson = union.toString();
+    Fingerprint128 bFingerprint = b.getFingerprint128();
+
+    a.addProp("p", "v");
+    assertNotSame(aJson, a.toString());
+    assertNotSame(unionJson, union.toString());  // contains a
+    assertTrue(union.toString().contains("\"p\":\"v\""));
+    assertSame(bJson, b.toString());             // does not
+    assertSame(bFingerprint, b.getFingerprint128());
+
+    b.getField("f").addProp("q", "w");
+    assertNotSame(bJson, b.toString());
+    unionJson = union.toString();
+    assertSame(unionJson, union.toString());
+  }
+
+  @Test
+  public void testJsonMemoized() throws Exception {
+    Schema s = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"R\",\"fields\":[{\"name\":\"f\",\"type\":\"int\"}]}");
+    String json = s.toString();
+    assertSame(json, s.toString());
+    assertSame(s.toString(true), s.toString(true));
+    assertNotEquals(json, s.toString(true));
+
+    // changes are seen by later calls, including those to fields
+    s.addProp("p", "v");
+    assertNotSame(json, s.toString());
+    assertTrue(s.toString().contains("\"p\":\"v\""));
+    json = s.toString();
+    long fingerprint = SchemaNormalization.fingerprint64(json.getBytes(StandardCharsets.UTF_8));
+    assertEquals(fingerprint, s.getFingerprint64());
+    s.getField("f").addProp("q", "w");
+    assertTrue(s.toString().contains("\"q\":\"w\""));
+    assertTrue(s.toString(true).contains("\"q\" : \"w\""));
+    assertNotEquals(fingerprint, s.getFingerprint64());
+    s.addAlias("A");
+    assertTrue(s.toString().contains("\"aliases\":[\"A\"]"));
+
+    // and so are changes to nested schemas
+    Schema nested = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"O\",\"fields\":[{\"name\":\"a\",\"type\":"
+        + "{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"I\",\"fields\":["
+        + "{\"name\":\"s\",\"type\":\"string\"}]}}}]}");
+    String outer = nested.toString(true);
+    json = nested.toString();
+    Schema inner = nested.getField("a").schema().getElementType();
+    GenericData.setStringType(inner.getField("s").schema(), GenericData.StringType.String);
+    assertNotEquals(json, nested.toString());
+    assertTrue(nested.toString().contains("\"avro.java.string\":\"String\""));
+    assertNotEquals(outer, nested.toString(true));
+    inner.getField("s").addProp("q", "w");
+    assertTrue(nested.toString().contains("\"q\":\"w\""));
+    inner.addAlias("J");
+    assertTrue(nested.toString().contains("\"aliases\":[\"J\"]"));
+    LogicalTypes.uuid().addToSchema(inner.getField("s").schema());
+    assertTrue(nested.toString().contains("\"logicalType\":\"uuid\""));
+
+    // the data file header holds the same bytes
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new DataFileWriter<Object>(new GenericDatumWriter<Object>()).create(s, out).close();
+    DataFileStream<Object> in = new DataFileStream<Object>(
+        new ByteArrayInputStream(out.toByteArray()), new GenericDatumReader<Object>());
+    assertEquals(s.toString(), in.getMetaString("avro.schema"));
+    assertEquals(s, in.getSchema());
+    in.close();
+    out.reset();
+    new DataFileWriter<Object>(new GenericDatumWriter<Object>()).create(nested, out).close();
+    in = new DataFileStream<Object>(
+        new ByteArrayInputStream(out.toByteArray()), new GenericDatumReader<Object>());
+    assertEquals(nested.toString(), in.getMetaString("avro.schema"));
+    in.close();
+  }
 
 }
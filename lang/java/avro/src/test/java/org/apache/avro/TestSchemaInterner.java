@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestSchemaInterner {
+  private static final String JSON =
+    "{\"type\":\"record\",\"name\":\"R\",\"doc\":\"d\",\"fields\":["
+    + "{\"name\":\"f\",\"type\":\"int\",\"default\":1},"
+    + "{\"name\":\"g\",\"type\":[\"null\",\"R\"]}]}";
+
+  @Test
+  public void testIntern() {
+    SchemaInterner pool = new SchemaInterner();
+    Schema s = new Schema.Parser().parse(JSON);
+    assertSame(s, pool.intern(s));
+    assertSame(s, pool.intern(new Schema.Parser().parse(JSON)));
+    assertSame(s, pool.intern(s));
+    assertEquals(1, pool.size());
+  }
+
+  @Test
+  public void testOnlyEqualShared() {
+    SchemaInterner pool = new SchemaInterner();
+    Schema s = pool.intern(new Schema.Parser().parse(JSON));
+    // the same parsing fingerprint, but read differently or documented so
+    Schema other = new Schema.Parser().parse(JSON.replace("\"default\":1", "\"default\":2"));
+    assertSame(other, pool.intern(other));
+    Schema doc = new Schema.Parser().parse(JSON.replace("\"d\"", "\"e\""));
+    assertSame(doc, pool.intern(doc));
+    assertNotSame(s, pool.intern(new Schema.Parser().parse(JSON.replace("\"f\"", "\"h\""))));
+    assertEquals(4, pool.size());
+  }
+
+  @Test
+  public void testCollected() throws InterruptedException {
+    SchemaInterner pool = new SchemaInterner();
+    for (int i = 0; i < 100; i++) {
+      pool.intern(new Schema.Parser().parse(JSON.replace("\"R\"", "\"R" + i + "\"")));
+    }
+    for (int i = 0; i < 20 && pool.size() > 1; i++) {
+      System.gc();
+      Thread.sleep(10);
+      pool.intern(Schema.create(Schema.Type.INT)); // expunges
+    }
+    assertTrue(pool.size() < 100);
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+
+/**
+ * Compares the compression ratio and speed of the codecs on the blocks of a
+ * data file, or of a file of random wide records if none is given.
+ * <p/>
+ * Usage: CodecPerf [-cycles n] [file.avro]
+ */
+public class CodecPerf {
+  private static final Schema WIDE = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"Wide\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},"
+      + "{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\","
+      + "\"symbols\":[\"A\",\"B\",\"C\",\"D\"]}},"
+      + "{\"name\":\"score\",\"type\":\"double\"},"
+      + "{\"name\":\"ratio\",\"type\":\"float\"},"
+      + "{\"name\":\"flag\",\"type\":\"boolean\"},"
+      + "{\"name\":\"count\",\"type\":\"int\"},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"attrs\",\"type\":{\"type\":\"map\",\"values\":\"long\"}},"
+      + "{\"name\":\"note\",\"type\":[\"null\",\"string\"]},"
+      + "{\"name\":\"payload\",\"type\":\"bytes\"}]}");
+
+  private static Map<String, CodecFactory> codecs() {
+    Map<String, CodecFactory> codecs = new LinkedHashMap<String, CodecFactory>();
+    codecs.put("null", CodecFactory.nullCodec());
+    codecs.put("deflate-1", CodecFactory.deflateCodec(1));
+    codecs.put("deflate-6", CodecFactory.deflateCodec(6));
+    codecs.put("snappy", CodecFactory.snappyCodec());
+    codecs.put("bzip2", CodecFactory.bzip2Codec());
+    codecs.put("xz-1", CodecFactory.xzCodec(1));
+    codecs.put("zstandard-1", CodecFactory.zstandardCodec(1));
+    codecs.put("zstandard-3", CodecFactory.zstandardCodec(3));
+    codecs.put("zstandard-9", CodecFactory.zstandardCodec(9));
+    codecs.put("lz4", CodecFactory.lz4Codec());
+    return codecs;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int cycles = 10;
+    File file = null;
+    for (int i = 0; i < args.length; i++) {
+      if ("-cycles".equals(args[i]) && i + 1 < args.length) {
+        cycles = Integer.parseInt(args[++i]);
+      } else if (file == null && !args[i].startsWith("-")) {
+        file = new File(args[i]);
+      } else {
+        System.out.println("Usage: CodecPerf [-cycles n] [file.avro]");
+        System.exit(1);
+      }
+    }
+    List<ByteBuffer> blocks = file == null ? randomBlocks() : readBlocks(file);
+    long size = 0;
+    for (ByteBuffer block : blocks) {
+      size += block.remaining();
+    }
+    System.out.println("Blocks: " + blocks.size() + ", bytes: " + size
+        + ", cycles: " + cycles);
+    System.out.println(String.format("%15s %8s %14s %14s",
+        "codec", "ratio", "compress MB/s", "decomp. MB/s"));
+
+    for (Map.Entry<String, CodecFactory> entry : codecs().entrySet()) {
+      Codec codec = entry.getValue().createInstance();
+      List<ByteBuffer> compressed = new ArrayList<ByteBuffer>();
+      long compressedSize = 0;
+      for (ByteBuffer block : blocks) {
+        ByteBuffer c = copy(codec.compress(block.duplicate()));
+        compressed.add(c);
+        compressedSize += c.remaining();
+        if (!codec.decompress(c.duplicate()).equals(block)) {
+          throw new IOException(entry.getKey() + " did not round trip");
+        }
+      }
+      // warm up, then time
+      run(codec, blocks, compressed, cycles / 2 + 1);
+      long[] t = run(codec, blocks, compressed, cycles);
+      double mb = (double) size * cycles / (1 << 20);
+      System.out.println(String.format("%15s %8.3f %14.1f %14.1f",
+          entry.getKey(), (double) size / compressedSize,
+          mb / (t[0] / 1e9), mb / (t[1] / 1e9)));
+    }
+  }
+
+  /** Returns the nanoseconds spent compressing and decompressing. */
+  private static long[] run(Codec codec, List<ByteBuffer> blocks,
+                            List<ByteBuffer> compressed, int cycles)
+    throws IOException {
+    long sink = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < cycles; i++) {
+      for (ByteBuffer block : blocks) {
+        sink += codec.compress(block.duplicate()).remaining();
+      }
+    }
+    long compressing = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int i = 0; i < cycles; i++) {
+      for (ByteBuffer block : compressed) {
+        sink += codec.decompress(block.duplicate()).remaining();
+      }
+    }
+    long decompressing = System.nanoTime() - start;
+    if (sink == 42) {
+      System.out.print("");
+    }
+    return new long[] { compressing, decompressing };
+  }
+
+  /** Codecs may reuse their output buffers. */
+  private static ByteBuffer copy(ByteBuffer buffer) {
+    ByteBuffer result = ByteBuffer.allocate(buffer.remaining());
+    result.put(buffer.duplicate()).flip();
+    return result;
+  }
+
+  private static List<ByteBuffer> readBlocks(File file) throws IOException {
+    List<ByteBuffer> blocks = new ArrayList<ByteBuffer>();
+    DataFileStream<Object> in = new DataFileStream<Object>(
+        new FileInputStream(file), new GenericDatumReader<Object>());
+    try {
+      while (in.hasNext()) {
+        blocks.add(copy(in.nextBlock()));
+      }
+    } finally {
+      in.close();
+    }
+    return blocks;
+  }
+
+  private static List<ByteBuffer> randomBlocks() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>());
+    writer.create(WIDE, out);
+    for (Object datum : new RandomData(WIDE, 50000, 1)) {
+      writer.append(datum);
+    }
+    writer.close();
+    List<ByteBuffer> blocks = new ArrayList<ByteBuffer>();
+    DataFileStream<Object> in = new DataFileStream<Object>(
+        new SeekableByteArrayInput(out.toByteArray()),
+        new GenericDatumReader<Object>());
+    while (in.hasNext()) {
+      blocks.add(copy(in.nextBlock()));
+    }
+    in.close();
+    return blocks;
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumWriter;
+
+/** Writes the data files read by the tests of this package. */
+final class DataFileTestUtil {
+  static final File DIR
+    = new File(System.getProperty("test.dir", "/tmp"));
+
+  /** A record of a string and a long. */
+  static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"}]}");
+
+  private DataFileTestUtil() {
+  }
+
+  /** The codecs that tests are parameterized with. */
+  static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<Object[]>();
+    r.add(new Object[] { CodecFactory.nullCodec() });
+    r.add(new Object[] { CodecFactory.deflateCodec(1) });
+    r.add(new Object[] { CodecFactory.snappyCodec() });
+    r.add(new Object[] { CodecFactory.xzCodec(1) });
+    return r;
+  }
+
+  /** Returns the random data generated for a schema and seed. */
+  static List<Object> data(Schema schema, int count, long seed) {
+    List<Object> data = new ArrayList<Object>();
+    for (Object datum : new RandomData(schema, count, seed)) {
+      data.add(datum);
+    }
+    return data;
+  }
+
+  /** Returns a writer of generic data. */
+  static DataFileWriter<Object> writer(CodecFactory codec, int syncInterval) {
+    return new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+      .setSyncInterval(syncInterval).setCodec(codec);
+  }
+
+  /** Writes random data to a file in {@link #DIR}. */
+  static File write(String name, Schema schema, CodecFactory codec,
+                    int count, long seed, int syncInterval) throws IOException {
+    return write(writer(codec, syncInterval), name, schema,
+        new RandomData(schema, count, seed));
+  }
+
+  /** Writes data to a file in {@link #DIR} with a writer, then closes it. */
+  static File write(DataFileWriter<Object> writer, String name, Schema schema,
+                    Iterable<?> data) throws IOException {
+    File file = new File(DIR, name);
+    writer.create(schema, file);
+    try {
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+}
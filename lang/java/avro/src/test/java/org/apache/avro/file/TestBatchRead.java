@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Batch;
+import org.apache.avro.io.ColumnBatch;
+import org.junit.Test;
+
+public class TestBatchRead {
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":[\"null\",\"long\"]},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":[\"double\",\"null\"]},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"ns\",\"type\":[\"null\",\"string\"]},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":3}}]}");
+  private static final int COUNT = 1500;
+
+  private static List<Object> expected() {
+    return DataFileTestUtil.data(SCHEMA, COUNT, 13);
+  }
+
+  private static File writeFile() throws IOException {
+    return DataFileTestUtil.write("test-batch-read.avro", SCHEMA,
+        CodecFactory.deflateCodec(1), COUNT, 13, 4096);
+  }
+
+  @Test
+  public void testReadBatch() throws IOException {
+    File file = writeFile();
+    for (boolean compiled : new boolean[] { false, true }) {
+      GenericDatumReader<Object> datumReader = new GenericDatumReader<Object>();
+      datumReader.setCompiled(compiled);
+      List<Object> actual = new ArrayList<Object>();
+      Batch<Object> batch = null;
+      Object first = null;
+      try (DataFileStream<Object> in = new DataFileStream<Object>(
+          new FileInputStream(file), datumReader)) {
+        while ((batch = in.readBatch(100, batch)).size() > 0) {
+          assertTrue(batch.size() <= 100);
+          if (first == null) {
+            first = batch.get(0);
+          } else if (batch.size() == 100) {
+            assertSame(first, batch.get(0));      // reused
+          }
+          for (Object datum : batch) {
+            actual.add(GenericData.get().deepCopy(SCHEMA, datum));
+          }
+        }
+        assertFalse(in.hasNext());
+      }
+      assertEquals(expected(), actual);
+    }
+  }
+
+  @Test
+  public void testMixed() throws IOException {
+    File file = writeFile();
+    List<Object> actual = new ArrayList<Object>();
+    try (DataFileReader<Object> in = new DataFileReader<Object>(
+        file, new GenericDatumReader<Object>())) {
+      in.setReadAhead(2, 2);
+      Batch<Object> batch = null;
+      while (in.hasNext()) {
+        actual.add(in.next());
+        for (Object datum : batch = in.readBatch(7, batch)) {
+          actual.add(GenericData.get().deepCopy(SCHEMA, datum));
+        }
+      }
+    }
+    assertEquals(expected(), actual);
+  }
+
+  @Test
+  public void testColumns() throws IOException {
+    File file = writeFile();
+    assertTrue(ColumnBatch.isFlat(SCHEMA));
+    List<Object> expected = expected();
+    int row = 0;
+    try (DataFileReader<Object> in = new DataFileReader<Object>(
+        file, new GenericDatumReader<Object>())) {
+      ColumnBatch columns = null;
+      while ((columns = in.readColumns(64, columns)).size() > 0) {
+        for (int i = 0; i < columns.size(); i++, row++) {
+          GenericRecord r = (GenericRecord) expected.get(row);
+          assertEquals(r.get("b"), columns.getColumn("b").getBooleans()[i]);
+          assertEquals(((Integer) r.get("i")).longValue(),
+                       columns.getColumn("i").getLongs()[i]);
+          ColumnBatch.Column l = columns.getColumn("l");
+          assertEquals(r.get("l") == null, l.isNull(i));
+          if (r.get("l") != null) {
+            assertEquals(r.get("l"), l.getLongs()[i]);
+          }
+          assertEquals(((Float) r.get("f")).doubleValue(),
+                       columns.getColumn("f").getDoubles()[i], 0);
+          ColumnBatch.Column d = columns.getColumn("d");
+          assertEquals(r.get("d") == null, d.isNull(i));
+          if (r.get("d") != null) {
+            assertEquals((Double) r.get("d"), d.getDoubles()[i], 0);
+          }
+          assertEquals(r.get("s"), columns.getColumn("s").getStrings()[i]);
+          ColumnBatch.Column ns = columns.getColumn("ns");
+          assertEquals(r.get("ns") == null, ns.isNull(i));
+          if (r.get("ns") != null) {
+            assertEquals(r.get("ns"), ns.getStrings()[i]);
+          }
+          assertEquals(r.get("by"), columns.getColumn("by").getBytes()[i]);
+          assertEquals(((GenericData.EnumSymbol) r.get("e")).toString(),
+                       SCHEMA.getField("e").schema().getEnumSymbols().get(
+                           (int) columns.getColumn("e").getLongs()[i]));
+          assertEquals(ByteBuffer.wrap(((GenericData.Fixed) r.get("fx")).bytes()),
+                       columns.getColumn("fx").getBytes()[i]);
+        }
+      }
+      assertNull(columns.getColumn("b").getNulls());
+    }
+    assertEquals(COUNT, row);
+  }
+
+  @Test(expected = AvroRuntimeException.class)
+  public void testNotFlat() {
+    Schema nested = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"N\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"int\"}}]}");
+    assertFalse(ColumnBatch.isFlat(nested));
+    new ColumnBatch(nested);
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+public class TestBlockIndex {
+  private static final File DIR
+    = new File(System.getProperty("test.dir", "/tmp"));
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"n\",\"type\":[\"null\",\"int\"]}]}");
+  private static final int COUNT = 3000;
+
+  private static List<Object> expected() {
+    List<Object> expected = new ArrayList<Object>();
+    for (Object datum : new RandomData(SCHEMA, COUNT, 7)) {
+      expected.add(datum);
+    }
+    return expected;
+  }
+
+  private static File writeFile(String name, DataFileWriter<Object> writer)
+    throws IOException {
+    File file = new File(DIR, name);
+    writer.setSyncInterval(1024).setCodec(CodecFactory.deflateCodec(1));
+    writer.create(SCHEMA, file);
+    try {
+      for (Object datum : expected()) {
+        writer.append(datum);
+      }
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+
+  @Test
+  public void testSeekToRecord() throws IOException {
+    File file = writeFile("test-block-index.avro",
+        new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+        .setBlockIndex("l"));
+    assertTrue(BlockIndex.sidecarFile(file).exists());
+    List<Object> expected = expected();
+    try (DataFileReader<Object> reader = DataFileReader.openIndexed(
+        file, new GenericDatumReader<Object>())) {
+      BlockIndex index = reader.getBlockIndex();
+      assertTrue(index.getBlockCount() > 10);
+      assertEquals(COUNT, index.getRecordCount());
+      for (long r : new long[] { 0, 1, 999, 1000, COUNT - 1, 17, 2500 }) {
+        reader.seekToRecord(r);
+        assertEquals(expected.get((int) r), reader.next());
+      }
+      reader.seekToRecord(COUNT - 2);
+      reader.next();
+      reader.next();
+      assertFalse(reader.hasNext());
+
+      int block = index.getBlockCount() / 2;
+      reader.seekToBlock(block);
+      assertEquals(expected.get((int) index.getFirstRecord(block)),
+                   reader.next());
+      try {
+        reader.seekToRecord(COUNT);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // past the end
+      }
+    }
+  }
+
+  @Test
+  public void testFindBlocks() throws IOException {
+    File file = writeFile("test-block-index-bounds.avro",
+        new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+        .setBlockIndex("l", "s", "n"));
+    List<Object> expected = expected();
+    BlockIndex index = BlockIndex.read(BlockIndex.sidecarFile(file));
+    assertEquals(3, index.getFields().size());
+    for (int b = 0; b < index.getBlockCount(); b++) {
+      long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+      for (long r = index.getFirstRecord(b);
+           r < index.getFirstRecord(b) + index.getRecordCount(b); r++) {
+        long l = (Long) ((GenericRecord) expected.get((int) r)).get("l");
+        min = Math.min(min, l);
+        max = Math.max(max, l);
+      }
+      assertEquals(min, index.getMin(b, "l"));
+      assertEquals(max, index.getMax(b, "l"));
+    }
+
+    long low = 0, high = Long.MAX_VALUE / 2;
+    List<Integer> blocks = index.findBlocks("l", low, high);
+    List<Object> matching = new ArrayList<Object>();
+    try (DataFileReader<Object> reader = new DataFileReader<Object>(
+        file, new GenericDatumReader<Object>())) {
+      reader.setBlockIndex(index);
+      for (int block : blocks) {
+        reader.seekToBlock(block);
+        for (long i = index.getRecordCount(block); i > 0; i--) {
+          GenericRecord r = (GenericRecord) reader.next();
+          long l = (Long) r.get("l");
+          if (l >= low && l <= high) {
+            matching.add(r);
+          }
+        }
+      }
+    }
+    List<Object> all = new ArrayList<Object>();
+    for (Object datum : expected) {
+      long l = (Long) ((GenericRecord) datum).get("l");
+      if (l >= low && l <= high) {
+        all.add(datum);
+      }
+    }
+    assertEquals(all, matching);
+    assertEquals(index.getBlockCount(),
+                 index.findBlocks("s", null, null).size());
+  }
+
+  @Test
+  public void testParallelCompression() throws IOException {
+    File file = writeFile("test-block-index-parallel.avro",
+        new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+        .setCompressionThreads(2, 3).setBlockIndex("l"));
+    List<Object> expected = expected();
+    try (DataFileReader<Object> reader = DataFileReader.openIndexed(
+        file, new GenericDatumReader<Object>())) {
+      for (long r = 0; r < COUNT; r += 97) {
+        reader.seekToRecord(r);
+        assertEquals(expected.get((int) r), reader.next());
+      }
+    }
+  }
+
+  @Test
+  public void testAppendAllFrom() throws IOException {
+    File source = writeFile("test-block-index-source.avro",
+        new DataFileWriter<Object>(new GenericDatumWriter<Object>()));
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+      .setBlockIndex(indexOut, "l").setCodec(CodecFactory.deflateCodec(1));
+    writer.create(SCHEMA, data);
+    writer.append(expected().get(0));
+    try (DataFileStream<Object> in = new DataFileReader<Object>(
+        source, new GenericDatumReader<Object>())) {
+      writer.appendAllFrom(in, false);
+    }
+    writer.close();
+
+    BlockIndex index = BlockIndex.read(
+        new SeekableByteArrayInput(indexOut.toByteArray()));
+    assertEquals(COUNT + 1, index.getRecordCount());
+    List<Object> expected = expected();
+    Object first = ((GenericRecord) expected.get(0)).get("l");
+    assertEquals(first, index.getMin(0, "l"));
+    assertEquals(first, index.getMax(0, "l"));
+    assertNull(index.getMin(1, "l"));              // copied, so unknown
+    try (DataFileReader<Object> reader = new DataFileReader<Object>(
+        new SeekableByteArrayInput(data.toByteArray()),
+        new GenericDatumReader<Object>())) {
+      reader.setBlockIndex(index);
+      reader.seekToRecord(COUNT);
+      assertEquals(expected.get(COUNT - 1), reader.next());
+    }
+  }
+
+  @Test
+  public void testOtherFile() throws IOException {
+    File file = writeFile("test-block-index-other.avro",
+        new DataFileWriter<Object>(new GenericDatumWriter<Object>()));
+    File indexed = writeFile("test-block-index-counts.avro",
+        new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+        .setBlockIndex());
+    try (DataFileReader<Object> reader = new DataFileReader<Object>(
+        file, new GenericDatumReader<Object>())) {
+      reader.setBlockIndex(BlockIndex.read(BlockIndex.sidecarFile(indexed)));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // sync markers differ
+    }
+  }
+
+  @Test
+  public void testIndexClosedOnFailure() throws IOException {
+    final boolean[] closed = new boolean[1];
+    ByteArrayOutputStream indexOut = new ByteArrayOutputStream() {
+      @Override
+      public void close() {
+        closed[0] = true;
+      }
+    };
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+      .setBlockIndex(indexOut, "l");
+    writer.create(SCHEMA, new ByteArrayOutputStream() {
+        @Override
+        public void close() throws IOException {
+          throw new IOException("failed");
+        }
+      });
+    writer.append(expected().get(0));
+    try {
+      writer.close();
+      fail();
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertTrue(closed[0]);
+    assertEquals(0, indexOut.size());             // no index of a failed file
+    writer.close();                               // already closed
+  }
+
+  @Test(expected = AvroRuntimeException.class)
+  public void testNoField() throws IOException {
+    new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+      .setBlockIndex(new ByteArrayOutputStream(), "x")
+      .create(SCHEMA, new ByteArrayOutputStream());
+  }
+}
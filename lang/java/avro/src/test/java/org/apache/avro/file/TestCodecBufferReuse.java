@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestCodecBufferReuse {
+  private final CodecFactory factory;
+
+  public TestCodecBufferReuse(CodecFactory factory) {
+    this.factory = factory;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<Object[]>();
+    r.add(new Object[] { CodecFactory.deflateCodec(6) });
+    r.add(new Object[] { CodecFactory.snappyCodec() });
+    r.add(new Object[] { CodecFactory.bzip2Codec() });
+    r.add(new Object[] { CodecFactory.xzCodec(1) });
+    r.add(new Object[] { CodecFactory.zstandardCodec(3, true) });
+    r.add(new Object[] { CodecFactory.lz4Codec() });
+    return r;
+  }
+
+  private static ByteBuffer block(int size, long seed) {
+    Random random = new Random(seed);
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) ('a' + random.nextInt(4));
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    Codec codec = factory.createInstance();
+    ByteBuffer compressed = null;
+    ByteBuffer decompressed = null;
+    // growing and shrinking blocks, reusing the same two buffers
+    int[] sizes = { 10, 100000, 5000, 0, 200000, 7 };
+    for (int i = 0; i < sizes.length; i++) {
+      ByteBuffer in = block(sizes[i], i);
+      compressed = codec.compress(in.duplicate(), compressed);
+      assertEquals(0, compressed.position());
+      decompressed = codec.decompress(compressed, decompressed);
+      assertEquals(in, decompressed);
+      assertEquals(in, codec.decompress(compressed));
+    }
+  }
+
+  @Test
+  public void testLargeEnoughBufferIsReused() throws IOException {
+    Codec codec = factory.createInstance();
+    ByteBuffer in = block(50000, 1);
+    ByteBuffer compressed = codec.compress(in.duplicate(), null);
+    ByteBuffer out = ByteBuffer.allocate(in.remaining() * 2);
+    assertSame(out, codec.decompress(compressed, out));
+    assertEquals(in, out);
+  }
+
+  @Test
+  public void testSlicedBuffers() throws IOException {
+    Codec codec = factory.createInstance();
+    ByteBuffer in = block(20000, 2);
+    // input and output at non-zero array offsets
+    ByteBuffer slicedIn = ByteBuffer.allocate(in.remaining() + 7);
+    slicedIn.position(7);
+    slicedIn = slicedIn.slice();
+    slicedIn.put(in.duplicate()).flip();
+    ByteBuffer out = ByteBuffer.allocate(in.remaining() * 3);
+    out.position(11);
+    out = out.slice();
+    ByteBuffer compressed = codec.compress(slicedIn, out);
+    ByteBuffer copy = ByteBuffer.allocate(compressed.remaining());
+    copy.put(compressed.duplicate()).flip();
+    assertEquals(in, codec.decompress(copy, out));
+  }
+}
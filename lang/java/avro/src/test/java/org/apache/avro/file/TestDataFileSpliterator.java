@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.avro.generic.GenericDatumReader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestDataFileSpliterator {
+  private static final int COUNT = 5000;
+  private static final List<Object> EXPECTED =
+    DataFileTestUtil.data(DataFileTestUtil.SCHEMA, COUNT, 3);
+  private static File FILE;
+
+  @BeforeClass
+  public static void writeFile() throws IOException {
+    FILE = DataFileTestUtil.write(
+        DataFileTestUtil.writer(CodecFactory.deflateCodec(1), 1024),
+        "test-spliterator.avro", DataFileTestUtil.SCHEMA, EXPECTED);
+  }
+
+  @Test
+  public void testParallelStream() throws IOException {
+    Stream<Object> stream =
+      DataFileReader.parallelStream(FILE, GenericDatumReader::new);
+    try {
+      assertEquals(EXPECTED, stream.collect(Collectors.toList()));
+    } finally {
+      stream.close();
+    }
+  }
+
+  @Test
+  public void testSplits() throws IOException {
+    DataFileSpliterator<Object> s = new DataFileSpliterator<Object>(
+        () -> new SeekableFileInput(FILE), GenericDatumReader::new, 100);
+    List<Spliterator<Object>> splits = new ArrayList<Spliterator<Object>>();
+    split(s, splits, 5);
+    assertEquals(32, splits.size());
+    List<Object> actual = new ArrayList<Object>();
+    for (Spliterator<Object> split : splits) {
+      split.forEachRemaining(actual::add);
+    }
+    assertEquals(EXPECTED, actual);
+    s.close();
+  }
+
+  private static void split(Spliterator<Object> s,
+                            List<Spliterator<Object>> splits, int depth) {
+    if (depth == 0) {
+      splits.add(s);
+      return;
+    }
+    Spliterator<Object> prefix = s.trySplit();
+    assertNotNull(prefix);
+    split(prefix, splits, depth - 1);
+    split(s, splits, depth - 1);
+  }
+
+  @Test
+  public void testMinSplitSize() throws IOException {
+    DataFileSpliterator<Object> s = new DataFileSpliterator<Object>(
+        () -> new SeekableFileInput(FILE), GenericDatumReader::new,
+        FILE.length());
+    assertNull(s.trySplit());
+    assertEquals(FILE.length(), s.estimateSize());
+    s.close();
+  }
+
+  @Test
+  public void testShortCircuit() throws IOException {
+    DataFileSpliterator<Object> s = new DataFileSpliterator<Object>(
+        () -> new MappedFileInput(FILE), GenericDatumReader::new, 100);
+    try (Stream<Object> stream = s.stream(true)) {
+      assertEquals(EXPECTED.subList(0, 10),
+          stream.limit(10).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testParallelSplits() throws IOException {
+    DataFileSpliterator<Object> s = new DataFileSpliterator<Object>(
+        () -> new MappedFileInput(FILE), GenericDatumReader::new, 100);
+    try (Stream<Object> stream = s.stream(true)) {
+      assertEquals(EXPECTED, stream.collect(Collectors.toList()));
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestFilteredDataFileReader {
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"id\",\"type\":\"long\"},"
+      + "{\"name\":\"b\",\"type\":\"bytes\"},"
+      + "{\"name\":\"n\",\"type\":[\"null\",\"int\"]}]}");
+  private static final int COUNT = 4000;
+
+  /** Records with ascending ids, so that blocks have disjoint bounds. */
+  private static List<GenericRecord> expected() {
+    List<GenericRecord> expected = new ArrayList<GenericRecord>();
+    long id = 0;
+    for (Object datum : new RandomData(SCHEMA, COUNT, 9)) {
+      GenericRecord r = (GenericRecord) datum;
+      r.put("id", id++);
+      expected.add(r);
+    }
+    return expected;
+  }
+
+  private static File writeFile(String name, String... indexed)
+    throws IOException {
+    DataFileWriter<Object> writer =
+      DataFileTestUtil.writer(CodecFactory.deflateCodec(1), 1024);
+    if (indexed.length > 0) {
+      writer.setBlockIndex(indexed);
+    } else {
+      BlockIndex.sidecarFile(new File(DataFileTestUtil.DIR, name)).delete();
+    }
+    return DataFileTestUtil.write(writer, name, SCHEMA, expected());
+  }
+
+  private static List<GenericRecord> expected(RecordFilter filter) {
+    List<GenericRecord> matching = new ArrayList<GenericRecord>();
+    Schema projection = filter.projection(SCHEMA);
+    for (GenericRecord r : expected()) {
+      GenericRecord p = new GenericData.Record(projection);
+      for (Schema.Field f : projection.getFields()) {
+        p.put(f.pos(), r.get(f.name()));
+      }
+      if (filter.matches(p)) {
+        matching.add(r);
+      }
+    }
+    return matching;
+  }
+
+  private static List<Object> read(FilteredDataFileReader<Object> in)
+    throws IOException {
+    List<Object> actual = new ArrayList<Object>();
+    try {
+      for (Object datum : in) {
+        actual.add(datum);
+      }
+    } finally {
+      in.close();
+    }
+    return actual;
+  }
+
+  @Test
+  public void testIndexed() throws IOException {
+    File file = writeFile("test-filter-indexed.avro", "id");
+    RecordFilter filter = RecordFilter.between("id", 1000L, 1499L);
+    FilteredDataFileReader<Object> in = new FilteredDataFileReader<Object>(
+        DataFileReader.openIndexed(file, new GenericDatumReader<Object>()),
+        filter);
+    assertEquals(expected(filter), read(in));
+    assertEquals(500, in.getRecordsMatched());
+    assertEquals(COUNT - 500, in.getRecordsSkipped());
+    assertTrue(in.getBlocksSkipped() > 0);
+    BlockIndex index = BlockIndex.read(BlockIndex.sidecarFile(file));
+    assertEquals(index.getBlockCount(),
+                 in.getBlocksSkipped() + in.getBlocksRead());
+    assertTrue(in.getBlocksRead() < index.getBlockCount() / 2);
+  }
+
+  @Test
+  public void testUnindexed() throws IOException {
+    File file = writeFile("test-filter-unindexed.avro");
+    RecordFilter filter = RecordFilter.between("id", 3990L, null)
+      .and(RecordFilter.notNull("n"));
+    FilteredDataFileReader<Object> in = new FilteredDataFileReader<Object>(
+        new DataFileStream<Object>(new FileInputStream(file),
+                                   new GenericDatumReader<Object>()),
+        filter);
+    List<GenericRecord> expected = expected(filter);
+    assertTrue(expected.size() > 0);
+    assertEquals(expected, read(in));
+    assertEquals(0, in.getBlocksSkipped());
+    assertEquals(COUNT, in.getRecordsMatched() + in.getRecordsSkipped());
+  }
+
+  @Test
+  public void testStrings() throws IOException {
+    File file = writeFile("test-filter-strings.avro", "id", "s");
+    GenericRecord r = expected().get(1234);
+    RecordFilter filter = RecordFilter.equalTo("s", r.get("s").toString());
+    FilteredDataFileReader<Object> in = new FilteredDataFileReader<Object>(
+        DataFileReader.openIndexed(file, new GenericDatumReader<Object>()),
+        filter);
+    List<Object> actual = read(in);
+    assertTrue(actual.contains(r));
+    assertEquals(expected(filter), actual);
+    assertEquals(expected(RecordFilter.equalTo("s", new Utf8(
+        r.get("s").toString()))), actual);
+  }
+}
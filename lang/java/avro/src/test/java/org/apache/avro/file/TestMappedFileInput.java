@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestMappedFileInput {
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"b\",\"type\":\"bytes\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"}]}");
+
+  private final CodecFactory codec;
+
+  public TestMappedFileInput(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = DataFileTestUtil.codecs();
+    r.add(new Object[] { CodecFactory.bzip2Codec() });
+    return r;
+  }
+
+  private File writeFile() throws IOException {
+    return DataFileTestUtil.write("test-mapped-" + codec + ".avro", SCHEMA,
+        codec, 500, 17, 1000);
+  }
+
+  @Test
+  public void testReadMapped() throws IOException {
+    File file = writeFile();
+    List<Object> expected = DataFileTestUtil.data(SCHEMA, 500, 17);
+    // a small window makes blocks cross window boundaries
+    DataFileReader<Object> reader = new DataFileReader<Object>(
+        new MappedFileInput(file, 4096), new GenericDatumReader<Object>());
+    try {
+      List<Object> actual = new ArrayList<Object>();
+      for (Object datum : reader) {
+        actual.add(datum);
+      }
+      assertEquals(expected, actual);
+    } finally {
+      reader.close();
+    }
+
+    reader = DataFileReader.openMapped(file, new GenericDatumReader<Object>());
+    try {
+      int count = 0;
+      while (reader.hasNext()) {
+        ByteBuffer block = reader.nextBlock();
+        assertTrue(block.remaining() > 0);
+        count += reader.getBlockCount();
+      }
+      assertEquals(expected.size(), count);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSplits() throws IOException {
+    File file = writeFile();
+    long length = file.length();
+    DataFileReader<Object> reader = new DataFileReader<Object>(
+        new MappedFileInput(file, 8192), new GenericDatumReader<Object>());
+    try {
+      int count = 0;
+      for (long start = 0; start < length; start += length / 7) {
+        long end = Math.min(start + length / 7, length);
+        reader.sync(start);
+        while (reader.hasNext() && !reader.pastSync(end)) {
+          reader.next();
+          count++;
+        }
+      }
+      assertEquals(500, count);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testLargeFile() throws IOException {
+    if (!codec.toString().equals("null")) {
+      return; // codec independent
+    }
+    File file = new File(DataFileTestUtil.DIR, "test-mapped-large.bin");
+    long position = 3L * Integer.MAX_VALUE / 2; // beyond 2GB
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(position + 10); // sparse
+      raf.seek(position - 3);
+      raf.write(new byte[] { 1, 2, 3, 4, 5, 6 });
+    } finally {
+      raf.close();
+    }
+    try {
+      MappedFileInput in = new MappedFileInput(file);
+      try {
+        assertEquals(position + 10, in.length());
+        assertEquals(0, in.slice(0, 16).get(3));
+        ByteBuffer slice = in.slice(position - 3, 6);
+        assertEquals(6, slice.remaining());
+        assertEquals(1, slice.get(0));
+        assertEquals(6, slice.get(5));
+        in.seek(position);
+        byte[] b = new byte[10];
+        int n = 0;
+        for (int r; n < b.length && (r = in.read(b, n, b.length - n)) > 0; n += r) {}
+        assertEquals(10, n);
+        assertEquals(4, b[0]);
+        assertEquals(position + 10, in.tell());
+        assertEquals(-1, in.read(b, 0, 1));
+        try {
+          in.slice(position, 11);
+          fail();
+        } catch (EOFException expected) {
+          // past the end
+        }
+      } finally {
+        in.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.apache.avro.file.DataFileTestUtil.SCHEMA;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.RandomData;
+import org.apache.avro.file.codec.CustomCodec;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestParallelCompression {
+
+  private final CodecFactory codec;
+
+  public TestParallelCompression(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    return DataFileTestUtil.codecs();
+  }
+
+  /** Appends the same data to copies of the same header, so that both files
+   * share their sync marker. */
+  @Test
+  public void testSameFileAsInline() throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+      .setCodec(codec).create(SCHEMA, header).close();
+
+    byte[] inline = write(header.toByteArray(), null);
+    byte[] parallel = write(header.toByteArray(),
+        new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+        .setCompressionThreads(3, 2));
+    assertArrayEquals(inline, parallel);
+  }
+
+  private byte[] write(byte[] header, DataFileWriter<Object> writer)
+    throws IOException {
+    if (writer == null) {
+      writer = new DataFileWriter<Object>(new GenericDatumWriter<Object>());
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(header);
+    writer.setSyncInterval(2048);
+    writer.appendTo(new SeekableByteArrayInput(header), out);
+    List<Long> syncs = new ArrayList<Long>();
+    int count = 0;
+    for (Object datum : new RandomData(SCHEMA, 2000, 5)) {
+      writer.append(datum);
+      if (++count % 300 == 0) {
+        syncs.add(writer.sync());
+      }
+    }
+    writer.close();
+    byte[] bytes = out.toByteArray();
+
+    // the positions returned by sync() are block starts, relative to the
+    // stream appended to
+    DataFileReader<Object> reader = new DataFileReader<Object>(
+        new SeekableByteArrayInput(bytes), new GenericDatumReader<Object>());
+    for (int i = 0; i < syncs.size(); i++) {
+      reader.seek(header.length + syncs.get(i));
+      int remaining = 0;
+      while (reader.hasNext()) {
+        reader.next();
+        remaining++;
+      }
+      assertEquals(2000 - 300 * (i + 1), remaining);
+    }
+    reader.close();
+    return bytes;
+  }
+
+  @Test
+  public void testCompressionFailure() throws IOException {
+    CodecFactory failing = new CodecFactory() {
+      @Override
+      protected Codec createInstance() {
+        return new CustomCodec() {
+          @Override
+          public ByteBuffer compress(ByteBuffer buffer) throws IOException {
+            throw new IOException("failed");
+          }
+        };
+      }
+    };
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>())
+      .setCodec(failing).setSyncInterval(64).setCompressionThreads(2, 2);
+    writer.create(SCHEMA, new ByteArrayOutputStream());
+    try {
+      for (Object datum : new RandomData(SCHEMA, 100, 5)) {
+        writer.append(datum);
+      }
+      writer.flush();
+      fail();
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testNotAfterOpen() throws IOException {
+    DataFileWriter<Object> writer =
+      new DataFileWriter<Object>(new GenericDatumWriter<Object>());
+    writer.create(SCHEMA, new ByteArrayOutputStream());
+    try {
+      writer.setCompressionThreads(2, 2);
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("already open"));
+    }
+    writer.close();
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.generic.GenericDatumReader;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestReadAhead {
+  private static final int COUNT = 2000;
+
+  private final CodecFactory codec;
+
+  public TestReadAhead(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    return DataFileTestUtil.codecs();
+  }
+
+  private File writeFile() throws IOException {
+    return DataFileTestUtil.write("test-read-ahead-" + codec + ".avro",
+        DataFileTestUtil.SCHEMA, codec, COUNT, 11, 1024);
+  }
+
+  private static List<Object> expected() {
+    return DataFileTestUtil.data(DataFileTestUtil.SCHEMA, COUNT, 11);
+  }
+
+  private static List<Object> readAll(DataFileStream<Object> in)
+    throws IOException {
+    List<Object> actual = new ArrayList<Object>();
+    try {
+      for (Object datum : in) {
+        actual.add(datum);
+      }
+    } finally {
+      in.close();
+    }
+    return actual;
+  }
+
+  @Test
+  public void testStream() throws IOException {
+    File file = writeFile();
+    assertEquals(expected(), readAll(new DataFileStream<Object>(
+        new FileInputStream(file), new GenericDatumReader<Object>())
+        .setReadAhead(3, 4)));
+  }
+
+  @Test
+  public void testDecoded() throws IOException {
+    File file = writeFile();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      DataFileReader<Object> reader = new DataFileReader<Object>(
+          file, new GenericDatumReader<Object>());
+      reader.setReadAhead(executor, 3, GenericDatumReader::new);
+      assertEquals(expected(), readAll(reader));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testMapped() throws IOException {
+    File file = writeFile();
+    DataFileReader<Object> reader = new DataFileReader<Object>(
+        new MappedFileInput(file, 4096), new GenericDatumReader<Object>());
+    reader.setReadAhead(2, 2);
+    assertEquals(expected(), readAll(reader));
+  }
+
+  @Test
+  public void testSplits() throws IOException {
+    File file = writeFile();
+    long length = file.length();
+    DataFileReader<Object> reader = new DataFileReader<Object>(
+        file, new GenericDatumReader<Object>());
+    reader.setReadAhead(2, 3);
+    try {
+      List<Object> actual = new ArrayList<Object>();
+      for (long start = 0; start < length; start += length / 7) {
+        long end = Math.min(start + length / 7, length);
+        reader.sync(start);
+        while (reader.hasNext() && !reader.pastSync(end)) {
+          actual.add(reader.next());
+        }
+      }
+      assertEquals(expected(), actual);
+    } finally {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class TestZstandardAndLz4Codecs {
+
+  private static ByteBuffer input() {
+    byte[] bytes = new byte[100000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (65 + (i * 7 % 13));
+    }
+    // a heap buffer with an array offset
+    ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 10);
+    buffer.position(10);
+    buffer = buffer.slice();
+    buffer.put(bytes).flip();
+    return buffer;
+  }
+
+  private static void roundTrip(Codec codec) throws IOException {
+    ByteBuffer in = input();
+    ByteBuffer compressed = codec.compress(in);
+    assertTrue(compressed.remaining() < in.remaining());
+    assertEquals(in, codec.decompress(compressed));
+    // as read from a mapped file
+    ByteBuffer direct = ByteBuffer.allocateDirect(compressed.remaining());
+    direct.put(compressed.duplicate()).flip();
+    assertEquals(in, codec.decompress(direct.asReadOnlyBuffer()));
+  }
+
+  @Test
+  public void testZstandard() throws IOException {
+    Codec codec = CodecFactory.fromString("zstandard").createInstance();
+    assertEquals("zstandard", codec.getName());
+    assertEquals(CodecFactory.zstandardCodec(3).createInstance(), codec);
+    roundTrip(codec);
+    roundTrip(CodecFactory.zstandardCodec(-5).createInstance());
+    roundTrip(CodecFactory.zstandardCodec(9, true).createInstance());
+  }
+
+  @Test
+  public void testZstandardChecksum() throws IOException {
+    Codec codec = CodecFactory.zstandardCodec(3, true).createInstance();
+    ByteBuffer compressed = codec.compress(input());
+    // the checksum is the last four bytes of the frame
+    int last = compressed.limit() - 1;
+    compressed.put(last, (byte) ~compressed.get(last));
+    try {
+      codec.decompress(compressed);
+      fail();
+    } catch (IOException expected) {
+      // checksum mismatch
+    }
+  }
+
+  @Test
+  public void testLz4() throws IOException {
+    Codec codec = CodecFactory.fromString("lz4").createInstance();
+    assertEquals("lz4", codec.getName());
+    roundTrip(codec);
+    assertEquals(0, codec.decompress(codec.compress(ByteBuffer.allocate(0)))
+        .remaining());
+  }
+
+  @Test(expected = IOException.class)
+  public void testLz4Truncated() throws IOException {
+    Codec codec = CodecFactory.lz4Codec().createInstance();
+    ByteBuffer compressed = codec.compress(input());
+    compressed.limit(compressed.limit() / 2);
+    codec.decompress(compressed);
+  }
+}
@@ -38,6 +38,7 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.SchemaBuilder;
+import org.apache.avro.UnresolvedUnionException;
 import org.apache.avro.io.BinaryData;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.EncoderFactory;
@@ -591,4 +592,90 @@ public class TestGenericData {
     assertFalse("Record with duplicated values results in wrong 'toString()'", testString.contains("CIRCULAR REFERENCE"));
   }
 
+  @Test
+  public void testResolveUnionRecords() {
+    Schema a = SchemaBuilder.record("A").fields()
+      .requiredInt("x").endRecord();
+    Schema b = SchemaBuilder.record("B").fields()
+      .requiredInt("x").endRecord();
+    Schema union = Schema.createUnion(
+        Arrays.asList(Schema.create(Type.NULL), a, b));
+    GenericData data = GenericData.get();
+    // the same class resolves by the schema of each record
+    for (int i = 0; i < 3; i++) {
+      assertEquals(1, data.resolveUnion(union, new GenericData.Record(a)));
+      assertEquals(2, data.resolveUnion(union, new GenericData.Record(b)));
+      assertEquals(0, data.resolveUnion(union, null));
+    }
+  }
+
+  @Test
+  public void testResolveUnionLogicalType() {
+    Schema uuid = new Schema.Parser().parse(
+        "{\"type\":\"string\",\"logicalType\":\"uuid\"}");
+    Schema union = Schema.createUnion(
+        Arrays.asList(uuid, Schema.create(Type.LONG), Schema.create(Type.NULL)));
+    GenericData data = GenericData.get();
+    for (int i = 0; i < 2; i++) {
+      assertEquals(0, data.resolveUnion(union, java.util.UUID.randomUUID()));
+      assertEquals(1, data.resolveUnion(union, 1L));
+      assertEquals(2, data.resolveUnion(union, null));
+    }
+  }
+
+  /** Names negative ints as longs, by value rather than class. */
+  private static class ByValueData extends GenericData {
+    @Override
+    protected String getSchemaName(Object datum) {
+      if (datum instanceof Integer && (Integer) datum < 0) {
+        return Type.LONG.getName();
+      }
+      return super.getSchemaName(datum);
+    }
+  }
+
+  @Test
+  public void testResolveUnionSubclass() {
+    Schema union = Schema.createUnion(
+        Arrays.asList(Schema.create(Type.INT), Schema.create(Type.LONG)));
+    // a subclass of GenericData is not cached unless it opts in
+    GenericData data = new ByValueData();
+    for (int i = 0; i < 2; i++) {
+      assertEquals(0, data.resolveUnion(union, 1));
+      assertEquals(1, data.resolveUnion(union, -1));
+    }
+    // one that opts in is cached
+    GenericData cached = new ByValueData() {
+      @Override
+      protected boolean cachesUnionBranchesByClass() {
+        return true;
+      }
+    };
+    assertEquals(0, cached.resolveUnion(union, 1));
+    assertEquals(0, cached.resolveUnion(union, -1));
+  }
+
+  @Test
+  public void testResolveUnionUnresolved() {
+    Schema union = Schema.createUnion(
+        Arrays.asList(Schema.create(Type.NULL), Schema.create(Type.INT)));
+    GenericData data = GenericData.get();
+    assertEquals(1, data.resolveUnion(union, 1));
+    for (int i = 0; i < 2; i++) {
+      try {
+        data.resolveUnion(union, "s");
+        fail();
+      } catch (UnresolvedUnionException e) {
+        // not cached
+      }
+    }
+    try {
+      data.resolveUnion(Schema.createUnion(Arrays.asList(
+          Schema.create(Type.INT))), null);
+      fail();
+    } catch (UnresolvedUnionException e) {
+      // no null branch
+    }
+  }
+
 }
@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestGenericDatumCompiler {
+
+  private static final Schema WRITER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"gone\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":4}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"long\"]},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"int\"}},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"R\"]}]}");
+
+  private static final Schema READER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":\"long\"},"
+      + "{\"name\":\"added\",\"type\":{\"type\":\"array\",\"items\":\"int\"},\"default\":[1,2]},"
+      + "{\"name\":\"l\",\"type\":\"double\"},"
+      + "{\"name\":\"f\",\"type\":\"double\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"s\",\"type\":{\"type\":\"string\",\"avro.java.string\":\"String\"}},"
+      + "{\"name\":\"by\",\"type\":\"string\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":4}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"C\",\"B\",\"A\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"long\",\"string\"]},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"long\"}},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"R\"]},"
+      + "{\"name\":\"def\",\"type\":\"string\",\"default\":\"x\"}]}");
+
+  @Test
+  public void testSameSchema() throws IOException {
+    for (Object datum : new RandomData(WRITER, 100, 42)) {
+      byte[] interpreted = write(WRITER, datum, false);
+      assertArrayEquals(interpreted, write(WRITER, datum, true));
+      assertEquals(read(WRITER, WRITER, interpreted, false), read(WRITER, WRITER, interpreted, true));
+      assertEquals(datum, read(WRITER, WRITER, interpreted, true));
+    }
+  }
+
+  @Test
+  public void testResolution() throws IOException {
+    for (Object datum : new RandomData(WRITER, 100, 17)) {
+      byte[] bytes = write(WRITER, datum, false);
+      assertEquals(read(WRITER, READER, bytes, false), read(WRITER, READER, bytes, true));
+    }
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(WRITER, READER);
+    reader.setCompiled(true);
+    GenericDatumReader<Object> interpreter = new GenericDatumReader<>(WRITER, READER);
+    Object reuse = null;
+    for (Object datum : new RandomData(WRITER, 20, 3)) {
+      byte[] bytes = write(WRITER, datum, false);
+      reuse = reader.read(reuse, DecoderFactory.get().binaryDecoder(bytes, null));
+      assertEquals(interpreter.read(null, DecoderFactory.get().binaryDecoder(bytes, null)), reuse);
+    }
+  }
+
+  @Test
+  public void testBytesPromotedFromSlices() throws IOException {
+    Schema w = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"S\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":\"bytes\"},{\"name\":\"b\",\"type\":\"bytes\"}]}");
+    Schema r = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"S\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":{\"type\":\"string\",\"avro.java.string\":\"String\"}},"
+        + "{\"name\":\"b\",\"type\":\"string\"}]}");
+    GenericRecord datum = new GenericData.Record(w);
+    datum.put("a", ByteBuffer.wrap("first".getBytes(StandardCharsets.UTF_8)));
+    datum.put("b", ByteBuffer.wrap("second".getBytes(StandardCharsets.UTF_8)));
+    byte[] bytes = write(w, datum, false);
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(w, r);
+    reader.setCompiled(true);
+    // the decoder returns slices of its buffer, which the promotion must honor
+    GenericRecord result = reader.read(null, new DecoderFactory().configureSliceBytes(true)
+        .binaryDecoder(ByteBuffer.wrap(bytes), null));
+    assertEquals("first", result.get("a"));
+    assertEquals(new Utf8("second"), result.get("b"));
+  }
+
+  @Test
+  public void testDefaultsAreCopied() throws IOException {
+    byte[] bytes = write(WRITER, new RandomData(WRITER, 1, 5).iterator().next(), false);
+    GenericRecord first = (GenericRecord) read(WRITER, READER, bytes, true);
+    GenericRecord second = (GenericRecord) read(WRITER, READER, bytes, true);
+    assertEquals(Arrays.asList(1, 2), first.get("added"));
+    assertNotSame(first.get("added"), second.get("added"));
+  }
+
+  @Test
+  public void testEnumMismatchIsLazy() throws IOException {
+    Schema w = new Schema.Parser().parse("{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\"]}");
+    Schema r = new Schema.Parser().parse("{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\"]}");
+    assertEquals(new GenericData.EnumSymbol(r, "A"),
+        read(w, r, write(w, new GenericData.EnumSymbol(w, "A"), true), true));
+    try {
+      read(w, r, write(w, new GenericData.EnumSymbol(w, "B"), true), true);
+      fail();
+    } catch (AvroTypeException expected) {
+      assertEquals("No match for B", expected.getMessage());
+    }
+  }
+
+  @Test
+  public void testLogicalTypesAreInterpreted() {
+    Schema uuid = LogicalTypes.uuid().addToSchema(Schema.create(Schema.Type.STRING));
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(uuid);
+    assertSame(GenericDatumCompiler.INTERPRETED, GenericDatumCompiler.reader(reader, uuid, uuid));
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(uuid);
+    assertSame(GenericDatumCompiler.INTERPRETED_WRITER, GenericDatumCompiler.writer(writer, uuid));
+  }
+
+  @Test
+  public void testCompiledInstancesAreShared() {
+    GenericDatumReader<Object> r1 = new GenericDatumReader<>(WRITER, READER);
+    GenericDatumReader<Object> r2 = new GenericDatumReader<>(new Schema.Parser().parse(WRITER.toString()),
+        new Schema.Parser().parse(READER.toString()));
+    assertSame(GenericDatumCompiler.reader(r1, r1.getSchema(), r1.getExpected()),
+        GenericDatumCompiler.reader(r2, r2.getSchema(), r2.getExpected()));
+  }
+
+  @Test
+  public void testCompiledInstancesHoldNoModel() throws Exception {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"Held\",\"fields\":[{\"name\":\"f\",\"type\":"
+        + "{\"type\":\"fixed\",\"name\":\"F\",\"size\":2}}]}");
+    GenericData data = new GenericData(new ClassLoader() { });
+    GenericDatumReader<Object> datumReader = new GenericDatumReader<>(schema, schema, data);
+    GenericDatumCompiler.CompiledReader compiled = GenericDatumCompiler.reader(datumReader, schema, schema).get();
+    WeakReference<GenericData> ref = new WeakReference<>(data);
+    data = null;
+    datumReader = null;
+    for (int i = 0; i < 20 && ref.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(ref.get());
+    // still cached, and reads with the model it is given
+    assertSame(compiled, GenericDatumCompiler.reader(new GenericDatumReader<>(schema), schema, schema).get());
+    byte[] bytes = write(schema, new RandomData(schema, 1, 3).iterator().next(), true);
+    Object datum = compiled.read(GenericData.get(), null, DecoderFactory.get().binaryDecoder(bytes, null));
+    assertArrayEquals(bytes, write(schema, datum, false));
+  }
+
+  private static byte[] write(Schema schema, Object datum, boolean compiled) throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    writer.setCompiled(compiled);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static Object read(Schema writer, Schema reader, byte[] bytes, boolean compiled) throws IOException {
+    GenericDatumReader<Object> datumReader = new GenericDatumReader<>(writer, reader);
+    datumReader.setCompiled(compiled);
+    return datumReader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+}
@@ -97,6 +97,36 @@ public class TestGenericRecordBuilder {
     }
   }
 
+  @Test
+  public void testDefaultsNotShared() {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"D\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"int\"},"
+        + "\"default\":[1,2]},"
+        + "{\"name\":\"i\",\"type\":\"int\",\"default\":7}]}");
+    Record first = new GenericRecordBuilder(schema).build();
+    @SuppressWarnings("unchecked")
+    List<Object> array = (List<Object>) first.get("a");
+    Assert.assertEquals(Arrays.asList(1, 2), array);
+    Assert.assertEquals(7, first.get("i"));
+    array.add(3);
+    Record second = new GenericRecordBuilder(schema).build();
+    Assert.assertEquals(Arrays.asList(1, 2), second.get("a"));
+    Assert.assertNotSame(array, second.get("a"));
+  }
+
+  @Test
+  public void testDefaultDecodedOnce() {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"D\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"int\"},"
+        + "\"default\":[1,2]}]}");
+    Field field = schema.getField("a");
+    Object value = GenericData.get().getDefaultValue(field);
+    Assert.assertEquals(Arrays.asList(1, 2), value);
+    Assert.assertSame(value, GenericData.get().getDefaultValue(field));
+  }
+
   /** Creates a test record schema */
   private static Schema recordSchema() {
     List<Field> fields = new ArrayList<Field>();
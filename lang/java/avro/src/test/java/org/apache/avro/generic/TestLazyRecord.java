@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestLazyRecord {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":4}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"long\"]},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"int\"}},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"R\"]},"
+      + "{\"name\":\"d\",\"type\":\"double\"}]}");
+
+  @Test
+  public void testFields() throws IOException {
+    for (Object datum : new RandomData(SCHEMA, 50, 3)) {
+      GenericRecord expected = (GenericRecord) datum;
+      byte[] bytes = write(datum, false, false);
+      // access the fields out of order
+      LazyRecord lazy = new LazyRecord(SCHEMA, bytes, 0, bytes.length);
+      assertEquals(expected.get("d"), lazy.get("d"));
+      assertEquals(expected.get("s"), lazy.get("s"));
+      assertEquals(expected.get("next"), lazy.get("next"));
+      assertEquals(expected, lazy);
+      assertEquals(expected.hashCode(), lazy.hashCode());
+      assertEquals(expected.toString(), lazy.toString());
+      assertFalse(lazy.isModified());
+      LazyRecord unread = new LazyRecord(SCHEMA, bytes, 0, bytes.length);
+      assertEquals(expected, new GenericData.Record(unread, false));
+      assertEquals(expected, GenericData.get().deepCopy(SCHEMA, unread));
+    }
+  }
+
+  @Test
+  public void testSlice() throws IOException {
+    Object datum = new RandomData(SCHEMA, 1, 5).iterator().next();
+    byte[] bytes = write(datum, false, false);
+    byte[] padded = new byte[bytes.length + 7];
+    System.arraycopy(bytes, 0, padded, 3, bytes.length);
+    ByteBuffer buffer = ByteBuffer.wrap(padded, 3, bytes.length);
+    LazyRecord lazy = new LazyRecord(SCHEMA, buffer.slice());
+    assertEquals(datum, lazy);
+    assertEquals(ByteBuffer.wrap(bytes), lazy.getEncoding());
+    assertEquals(datum, new LazyRecord(SCHEMA, padded, 3, bytes.length));
+  }
+
+  @Test
+  public void testCopyUnmodified() throws IOException {
+    for (Object datum : new RandomData(SCHEMA, 20, 7)) {
+      byte[] bytes = write(datum, false, false);
+      LazyRecord lazy = new LazyRecord(SCHEMA, bytes, 0, bytes.length);
+      lazy.get("d");
+      assertArrayEquals(bytes, write(lazy, false, false));
+      assertArrayEquals(bytes, write(lazy, true, false));
+      // the copy is only made for binary encoders
+      assertEquals(new String(write(datum, false, true), "UTF-8"),
+                   new String(write(lazy, false, true), "UTF-8"));
+    }
+  }
+
+  @Test
+  public void testModified() throws IOException {
+    for (Object datum : new RandomData(SCHEMA, 20, 11)) {
+      GenericRecord expected = (GenericRecord) datum;
+      byte[] bytes = write(datum, false, false);
+      LazyRecord lazy = new LazyRecord(SCHEMA, bytes, 0, bytes.length);
+      lazy.put("s", new Utf8("changed"));
+      expected.put("s", new Utf8("changed"));
+      assertTrue(lazy.isModified());
+      assertEquals(expected, lazy);
+      byte[] rewritten = write(lazy, false, false);
+      assertArrayEquals(write(expected, false, false), rewritten);
+      assertArrayEquals(rewritten, write(lazy, true, false));
+      assertEquals(expected, new GenericDatumReader<Object>(SCHEMA).read(
+          null, DecoderFactory.get().binaryDecoder(rewritten, null)));
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testChangedInPlace() throws IOException {
+    for (Object datum : new RandomData(SCHEMA, 20, 13)) {
+      GenericRecord expected = (GenericRecord) datum;
+      byte[] bytes = write(datum, false, false);
+      for (boolean compiled : new boolean[] { false, true }) {
+        LazyRecord lazy = new LazyRecord(SCHEMA, bytes, 0, bytes.length);
+        GenericRecord copy = GenericData.get().deepCopy(SCHEMA, expected);
+        ((List<Object>) lazy.get("a")).add(new Utf8("added"));
+        ((List<Object>) copy.get("a")).add(new Utf8("added"));
+        ((Map<Object, Object>) lazy.get("m")).put(new Utf8("k"), 1);
+        ((Map<Object, Object>) copy.get("m")).put(new Utf8("k"), 1);
+        ((GenericData.Fixed) lazy.get("fx")).bytes()[0] ^= 1;
+        ((GenericData.Fixed) copy.get("fx")).bytes()[0] ^= 1;
+        GenericRecord next = (GenericRecord) lazy.get("next");
+        if (next != null) {
+          next.put("i", 42);
+          ((GenericRecord) copy.get("next")).put("i", 42);
+        }
+        assertFalse(lazy.isModified());
+        byte[] rewritten = write(lazy, compiled, false);
+        assertArrayEquals(write(copy, compiled, false), rewritten);
+        assertEquals(copy, new GenericDatumReader<Object>(SCHEMA).read(
+            null, DecoderFactory.get().binaryDecoder(rewritten, null)));
+      }
+    }
+  }
+
+  private static byte[] write(Object datum, boolean compiled, boolean json)
+    throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    writer.setCompiled(compiled);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = json
+      ? EncoderFactory.get().jsonEncoder(SCHEMA, out)
+      : EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+}
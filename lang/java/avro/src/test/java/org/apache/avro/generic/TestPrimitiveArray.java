@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+public class TestPrimitiveArray {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":{\"type\":\"array\",\"items\":\"int\"}},"
+      + "{\"name\":\"l\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"f\",\"type\":{\"type\":\"array\",\"items\":\"float\"}},"
+      + "{\"name\":\"d\",\"type\":{\"type\":\"array\",\"items\":\"double\"}},"
+      + "{\"name\":\"b\",\"type\":{\"type\":\"array\",\"items\":\"boolean\"}},"
+      + "{\"name\":\"s\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}");
+
+  @Test
+  public void testNewArray() {
+    GenericData data = GenericData.get();
+    assertEquals(GenericData.IntArray.class, data.newArray(
+        null, 4, SCHEMA.getField("i").schema()).getClass());
+    assertEquals(GenericData.LongArray.class, data.newArray(
+        null, 4, SCHEMA.getField("l").schema()).getClass());
+    assertEquals(GenericData.FloatArray.class, data.newArray(
+        null, 4, SCHEMA.getField("f").schema()).getClass());
+    assertEquals(GenericData.DoubleArray.class, data.newArray(
+        null, 4, SCHEMA.getField("d").schema()).getClass());
+    assertEquals(GenericData.BooleanArray.class, data.newArray(
+        null, 4, SCHEMA.getField("b").schema()).getClass());
+    assertEquals(GenericData.Array.class, data.newArray(
+        null, 4, SCHEMA.getField("s").schema()).getClass());
+    Schema shorts = Schema.create(Schema.Type.INT);
+    shorts.addProp("java-class", "java.lang.Short");
+    assertEquals(GenericData.Array.class, data.newArray(
+        null, 4, Schema.createArray(shorts)).getClass());
+
+    // reused only when it can hold the elements
+    Object ints = data.newArray(null, 4, SCHEMA.getField("i").schema());
+    assertSame(ints, data.newArray(ints, 4, SCHEMA.getField("i").schema()));
+    assertEquals(GenericData.LongArray.class, data.newArray(
+        ints, 4, SCHEMA.getField("l").schema()).getClass());
+    List<Object> list = new ArrayList<Object>();
+    assertSame(list, data.newArray(list, 4, SCHEMA.getField("l").schema()));
+  }
+
+  @Test
+  public void testListContract() {
+    GenericData.LongArray array =
+      new GenericData.LongArray(0, SCHEMA.getField("l").schema());
+    List<Long> expected = new ArrayList<Long>();
+    for (long i = 0; i < 100; i++) {
+      array.add(i);
+      expected.add(i);
+    }
+    array.add(3, -1L);
+    expected.add(3, -1L);
+    assertEquals(Long.valueOf(5), array.set(6, 42L));
+    expected.set(6, 42L);
+    assertEquals(Long.valueOf(9), array.remove(10));
+    expected.remove(10);
+    array.addLong(7);
+    expected.add(7L);
+    assertEquals(expected, array);
+    assertEquals(array, expected);
+    assertEquals(expected.hashCode(), array.hashCode());
+    assertEquals(expected.toString(), array.toString());
+    assertEquals(42L, array.getLong(6));
+    array.reverse();
+    java.util.Collections.reverse(expected);
+    assertEquals(expected, array);
+    assertEquals(expected.size(), array.toLongArray().length);
+    array.clear();
+    assertTrue(array.isEmpty());
+    assertEquals(0, array.toLongArray().length);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    for (boolean compiled : new boolean[] { false, true }) {
+      for (Object datum : new RandomData(SCHEMA, 20, 17)) {
+        byte[] bytes = write(datum, compiled);
+        GenericDatumReader<GenericRecord> reader =
+          new GenericDatumReader<GenericRecord>(SCHEMA);
+        reader.setCompiled(compiled);
+        GenericRecord read = reader.read(
+            null, DecoderFactory.get().binaryDecoder(bytes, null));
+        assertEquals(datum, read);
+        assertTrue(read.get("d") instanceof GenericData.DoubleArray);
+        assertTrue(read.get("b") instanceof GenericData.BooleanArray);
+        // written unboxed, the same as boxed
+        assertArrayEquals(bytes, write(read, compiled));
+        // read again into the same arrays
+        Object d = read.get("d");
+        GenericRecord again = reader.read(
+            read, DecoderFactory.get().binaryDecoder(bytes, null));
+        assertSame(d, again.get("d"));
+        assertEquals(datum, again);
+      }
+    }
+  }
+
+  @Test
+  public void testPromotion() throws IOException {
+    Schema ints = Schema.createArray(Schema.create(Schema.Type.INT));
+    Schema doubles = Schema.createArray(Schema.create(Schema.Type.DOUBLE));
+    Schema longs = Schema.createArray(Schema.create(Schema.Type.LONG));
+    List<Integer> values = Arrays.asList(1, -2, 300000, Integer.MIN_VALUE);
+    for (boolean compiled : new boolean[] { false, true }) {
+      GenericDatumWriter<Object> writer = new GenericDatumWriter<Object>(ints);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      writer.write(values, encoder);
+      encoder.flush();
+      for (Schema readerSchema : new Schema[] { doubles, longs }) {
+        GenericDatumReader<List<Number>> reader =
+          new GenericDatumReader<List<Number>>(ints, readerSchema);
+        reader.setCompiled(compiled);
+        List<Number> read = reader.read(null,
+            DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+        assertEquals(values.size(), read.size());
+        for (int i = 0; i < values.size(); i++) {
+          assertEquals(values.get(i).doubleValue(),
+                       read.get(i).doubleValue(), 0);
+        }
+      }
+    }
+  }
+
+  private static byte[] write(Object datum, boolean compiled)
+    throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    writer.setCompiled(compiled);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+}
@@ -357,6 +357,59 @@ public class TestBinaryDecoder {
     Assert.assertEquals("Invalid long encoding", message);
   }
 
+  @Test
+  public void testBulkVarIntsAcrossRefill() throws IOException {
+    // varints of every length, many more bytes than the buffer holds
+    int[] ints = new int[2000];
+    long[] longs = new long[2000];
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = (i % 2 == 0 ? 1 : -1) << (i % 32);
+      longs[i] = (i % 2 == 0 ? 1L : -1L) << (i % 64);
+    }
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    BinaryEncoder e = e_factory.binaryEncoder(baos, null);
+    for (int i : ints) {
+      e.writeInt(i);
+    }
+    for (long l : longs) {
+      e.writeLong(l);
+    }
+    e.writeInt(42);
+    e.flush();
+
+    Decoder d = newDecoder(new ByteArrayInputStream(baos.toByteArray()));
+    int[] actualInts = new int[ints.length];
+    d.readInts(actualInts, 0, ints.length);
+    Assert.assertArrayEquals(ints, actualInts);
+    long[] actualLongs = new long[longs.length];
+    d.readLongs(actualLongs, 0, longs.length);
+    Assert.assertArrayEquals(longs, actualLongs);
+    Assert.assertEquals(42, d.readInt());
+  }
+
+  @Test
+  public void testBadBulkVarIntEncoding() throws IOException {
+    byte[] bad = new byte[16];
+    Arrays.fill(bad, 0, 5, (byte)0xff);
+    String message = "";
+    try {
+      factory.binaryDecoder(bad, null).readInts(new int[2], 0, 2);
+    } catch (IOException ioe) {
+      message = ioe.getMessage();
+    }
+    Assert.assertEquals("Invalid int encoding", message);
+
+    bad = new byte[16];
+    Arrays.fill(bad, 0, 10, (byte)0xff);
+    message = "";
+    try {
+      factory.binaryDecoder(bad, null).readLongs(new long[2], 0, 2);
+    } catch (IOException ioe) {
+      message = ioe.getMessage();
+    }
+    Assert.assertEquals("Invalid long encoding", message);
+  }
+
   @Test
   public void testBadLengthEncoding() throws IOException {
     byte[] bad = new byte[] { (byte)1 };
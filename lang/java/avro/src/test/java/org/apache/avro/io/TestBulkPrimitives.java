@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestBulkPrimitives {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":{\"type\":\"array\",\"items\":\"int\"}},"
+      + "{\"name\":\"l\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"f\",\"type\":{\"type\":\"array\",\"items\":\"float\"}},"
+      + "{\"name\":\"d\",\"type\":{\"type\":\"array\",\"items\":\"double\"}},"
+      + "{\"name\":\"b\",\"type\":{\"type\":\"array\",\"items\":\"boolean\"}}]}");
+
+  private static final int COUNT = 1000;
+
+  private final String kind;
+  private final int[] ints = new int[COUNT];
+  private final long[] longs = new long[COUNT];
+  private final float[] floats = new float[COUNT];
+  private final double[] doubles = new double[COUNT];
+  private final boolean[] booleans = new boolean[COUNT];
+
+  public TestBulkPrimitives(String kind) {
+    this.kind = kind;
+    Random random = new Random(7);
+    for (int i = 0; i < COUNT; i++) {
+      ints[i] = random.nextInt() >> random.nextInt(32);
+      longs[i] = random.nextLong() >> random.nextInt(64);
+      floats[i] = random.nextFloat() * random.nextInt();
+      doubles[i] = random.nextGaussian() * random.nextLong();
+      booleans[i] = random.nextBoolean();
+    }
+    ints[0] = Integer.MIN_VALUE;
+    longs[0] = Long.MAX_VALUE;
+    floats[0] = Float.NaN;
+    doubles[0] = Double.NEGATIVE_INFINITY;
+  }
+
+  @Parameters
+  public static Collection<Object[]> data() {
+    return Arrays.asList(new Object[][] {
+        { "buffered" }, { "direct" }, { "blocking" }, { "validating" }
+    });
+  }
+
+  private Encoder encoder(ByteArrayOutputStream out) throws IOException {
+    EncoderFactory factory = new EncoderFactory()
+      .configureBufferSize(32).configureBlockSize(64);
+    if ("direct".equals(kind)) {
+      return factory.directBinaryEncoder(out, null);
+    } else if ("blocking".equals(kind)) {
+      return factory.blockingBinaryEncoder(out, null);
+    } else if ("validating".equals(kind)) {
+      return factory.validatingEncoder(SCHEMA,
+          factory.binaryEncoder(out, null));
+    }
+    return factory.binaryEncoder(out, null);
+  }
+
+  private byte[] write(boolean bulk) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = encoder(out);
+    for (int field = 0; field < 5; field++) {
+      e.writeArrayStart();
+      e.setItemCount(COUNT);
+      for (int i = 0; i < COUNT; i += 300) {
+        int len = Math.min(300, COUNT - i);
+        if (bulk) {
+          writeBulk(e, field, i, len);
+        } else {
+          writeItems(e, field, i, len);
+        }
+      }
+      e.writeArrayEnd();
+    }
+    e.flush();
+    return out.toByteArray();
+  }
+
+  private void writeBulk(Encoder e, int field, int off, int len)
+    throws IOException {
+    switch (field) {
+    case 0: e.writeInts(ints, off, len); break;
+    case 1: e.writeLongs(longs, off, len); break;
+    case 2: e.writeFloats(floats, off, len); break;
+    case 3: e.writeDoubles(doubles, off, len); break;
+    default: e.writeBooleans(booleans, off, len); break;
+    }
+  }
+
+  private void writeItems(Encoder e, int field, int off, int len)
+    throws IOException {
+    for (int i = off; i < off + len; i++) {
+      e.startItem();
+      switch (field) {
+      case 0: e.writeInt(ints[i]); break;
+      case 1: e.writeLong(longs[i]); break;
+      case 2: e.writeFloat(floats[i]); break;
+      case 3: e.writeDouble(doubles[i]); break;
+      default: e.writeBoolean(booleans[i]); break;
+      }
+    }
+  }
+
+  private void read(Decoder d) throws IOException {
+    int[] i = new int[COUNT];
+    long[] l = new long[COUNT];
+    float[] f = new float[COUNT];
+    double[] dd = new double[COUNT];
+    boolean[] b = new boolean[COUNT];
+    int n = 0;
+    for (long block = d.readArrayStart(); block != 0; block = d.arrayNext()) {
+      d.readInts(i, n, (int) block);
+      n += block;
+    }
+    assertEquals(COUNT, n);
+    n = 0;
+    for (long block = d.readArrayStart(); block != 0; block = d.arrayNext()) {
+      d.readLongs(l, n, (int) block);
+      n += block;
+    }
+    assertEquals(COUNT, n);
+    n = 0;
+    for (long block = d.readArrayStart(); block != 0; block = d.arrayNext()) {
+      d.readFloats(f, n, (int) block);
+      n += block;
+    }
+    assertEquals(COUNT, n);
+    n = 0;
+    for (long block = d.readArrayStart(); block != 0; block = d.arrayNext()) {
+      d.readDoubles(dd, n, (int) block);
+      n += block;
+    }
+    assertEquals(COUNT, n);
+    n = 0;
+    for (long block = d.readArrayStart(); block != 0; block = d.arrayNext()) {
+      d.readBooleans(b, n, (int) block);
+      n += block;
+    }
+    assertEquals(COUNT, n);
+    assertArrayEquals(ints, i);
+    assertArrayEquals(longs, l);
+    assertArrayEquals(floats, f, 0);
+    assertArrayEquals(doubles, dd, 0);
+    assertTrue(Arrays.equals(booleans, b));
+  }
+
+  @Test
+  public void testSameAsItems() throws IOException {
+    assertArrayEquals(write(false), write(true));
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    byte[] bytes = write(true);
+    DecoderFactory factory = new DecoderFactory().configureDecoderBufferSize(32);
+    read(factory.binaryDecoder(bytes, null));
+    read(factory.binaryDecoder(new ByteArrayInputStream(bytes), null));
+    read(factory.directBinaryDecoder(new ByteArrayInputStream(bytes), null));
+    read(factory.binaryDecoder(ByteBuffer.wrap(bytes), null));
+    read(factory.validatingDecoder(SCHEMA,
+        factory.binaryDecoder(bytes, null)));
+    read(factory.resolvingDecoder(SCHEMA, SCHEMA,
+        factory.binaryDecoder(bytes, null)));
+    read(factory.configureFlatGrammar(true).resolvingDecoder(SCHEMA, SCHEMA,
+        factory.binaryDecoder(bytes, null)));
+  }
+
+  @Test
+  public void testPromotion() throws IOException {
+    Schema writer = Schema.createArray(Schema.create(Schema.Type.INT));
+    Schema reader = Schema.createArray(Schema.create(Schema.Type.DOUBLE));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = encoder(out);
+    if ("validating".equals(kind)) {
+      e = EncoderFactory.get().validatingEncoder(writer,
+          EncoderFactory.get().binaryEncoder(out, null));
+    }
+    e.writeArrayStart();
+    e.setItemCount(COUNT);
+    e.writeInts(ints, 0, COUNT);
+    e.writeArrayEnd();
+    e.flush();
+
+    Decoder d = DecoderFactory.get().resolvingDecoder(writer, reader,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    double[] actual = new double[COUNT];
+    int n = 0;
+    for (long block = d.readArrayStart(); block != 0; block = d.arrayNext()) {
+      d.readDoubles(actual, n, (int) block);
+      n += block;
+    }
+    assertEquals(COUNT, n);
+    for (int i = 0; i < COUNT; i++) {
+      assertEquals(ints[i], actual[i], 0);
+    }
+  }
+}
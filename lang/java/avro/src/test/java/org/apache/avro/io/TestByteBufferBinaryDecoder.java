@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestByteBufferBinaryDecoder {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":3}},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"string\"]}}]}");
+
+  private final String kind;
+
+  public TestByteBufferBinaryDecoder(String kind) {
+    this.kind = kind;
+  }
+
+  @Parameters
+  public static Collection<Object[]> data() {
+    return Arrays.asList(new Object[][] {
+        { "heap" }, { "direct" }, { "readOnly" }
+    });
+  }
+
+  /** Returns a buffer of the tested kind with <tt>bytes</tt> between its
+   * position and limit, and garbage around. */
+  private ByteBuffer wrap(byte[] bytes) {
+    ByteBuffer buffer = "direct".equals(kind)
+        ? ByteBuffer.allocateDirect(bytes.length + 6)
+        : ByteBuffer.allocate(bytes.length + 6);
+    buffer.put(new byte[] { -1, -1, -1 }).put(bytes).put(new byte[] { -1, -1, -1 });
+    buffer.position(3).limit(3 + bytes.length);
+    buffer = buffer.slice();
+    return "readOnly".equals(kind) ? buffer.asReadOnlyBuffer() : buffer;
+  }
+
+  @Test
+  public void testGenericRoundTrip() throws IOException {
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(SCHEMA);
+    BinaryDecoder decoder = null;
+    for (Object datum : new RandomData(SCHEMA, 200, 42)) {
+      ByteBuffer buffer = wrap(write(datum));
+      decoder = DecoderFactory.get().binaryDecoder(buffer, decoder);
+      assertEquals(datum, reader.read(null, decoder));
+      assertTrue(decoder.isEnd());
+      assertEquals(0, buffer.position());
+    }
+  }
+
+  @Test
+  public void testPrimitivesAtEnd() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+    long[] longs = { 0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE };
+    int[] ints = { 0, -1, 64, Integer.MIN_VALUE, Integer.MAX_VALUE };
+    for (long l : longs) {
+      e.writeLong(l);
+    }
+    for (int i : ints) {
+      e.writeInt(i);
+    }
+    e.writeFloat(1.5f);
+    e.writeDouble(-2.25);
+    e.flush();
+    BinaryDecoder d = DecoderFactory.get().binaryDecoder(wrap(out.toByteArray()), null);
+    for (long l : longs) {
+      assertEquals(l, d.readLong());
+    }
+    for (int i : ints) {
+      assertEquals(i, d.readInt());
+    }
+    assertEquals(1.5f, d.readFloat(), 0);
+    assertEquals(-2.25, d.readDouble(), 0);
+    assertTrue(d.isEnd());
+  }
+
+  @Test
+  public void testSliceBytes() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+    e.writeBytes(new byte[] { 1, 2, 3 });
+    e.writeString(new Utf8("xyz"));
+    e.flush();
+    ByteBuffer buffer = wrap(out.toByteArray());
+    BinaryDecoder d = new DecoderFactory().configureSliceBytes(true)
+        .binaryDecoder(buffer, null);
+    ByteBuffer old = ByteBuffer.allocate(10);
+    ByteBuffer bytes = d.readBytes(old);
+    assertFalse(bytes == old);
+    assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), bytes);
+    assertEquals(buffer.isDirect(), bytes.isDirect());
+    assertEquals(buffer.isReadOnly(), bytes.isReadOnly());
+    assertEquals("xyz", d.readString());
+    assertTrue(d.isEnd());
+
+    d = DecoderFactory.get().binaryDecoder(buffer, null);
+    assertSame(old, d.readBytes(old));
+  }
+
+  @Test
+  public void testInputStream() throws IOException {
+    BinaryDecoder d = DecoderFactory.get().binaryDecoder(wrap(new byte[] { 2, 7, 8, 9 }), null);
+    assertEquals(1, d.readInt());
+    assertEquals(3, d.inputStream().available());
+    assertEquals(7, d.inputStream().read());
+    byte[] rest = new byte[4];
+    assertEquals(2, d.inputStream().read(rest, 0, 4));
+    assertEquals(-1, d.inputStream().read());
+    assertTrue(d.isEnd());
+  }
+
+  @Test(expected = EOFException.class)
+  public void testTruncatedVarint() throws IOException {
+    DecoderFactory.get().binaryDecoder(wrap(new byte[] { (byte) 0x80 }), null).readLong();
+  }
+
+  @Test(expected = EOFException.class)
+  public void testTruncatedString() throws IOException {
+    DecoderFactory.get().binaryDecoder(wrap(new byte[] { 6, 'a' }), null).readString();
+  }
+
+  @Test(expected = EOFException.class)
+  public void testTruncatedDouble() throws IOException {
+    DecoderFactory.get().binaryDecoder(wrap(new byte[4]), null).readDouble();
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidInt() throws IOException {
+    DecoderFactory.get().binaryDecoder(wrap(new byte[] { -1, -1, -1, -1, -1, 1 }), null).readInt();
+  }
+
+  @Test(expected = AvroRuntimeException.class)
+  public void testNegativeSkip() throws IOException {
+    // a length of -1, which must not move back
+    DecoderFactory.get().binaryDecoder(wrap(new byte[] { 1, 'a', 'b' }), null).skipBytes();
+  }
+
+  private static byte[] write(Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<Object>(SCHEMA).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+}
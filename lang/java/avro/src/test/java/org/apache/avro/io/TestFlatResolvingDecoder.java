@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.RandomData;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.parsing.FlatGrammar;
+import org.apache.avro.io.parsing.JsonGrammarGenerator;
+import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
+import org.junit.Test;
+
+public class TestFlatResolvingDecoder {
+
+  private static final Schema WRITER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"gone\",\"type\":{\"type\":\"array\",\"items\":[\"string\",\"R\"]}},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":4}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"long\"]},"
+      + "{\"name\":\"w\",\"type\":\"int\"},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"int\"}},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"R\"]}]}");
+
+  private static final Schema READER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"next\",\"type\":[\"null\",\"R\"]},"
+      + "{\"name\":\"i\",\"type\":\"long\"},"
+      + "{\"name\":\"l\",\"type\":\"double\"},"
+      + "{\"name\":\"f\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"bytes\"},"
+      + "{\"name\":\"by\",\"type\":\"string\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":4}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"C\",\"B\",\"A\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"long\",\"string\"]},"
+      + "{\"name\":\"w\",\"type\":[\"null\",\"long\"]},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"long\"}},"
+      + "{\"name\":\"def\",\"type\":{\"type\":\"array\",\"items\":\"int\"},\"default\":[1,2]}]}");
+
+  private static final DecoderFactory FLAT = new DecoderFactory().configureFlatGrammar(true);
+  private static final DecoderFactory TREE = new DecoderFactory().configureFlatGrammar(false);
+
+  @Test
+  public void testSameAsSymbolParser() throws IOException {
+    for (Object datum : new RandomData(WRITER, 200, 7)) {
+      byte[] bytes = write(WRITER, datum);
+      assertEquals(read(WRITER, WRITER, bytes, TREE), read(WRITER, WRITER, bytes, FLAT));
+      assertEquals(read(WRITER, READER, bytes, TREE), read(WRITER, READER, bytes, FLAT));
+    }
+  }
+
+  @Test
+  public void testResolvingCalls() throws IOException {
+    for (Object[] test : TestResolvingIOResolving.data3()) {
+      TestValidatingIO.Encoding encoding = (TestValidatingIO.Encoding) test[0];
+      if (encoding == TestValidatingIO.Encoding.JSON) {
+        continue;
+      }
+      Schema writer = new Schema.Parser().parse((String) test[2]);
+      Schema reader = new Schema.Parser().parse((String) test[5]);
+      byte[] bytes = TestValidatingIO.make(writer, (String) test[3], (Object[]) test[4], encoding);
+      Decoder in = new FlatResolvingDecoder(writer, reader,
+          DecoderFactory.get().binaryDecoder(bytes, null));
+      TestValidatingIO.check(in, (String) test[6], (Object[]) test[7], (Integer) test[1]);
+    }
+  }
+
+  @Test
+  public void testErrorAction() throws IOException {
+    Schema w = new Schema.Parser().parse("{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\"]}");
+    Schema r = new Schema.Parser().parse("{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\"]}");
+    byte[] bytes = write(w, new GenericData.EnumSymbol(w, "B"));
+    try {
+      read(w, r, bytes, FLAT);
+      fail();
+    } catch (AvroTypeException expected) {
+      assertEquals("No match for B", expected.getMessage());
+    }
+  }
+
+  @Test
+  public void testFactory() throws IOException {
+    assertTrue(FLAT.resolvingDecoder(WRITER, READER, null) instanceof FlatResolvingDecoder);
+    assertFalse(TREE.resolvingDecoder(WRITER, READER, null) instanceof FlatResolvingDecoder);
+    try {
+      DecoderFactory.get().configureFlatGrammar(true);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // the default factory is immutable
+    }
+  }
+
+  @Test
+  public void testGrammarIsShared() {
+    FlatGrammar grammar = ResolvingGrammarGenerator.getOrCreateFlat(WRITER, READER);
+    assertEquals(FlatGrammar.OP_ROOT, grammar.op(grammar.root()));
+    assertEquals(FlatGrammar.OP_TERMINAL, grammar.op(FlatGrammar.LONG));
+    assertTrue(grammar == ResolvingGrammarGenerator.getOrCreateFlat(
+        new Schema.Parser().parse(WRITER.toString()), new Schema.Parser().parse(READER.toString())));
+  }
+
+  @Test
+  public void testCompilesJsonGrammar() {
+    FlatGrammar grammar = FlatGrammar.compile(JsonGrammarGenerator.getRootSymbol(READER));
+    assertEquals(FlatGrammar.OP_ROOT, grammar.op(grammar.root()));
+    assertEquals(FlatGrammar.OP_TERMINAL, grammar.op(FlatGrammar.MAP_KEY_MARKER));
+  }
+
+  private static byte[] write(Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<Object>(schema).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static Object read(Schema writer, Schema reader, byte[] bytes,
+      DecoderFactory factory) throws IOException {
+    ResolvingDecoder in = factory.resolvingDecoder(writer, reader,
+        DecoderFactory.get().binaryDecoder(bytes, null));
+    Object result = new Reader(reader).read(in);
+    in.drain();
+    return result;
+  }
+
+  /** Reads through a given resolving decoder. */
+  private static class Reader extends GenericDatumReader<Object> {
+    Reader(Schema schema) {
+      super(schema);
+    }
+
+    Object read(ResolvingDecoder in) throws IOException {
+      return read(null, getExpected(), in);
+    }
+  }
+}
@@ -22,6 +22,7 @@ import org.apache.avro.SchemaBuilder;
 import org.apache.avro.SchemaValidationException;
 import org.apache.avro.SchemaValidatorBuilder;
 import org.apache.avro.Schema;
+import org.apache.avro.util.BoundedCache;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -140,4 +141,38 @@ public class TestResolvingGrammarGenerator2 {
         grammar.production[1];
     Assert.assertEquals(4, action.rindex);
   }
+
+  @Test
+  public void testSymbolCache() {
+    Schema writer = new Schema.Parser().parse(point3d.toString());
+    Schema reader = new Schema.Parser().parse(point2d.toString());
+    BoundedCache<?, Symbol> cache = ResolvingGrammarGenerator.resolvingGrammarCache();
+    Symbol root = ResolvingGrammarGenerator.getOrCreate(writer, reader);
+    long hits = cache.hitCount();
+    // equal schemas share the grammar
+    Assert.assertSame(root, ResolvingGrammarGenerator.getOrCreate(point3d, point2d));
+    Assert.assertEquals(hits + 1, cache.hitCount());
+    Assert.assertTrue(cache.weight() >= GrammarCache.weigh(root));
+    Assert.assertTrue(cache.size() <= cache.getMaxSize());
+
+    // the reader default is part of the key
+    Schema otherDefault = SchemaBuilder.record("Point3D").fields()
+        .requiredDouble("x")
+        .requiredDouble("y")
+        .name("z").type().doubleType().doubleDefault(1.0)
+        .endRecord();
+    Assert.assertNotSame(ResolvingGrammarGenerator.getOrCreate(point2d, point3d),
+        ResolvingGrammarGenerator.getOrCreate(point2d, otherDefault));
+
+    Assert.assertSame(ValidatingGrammarGenerator.getRootSymbol(point2d),
+        ValidatingGrammarGenerator.getRootSymbol(reader));
+    Assert.assertTrue(ValidatingGrammarGenerator.validatingGrammarCache().hitCount() > 0);
+  }
+
+  @Test
+  public void testWeigh() {
+    Assert.assertEquals(1, GrammarCache.weigh(Symbol.INT));
+    // the root and the double terminal, counted once
+    Assert.assertEquals(2, GrammarCache.weigh(ValidatingGrammarGenerator.generateRoot(point2d)));
+  }
 }
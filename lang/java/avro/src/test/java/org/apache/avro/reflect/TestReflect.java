@@ -121,6 +121,21 @@ public class TestReflect {
     assertEquals(1, data.resolveUnion(s, map));
   }
 
+  @Test public void testUnionWithMapByKeys() {
+    Schema s = new Schema.Parser().parse
+      ("[{\"type\":\"map\",\"values\":\"float\"},"
+       + "{\"type\":\"array\",\"items\":\"float\"}]");
+    GenericData data = ReflectData.get();
+    HashMap<String,Float> strings = new HashMap<String,Float>();
+    strings.put("foo", 1.0f);
+    HashMap<Integer,Float> ints = new HashMap<Integer,Float>();
+    ints.put(1, 1.0f);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(0, data.resolveUnion(s, strings));
+      assertEquals(1, data.resolveUnion(s, ints));
+    }
+  }
+
   @Test public void testUnionWithFixed() {
     Schema s = new Schema.Parser().parse
         ("[\"null\", {\"type\":\"fixed\",\"name\":\"f\",\"size\":1}]");
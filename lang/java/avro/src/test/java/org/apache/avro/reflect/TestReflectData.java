@@ -17,7 +17,7 @@ public class TestReflectData {
     int numSchemas = 1000000;
     for (int i = 0; i < numSchemas; i++) {
       // Create schema
-      Schema schema = Schema.createRecord("schema", null, null, false);
+      Schema schema = Schema.createRecord("schema" + i, null, null, false);
       schema.setFields(Collections.<Schema.Field>emptyList());
 
       ReflectData.get().getRecordState(new Object(), schema);
@@ -30,6 +30,6 @@ public class TestReflectData {
     System.gc(); // Not guaranteed, but seems to be reliable enough
 
     assertThat("ReflectData cache should release references",
-        classData.bySchema.size(), lessThan(numSchemas));
+        classData.schemaCount(), lessThan(numSchemas));
   }
 }
@@ -17,9 +17,18 @@
  */
 package org.apache.avro.reflect;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Date;
 
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
 import org.junit.Test;
 
 public class TestReflectionUtil {
@@ -36,11 +45,94 @@ public class TestReflectionUtil {
     testerClass.getDeclaredMethod("checkUnsafe").invoke(testerClass.newInstance());
   }
   
+  @Test
+  public void testHandleWhenNotExists() throws Exception {
+    ClassLoader cl = new NoUnsafe();
+    Class<?> testerClass = cl.loadClass(Tester.class.getName());
+    assertEquals("FieldAccessHandle", testerClass
+        .getDeclaredMethod("fieldAccessName").invoke(testerClass.newInstance()));
+  }
+
+  @Test
+  public void testHandleAccess() throws Exception {
+    checkAccess("handle", FieldAccessHandle.class);
+  }
+
+  @Test
+  public void testReflectAccess() throws Exception {
+    checkAccess("reflect", FieldAccessReflect.class);
+  }
+
+  private static void checkAccess(String name, Class<?> expected)
+    throws Exception {
+    String saved = System.getProperty("avro.reflect.fieldAccess");
+    try {
+      System.setProperty("avro.reflect.fieldAccess", name);
+      ReflectData.ACCESSOR_CACHE.remove(Primitives.class);
+      ReflectionUtil.resetFieldAccess();
+      assertTrue(expected.isInstance(ReflectionUtil.getFieldAccess()));
+      Primitives p = new Primitives();
+      assertEquals(p, roundTrip(p));
+      assertEquals(123, ReflectData.get().getField(p, "i", 3));
+      ReflectData.get().setField(p, "l", 4, -7L);
+      assertEquals(-7L, p.l);
+    } finally {
+      if (saved == null)
+        System.clearProperty("avro.reflect.fieldAccess");
+      else
+        System.setProperty("avro.reflect.fieldAccess", saved);
+      ReflectData.ACCESSOR_CACHE.remove(Primitives.class);
+      ReflectionUtil.resetFieldAccess();
+    }
+  }
+
+  private static Primitives roundTrip(Primitives p) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = EncoderFactory.get().binaryEncoder(out, null);
+    new ReflectDatumWriter<Primitives>(Primitives.class).write(p, e);
+    e.flush();
+    Decoder d = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    return new ReflectDatumReader<Primitives>(Primitives.class).read(null, d);
+  }
+
+  public static class Primitives {
+    private boolean b = true;
+    private byte by = -3;
+    private char c = 'c';
+    private short s = -321;
+    private int i = 123;
+    private long l = Long.MIN_VALUE;
+    private float f = 2.5f;
+    private double d = -4.25;
+    private final String str = "final";
+    @AvroEncode(using=DateAsLongEncoding.class)
+    private Date date = new Date(12345);
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Primitives))
+        return false;
+      Primitives that = (Primitives) o;
+      return b == that.b && by == that.by && c == that.c && s == that.s
+        && i == that.i && l == that.l && f == that.f && d == that.d
+        && str.equals(that.str) && date.equals(that.date);
+    }
+
+    @Override
+    public int hashCode() {
+      return i;
+    }
+  }
+
   public static final class Tester {
     public Tester() {}
     public void checkUnsafe() {
       ReflectionUtil.getFieldAccess();
     }
+
+    public String fieldAccessName() {
+      return ReflectionUtil.getFieldAccess().getClass().getSimpleName();
+    }
     
   }
 
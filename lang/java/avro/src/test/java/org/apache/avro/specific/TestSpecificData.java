@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.avro.FooBarSpecificRecord;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.Schema.Type;
@@ -139,6 +140,22 @@ public class TestSpecificData {
     assertEquals("str", record.get("y"));
   }
 
+  @Test
+  public void testIsSchemaOf() {
+    SpecificData data = new SpecificData();
+    TestRecord record = new TestRecord();
+    Schema copy = new Schema.Parser().parse(record.getSchema().toString());
+    Schema other = Schema.createRecord("TestRecord", null, null, false,
+        Arrays.asList(new Field("x", Schema.create(Type.INT), null, null)));
+    for (int i = 0; i < 2; i++) {
+      assertTrue(data.isSchemaOf(record, record.getSchema()));
+      assertTrue(data.isSchemaOf(record, copy));
+      assertFalse(data.isSchemaOf(record, other));
+    }
+    // a record of another class is compared with its own schema
+    assertFalse(data.isSchemaOf(new FooBarSpecificRecord(), copy));
+  }
+
   @Test public void testExternalizeable() throws Exception {
     final TestRecord before = new TestRecord();
     before.put("x", 1);
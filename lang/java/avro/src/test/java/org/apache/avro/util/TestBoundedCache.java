@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestBoundedCache {
+
+  @Test
+  public void testCounters() {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>(10, 100, s -> 1, BoundedCache.Policy.LRU);
+    assertEquals("1", cache.computeIfAbsent(1, String::valueOf));
+    assertEquals("1", cache.computeIfAbsent(1, k -> "other"));
+    assertNull(cache.getIfPresent(2));
+    assertEquals(1, cache.hitCount());
+    assertEquals(2, cache.missCount());
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.weight());
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.weight());
+    assertEquals(0, cache.evictionCount());
+  }
+
+  /** Grammars computed for the cache may need other cached grammars. */
+  @Test
+  public void testRecursiveCompute() {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>(1000, Long.MAX_VALUE, s -> 1, BoundedCache.Policy.LRU);
+    assertEquals("0", chain(cache, 500));
+    assertEquals(501, cache.size());
+  }
+
+  private static String chain(BoundedCache<Integer, String> cache, int n) {
+    return cache.computeIfAbsent(n,
+        k -> k == 0 ? "0" : chain(cache, k - 1));
+  }
+
+  @Test
+  public void testSizeBound() {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>(32, Long.MAX_VALUE, s -> 1, BoundedCache.Policy.LRU);
+    for (int i = 0; i < 1000; i++) {
+      cache.computeIfAbsent(i, String::valueOf);
+      assertTrue(cache.size() <= 32);
+    }
+    assertEquals(1000 - cache.size(), cache.evictionCount());
+  }
+
+  @Test
+  public void testWeightBound() {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>(1000, 100, String::length, BoundedCache.Policy.TINY_LFU);
+    for (int i = 0; i < 1000; i++) {
+      cache.computeIfAbsent(i, k -> "0123456789");
+      assertTrue(cache.weight() <= 100);
+    }
+    assertEquals(cache.size() * 10, cache.weight());
+  }
+
+  @Test
+  public void testLruKeepsRecent() {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>(16, Long.MAX_VALUE, s -> 1, BoundedCache.Policy.LRU);
+    for (int i = 0; i < 16; i++) {
+      cache.computeIfAbsent(i, String::valueOf);
+    }
+    cache.getIfPresent(0);
+    cache.computeIfAbsent(16, String::valueOf);
+    assertNotNull(cache.getIfPresent(0));
+    assertNull(cache.getIfPresent(1));
+    assertNotNull(cache.getIfPresent(16));
+  }
+
+  @Test
+  public void testTinyLfuKeepsFrequent() {
+    BoundedCache<Integer, String> cache =
+        new BoundedCache<>(100, Long.MAX_VALUE, s -> 1, BoundedCache.Policy.TINY_LFU);
+    // scans of one-off keys must not flush the keys that are used throughout
+    for (int i = 1000; i < 5000; i++) {
+      if (i % 100 == 0) {
+        for (int j = 0; j < 50; j++) {
+          cache.computeIfAbsent(j, String::valueOf);
+        }
+      }
+      cache.computeIfAbsent(i, String::valueOf);
+    }
+    long misses = cache.missCount();
+    for (int i = 0; i < 50; i++) {
+      cache.computeIfAbsent(i, String::valueOf);
+    }
+    assertEquals(misses, cache.missCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBounds() {
+    new BoundedCache<Integer, String>(0, 1, s -> 1, BoundedCache.Policy.LRU);
+  }
+}
@@ -897,6 +897,295 @@ public class SpecificCompiler {
     }
   }
 
+  /** Utility for template use.  Returns true if customEncode/customDecode
+   * methods can be generated for a record schema: all fields must be
+   * primitives, strings without a custom class, fixed, enums, records,
+   * arrays, maps or unions of null with one other type, and no schema
+   * may have a logical type. */
+  public boolean isCustomCodable(Schema schema) {
+    if (schema.isError()) return false;
+    return isCustomCodable(schema, new HashSet<Schema>());
+  }
+
+  private boolean isCustomCodable(Schema schema, Set<Schema> seen) {
+    if (schema.getLogicalType() != null) return false;
+    switch (schema.getType()) {
+    case RECORD:
+      if (schema.isError()) return false;
+      if (!seen.add(schema)) return true;
+      for (Field f : schema.getFields())
+        if (!isCustomCodable(f.schema(), seen)) return false;
+      return true;
+    case ARRAY:
+      return isCustomCodable(schema.getElementType(), seen);
+    case MAP:
+      return schema.getProp(SpecificData.KEY_CLASS_PROP) == null
+        && isCustomCodable(schema.getValueType(), seen);
+    case UNION:
+      List<Schema> types = schema.getTypes();
+      return types.size() == 2 && types.contains(NULL_SCHEMA)
+        && isCustomCodable(types.get(types.get(0).equals(NULL_SCHEMA) ? 1 : 0), seen);
+    case STRING:
+      return schema.getProp(SpecificData.CLASS_PROP) == null;
+    default:
+      return true;
+    }
+  }
+
+  /** Utility for template use.  Returns the body of the customEncode method
+   * of a record for which {@link #isCustomCodable(Schema)} is true. */
+  public String generateCustomEncode(Schema schema, int indentation) {
+    StringBuilder sb = new StringBuilder(256);
+    int[] vars = new int[1];
+    for (Field f : schema.getFields())
+      encodeVar(sb, indentation, "this." + mangle(f.name()), f.schema(), vars);
+    return sb.toString();
+  }
+
+  /** Utility for template use.  Returns the body of the customDecode method
+   * of a record for which {@link #isCustomCodable(Schema)} is true. */
+  public String generateCustomDecode(Schema schema, int indentation) {
+    StringBuilder sb = new StringBuilder(512);
+    int[] vars = new int[1];
+    List<Field> fields = schema.getFields();
+    line(sb, indentation, "org.apache.avro.Schema.Field[] fieldOrder$ = in instanceof org.apache.avro.io.ResolvingDecoder");
+    line(sb, indentation, "  ? ((org.apache.avro.io.ResolvingDecoder) in).readFieldOrderIfDiff() : null;");
+    line(sb, indentation, "if (fieldOrder$ == null) {");
+    for (Field f : fields)
+      decodeVar(sb, indentation + 2, "this." + mangle(f.name()), f.schema(), fieldSchema(f), vars);
+    line(sb, indentation, "} else {");
+    line(sb, indentation, "  for (int i$ = 0; i$ < " + fields.size() + "; i$++) {");
+    line(sb, indentation, "    switch (fieldOrder$[i$].pos()) {");
+    for (Field f : fields) {
+      line(sb, indentation, "    case " + f.pos() + ":");
+      decodeVar(sb, indentation + 6, "this." + mangle(f.name()), f.schema(), fieldSchema(f), vars);
+      line(sb, indentation, "      break;");
+    }
+    line(sb, indentation, "    default:");
+    line(sb, indentation, "      throw new java.io.IOException(\"Corrupt ResolvingDecoder.\");");
+    line(sb, indentation, "    }");
+    line(sb, indentation, "  }");
+    line(sb, indentation, "}");
+    return sb.toString();
+  }
+
+  private static String fieldSchema(Field f) {
+    return "SCHEMA$.getField(\"" + javaEscape(f.name()) + "\").schema()";
+  }
+
+  private static void line(StringBuilder sb, int indentation, String code) {
+    indent(sb, indentation);
+    sb.append(code).append('\n');
+  }
+
+  private void encodeVar(StringBuilder sb, int ind, String var, Schema s, int[] vars) {
+    switch (s.getType()) {
+    case NULL:
+      line(sb, ind, "out.writeNull();");
+      break;
+    case BOOLEAN:
+      line(sb, ind, "out.writeBoolean(" + var + ");");
+      break;
+    case INT:
+      line(sb, ind, "out.writeInt(" + var + ");");
+      break;
+    case LONG:
+      line(sb, ind, "out.writeLong(" + var + ");");
+      break;
+    case FLOAT:
+      line(sb, ind, "out.writeFloat(" + var + ");");
+      break;
+    case DOUBLE:
+      line(sb, ind, "out.writeDouble(" + var + ");");
+      break;
+    case STRING:
+      line(sb, ind, "out.writeString(" + var + ");");
+      break;
+    case BYTES:
+      line(sb, ind, "out.writeBytes(" + var + ");");
+      break;
+    case FIXED:
+      line(sb, ind, "out.writeFixed(" + var + ".bytes(), 0, " + s.getFixedSize() + ");");
+      break;
+    case ENUM:
+      line(sb, ind, "out.writeEnum(" + var + ".ordinal());");
+      break;
+    case RECORD:
+      line(sb, ind, var + ".customEncode(out);");
+      break;
+    case ARRAY: {
+      int n = vars[0]++;
+      String size = "size" + n, actual = "actualSize" + n, e = "e" + n;
+      line(sb, ind, "long " + size + " = " + var + ".size();");
+      line(sb, ind, "out.writeArrayStart();");
+      line(sb, ind, "out.setItemCount(" + size + ");");
+      line(sb, ind, "long " + actual + " = 0;");
+      line(sb, ind, "for (" + javaType(s.getElementType()) + " " + e + " : " + var + ") {");
+      line(sb, ind, "  " + actual + "++;");
+      line(sb, ind, "  out.startItem();");
+      encodeVar(sb, ind + 2, e, s.getElementType(), vars);
+      line(sb, ind, "}");
+      line(sb, ind, "out.writeArrayEnd();");
+      line(sb, ind, "if (" + actual + " != " + size + ")");
+      line(sb, ind, "  throw new java.util.ConcurrentModificationException(\"Array-size written was \" + "
+        + size + " + \", but element count was \" + " + actual + " + \".\");");
+      break;
+    }
+    case MAP: {
+      int n = vars[0]++;
+      String size = "size" + n, actual = "actualSize" + n, e = "e" + n;
+      line(sb, ind, "long " + size + " = " + var + ".size();");
+      line(sb, ind, "out.writeMapStart();");
+      line(sb, ind, "out.setItemCount(" + size + ");");
+      line(sb, ind, "long " + actual + " = 0;");
+      line(sb, ind, "for (java.util.Map.Entry<" + getStringType(null) + ", "
+        + javaType(s.getValueType()) + "> " + e + " : " + var + ".entrySet()) {");
+      line(sb, ind, "  " + actual + "++;");
+      line(sb, ind, "  out.startItem();");
+      line(sb, ind, "  out.writeString(" + e + ".getKey());");
+      encodeVar(sb, ind + 2, e + ".getValue()", s.getValueType(), vars);
+      line(sb, ind, "}");
+      line(sb, ind, "out.writeMapEnd();");
+      line(sb, ind, "if (" + actual + " != " + size + ")");
+      line(sb, ind, "  throw new java.util.ConcurrentModificationException(\"Map-size written was \" + "
+        + size + " + \", but element count was \" + " + actual + " + \".\");");
+      break;
+    }
+    case UNION: {
+      int nullIndex = s.getTypes().indexOf(NULL_SCHEMA);
+      line(sb, ind, "if (" + var + " == null) {");
+      line(sb, ind, "  out.writeIndex(" + nullIndex + ");");
+      line(sb, ind, "  out.writeNull();");
+      line(sb, ind, "} else {");
+      line(sb, ind, "  out.writeIndex(" + (1 - nullIndex) + ");");
+      encodeVar(sb, ind + 2, var, s.getTypes().get(1 - nullIndex), vars);
+      line(sb, ind, "}");
+      break;
+    }
+    default:
+      throw new RuntimeException("Unknown type: " + s);
+    }
+  }
+
+  private void decodeVar(StringBuilder sb, int ind, String var, Schema s, String schemaExpr, int[] vars) {
+    switch (s.getType()) {
+    case NULL:
+      line(sb, ind, "in.readNull();");
+      line(sb, ind, var + " = null;");
+      break;
+    case BOOLEAN:
+      line(sb, ind, var + " = in.readBoolean();");
+      break;
+    case INT:
+      line(sb, ind, var + " = in.readInt();");
+      break;
+    case LONG:
+      line(sb, ind, var + " = in.readLong();");
+      break;
+    case FLOAT:
+      line(sb, ind, var + " = in.readFloat();");
+      break;
+    case DOUBLE:
+      line(sb, ind, var + " = in.readDouble();");
+      break;
+    case STRING:
+      decodeString(sb, ind, var, javaType(s), s);
+      break;
+    case BYTES:
+      line(sb, ind, var + " = in.readBytes(" + var + ");");
+      break;
+    case FIXED:
+      line(sb, ind, "if (" + var + " == null) {");
+      line(sb, ind, "  " + var + " = new " + javaType(s) + "();");
+      line(sb, ind, "}");
+      line(sb, ind, "in.readFixed(" + var + ".bytes(), 0, " + s.getFixedSize() + ");");
+      break;
+    case ENUM:
+      line(sb, ind, var + " = " + javaType(s) + ".values()[in.readEnum()];");
+      break;
+    case RECORD:
+      line(sb, ind, "if (" + var + " == null) {");
+      line(sb, ind, "  " + var + " = new " + javaType(s) + "();");
+      line(sb, ind, "}");
+      line(sb, ind, var + ".customDecode(in);");
+      break;
+    case ARRAY: {
+      int n = vars[0]++;
+      String size = "size" + n, a = "a" + n, ga = "ga" + n, e = "e" + n;
+      String et = javaType(s.getElementType());
+      String gat = "org.apache.avro.generic.GenericData.Array<" + et + ">";
+      line(sb, ind, "long " + size + " = in.readArrayStart();");
+      line(sb, ind, "java.util.List<" + et + "> " + a + " = " + var + ";");
+      line(sb, ind, "if (" + a + " == null) {");
+      line(sb, ind, "  " + a + " = new " + gat + "((int) " + size + ", " + schemaExpr + ");");
+      line(sb, ind, "  " + var + " = " + a + ";");
+      line(sb, ind, "} else {");
+      line(sb, ind, "  " + a + ".clear();");
+      line(sb, ind, "}");
+      line(sb, ind, gat + " " + ga + " = (" + a + " instanceof org.apache.avro.generic.GenericData.Array ? ("
+        + gat + ") " + a + " : null);");
+      line(sb, ind, "for ( ; 0 < " + size + "; " + size + " = in.arrayNext()) {");
+      line(sb, ind, "  for ( ; " + size + " != 0; " + size + "--) {");
+      line(sb, ind, "    " + et + " " + e + " = (" + ga + " != null ? " + ga + ".peek() : null);");
+      decodeVar(sb, ind + 4, e, s.getElementType(), schemaExpr + ".getElementType()", vars);
+      line(sb, ind, "    " + a + ".add(" + e + ");");
+      line(sb, ind, "  }");
+      line(sb, ind, "}");
+      break;
+    }
+    case MAP: {
+      int n = vars[0]++;
+      String size = "size" + n, m = "m" + n, k = "k" + n, v = "v" + n;
+      String kt = getStringType(null);
+      String vt = javaType(s.getValueType());
+      line(sb, ind, "long " + size + " = in.readMapStart();");
+      line(sb, ind, "java.util.Map<" + kt + ", " + vt + "> " + m + " = " + var + ";");
+      line(sb, ind, "if (" + m + " == null) {");
+      line(sb, ind, "  " + m + " = new java.util.HashMap<" + kt + ", " + vt + ">((int) " + size + ");");
+      line(sb, ind, "  " + var + " = " + m + ";");
+      line(sb, ind, "} else {");
+      line(sb, ind, "  " + m + ".clear();");
+      line(sb, ind, "}");
+      line(sb, ind, "for ( ; 0 < " + size + "; " + size + " = in.mapNext()) {");
+      line(sb, ind, "  for ( ; " + size + " != 0; " + size + "--) {");
+      line(sb, ind, "    " + kt + " " + k + " = null;");
+      decodeString(sb, ind + 4, k, kt, s);
+      line(sb, ind, "    " + vt + " " + v + " = null;");
+      decodeVar(sb, ind + 4, v, s.getValueType(), schemaExpr + ".getValueType()", vars);
+      line(sb, ind, "    " + m + ".put(" + k + ", " + v + ");");
+      line(sb, ind, "  }");
+      line(sb, ind, "}");
+      break;
+    }
+    case UNION: {
+      int nullIndex = s.getTypes().indexOf(NULL_SCHEMA);
+      line(sb, ind, "if (in.readIndex() != " + nullIndex + ") {");
+      decodeVar(sb, ind + 2, var, s.getTypes().get(1 - nullIndex),
+        schemaExpr + ".getTypes().get(" + (1 - nullIndex) + ")", vars);
+      line(sb, ind, "} else {");
+      line(sb, ind, "  in.readNull();");
+      line(sb, ind, "  " + var + " = null;");
+      line(sb, ind, "}");
+      break;
+    }
+    default:
+      throw new RuntimeException("Unknown type: " + s);
+    }
+  }
+
+  // mirrors SpecificDatumReader.findStringClass for strings and map keys
+  private static void decodeString(StringBuilder sb, int ind, String var, String type, Schema s) {
+    if ("java.lang.String".equals(type)
+        || ("java.lang.CharSequence".equals(type) && "String".equals(s.getProp("avro.java.string")))) {
+      line(sb, ind, var + " = in.readString();");
+    } else if ("org.apache.avro.util.Utf8".equals(type)) {
+      line(sb, ind, var + " = in.readString(" + var + ");");
+    } else {
+      line(sb, ind, var + " = in.readString(" + var + " instanceof org.apache.avro.util.Utf8 ? (org.apache.avro.util.Utf8) "
+        + var + " : null);");
+    }
+  }
+
   public static void main(String[] args) throws Exception {
     //compileSchema(new File(args[0]), new File(args[1]));
     compileProtocol(new File(args[0]), new File(args[1]));
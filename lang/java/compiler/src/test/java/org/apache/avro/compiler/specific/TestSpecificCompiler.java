@@ -17,6 +17,7 @@
  */
 package org.apache.avro.compiler.specific;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -25,11 +26,14 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.equalTo;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -39,9 +43,20 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.avro.AvroTestUtil;
+import org.apache.avro.RandomData;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
 import org.apache.avro.generic.GenericData.StringType;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -103,6 +118,23 @@ public class TestSpecificCompiler {
     assertTrue(compilesWithoutError);
   }
 
+  /** Compiles the generated code and returns a class loader that sees it. */
+  private static ClassLoader compileAndLoad(Collection<SpecificCompiler.OutputFile> outputs)
+          throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager =
+            compiler.getStandardFileManager(null, null, null);
+    File dstDir = AvroTestUtil.tempFile(TestSpecificCompiler.class, "customCoders");
+    List<File> javaFiles = new ArrayList<File>();
+    for (SpecificCompiler.OutputFile o : outputs) {
+      javaFiles.add(o.writeToDestination(null, dstDir));
+    }
+    assertTrue(compiler.getTask(null, fileManager, null, null, null,
+        fileManager.getJavaFileObjects(javaFiles.toArray(new File[javaFiles.size()]))).call());
+    return new URLClassLoader(new URL[] {dstDir.toURI().toURL()},
+        TestSpecificCompiler.class.getClassLoader());
+  }
+
   private static Schema createSampleRecordSchema(int numStringFields, int numDoubleFields) {
     SchemaBuilder.FieldAssembler<Schema> sb = SchemaBuilder.record("sample.record").fields();
     for (int i = 0; i < numStringFields; i++) {
@@ -329,4 +361,84 @@ public class TestSpecificCompiler {
     assertThat("Generated files should contain the same characters in the proper encodings",
       new String(fileInDefaultEncoding), equalTo(new String(fileInDifferentEncoding, differentEncoding)));
   }
+
+  private static final String CODED_SCHEMA =
+      "{\"type\":\"record\",\"name\":\"Coded\",\"namespace\":\"org.apache.avro.codertest\",\"fields\":["
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"js\",\"type\":{\"type\":\"string\",\"avro.java.string\":\"String\"}},"
+      + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"Fx\",\"size\":3}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"En\",\"symbols\":[\"X\",\"Y\",\"Z\"]}},"
+      + "{\"name\":\"ns\",\"type\":[\"null\",\"string\"]},"
+      + "{\"name\":\"sn\",\"type\":[\"long\",\"null\"]},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"map\",\"values\":\"long\"}}},"
+      + "{\"name\":\"inner\",\"type\":[\"null\",{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+      + "{\"name\":\"x\",\"type\":\"int\"},{\"name\":\"next\",\"type\":[\"null\",\"Inner\"]}]}]}]}";
+
+  @Test
+  public void testCustomCoders() throws Exception {
+    Schema schema = new Schema.Parser().parse(CODED_SCHEMA);
+    SpecificCompiler compiler = new SpecificCompiler(schema);
+    assertTrue(compiler.isCustomCodable(schema));
+    compiler.setTemplateDir(velocityTemplateDir);
+    SpecificData data = new SpecificData(compileAndLoad(compiler.compile()));
+    Schema classSchema = data.getSchema(data.getClass(schema));
+    for (Object datum : new RandomData(schema, 50, 11)) {
+      byte[] expected = write(new GenericDatumWriter<Object>(schema), datum);
+      // Writer schema is the compiled one: raw decoder path.
+      Object record = read(new SpecificDatumReader<Object>(classSchema, classSchema, data), expected);
+      assertArrayEquals(expected, write(new SpecificDatumWriter<Object>(classSchema, data), record));
+    }
+  }
+
+  @Test
+  public void testCustomCodersWithResolution() throws Exception {
+    Schema schema = new Schema.Parser().parse(CODED_SCHEMA);
+    // Same record with its fields reversed and one extra field the reader skips.
+    List<Schema.Field> fields = new ArrayList<Schema.Field>();
+    for (Schema.Field f : schema.getFields()) {
+      fields.add(0, new Schema.Field(f.name(), f.schema(), f.doc(), f.defaultVal()));
+    }
+    fields.add(new Schema.Field("extra", Schema.create(Schema.Type.STRING), null, null));
+    Schema writer = Schema.createRecord(schema.getName(), null, schema.getNamespace(), false, fields);
+    SpecificCompiler compiler = new SpecificCompiler(schema);
+    compiler.setTemplateDir(velocityTemplateDir);
+    SpecificData data = new SpecificData(compileAndLoad(compiler.compile()));
+    Schema classSchema = data.getSchema(data.getClass(schema));
+    for (Object datum : new RandomData(writer, 50, 23)) {
+      byte[] bytes = write(new GenericDatumWriter<Object>(writer), datum);
+      Object generic = read(new GenericDatumReader<Object>(writer, schema), bytes);
+      Object specific = read(new SpecificDatumReader<Object>(writer, classSchema, data), bytes);
+      assertArrayEquals(write(new GenericDatumWriter<Object>(schema), generic),
+          write(new SpecificDatumWriter<Object>(classSchema, data), specific));
+    }
+  }
+
+  @Test
+  public void testLogicalTypesAreNotCustomCoded() throws IOException {
+    Schema schema = new Schema.Parser().parse(new File("src/test/resources/test_record.avsc"));
+    SpecificCompiler compiler = new SpecificCompiler(schema);
+    assertFalse(compiler.isCustomCodable(schema));
+    compiler.setTemplateDir(velocityTemplateDir);
+    for (SpecificCompiler.OutputFile o : compiler.compile()) {
+      assertFalse(o.contents.contains("hasCustomCoders"));
+    }
+  }
+
+  private static byte[] write(DatumWriter<Object> writer, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static Object read(DatumReader<Object> reader, byte[] bytes) throws IOException {
+    return reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
 }
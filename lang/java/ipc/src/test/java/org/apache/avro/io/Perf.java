@@ -27,6 +27,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.avro.FooBarSpecificRecord;
 import org.apache.avro.Schema;
@@ -121,6 +125,7 @@ public class Perf {
     BATCHES.put("-reflect", REFLECT);
     new TestDescriptor(ReflectRecordTest.class, "-REFr").add(REFLECT);
     new TestDescriptor(ReflectBigRecordTest.class, "-REFbr").add(REFLECT);
+    new TestDescriptor(ReflectRecordThreadsTest.class, "-REFrt").add(REFLECT);
     new TestDescriptor(ReflectFloatTest.class, "-REFf").add(REFLECT);
     new TestDescriptor(ReflectDoubleTest.class, "-REFd").add(REFLECT);
     new TestDescriptor(ReflectIntArrayTest.class, "-REFia").add(REFLECT);
@@ -134,10 +139,12 @@ public class Perf {
   }
   
   private static void usage() {
-    StringBuilder usage = new StringBuilder("Usage: Perf { -nowrite | -noread | ");
+    StringBuilder usage = new StringBuilder("Usage: Perf { -nowrite | -noread | -flatgrammar | -fieldaccess=<unsafe|handle|reflect> | ");
     StringBuilder details = new StringBuilder();
     details.append(" -nowrite   (do not execute write tests)\n");
     details.append(" -noread   (do not execute write tests)\n");
+    details.append(" -flatgrammar   (resolve through the flat grammar, -Davro.io.flatGrammar=true also covers the generic tests)\n");
+    details.append(" -fieldaccess=<unsafe|handle|reflect>   (access reflect fields through Unsafe, method handles or reflection)\n");
     for (Map.Entry<String, List<TestDescriptor>> entry : BATCHES.entrySet()) {
       List<TestDescriptor> lt = entry.getValue();
       String param = entry.getKey();
@@ -159,6 +166,13 @@ public class Perf {
     List<Test> tests = new ArrayList<Test>();
     boolean writeTests = true;
     boolean readTests = true;
+    for (String a : args) {
+      if (a.startsWith("-fieldaccess=")) {
+        // before the first reflect test selects the field access
+        System.setProperty("avro.reflect.fieldAccess",
+            a.substring("-fieldaccess=".length()));
+      }
+    }
     for (String a : args) {
       TestDescriptor t = ALL_TESTS.get(a);
       if (null != t) {
@@ -180,6 +194,13 @@ public class Perf {
         readTests = false;
         continue;
       }
+      if ("-flatgrammar".equals(a)) {
+        Test.decoder_factory.configureFlatGrammar(true);
+        continue;
+      }
+      if (a.startsWith("-fieldaccess=")) {
+        continue;
+      }
       usage();
       System.exit(1);
     }
@@ -945,7 +966,7 @@ public class Perf {
     }
     @Override
     protected Decoder getDecoder() throws IOException {
-      return new ResolvingDecoder(schema, schema, super.getDecoder());
+      return decoder_factory.resolvingDecoder(schema, schema, super.getDecoder());
     }
   }
 
@@ -996,7 +1017,7 @@ public class Perf {
     }
     @Override
     protected Decoder getDecoder() throws IOException {
-      return new ResolvingDecoder(schema, readerSchema, super.getDecoder());
+      return decoder_factory.resolvingDecoder(schema, readerSchema, super.getDecoder());
     }
     @Override
     protected void readInternal(Decoder d) throws IOException {
@@ -1038,7 +1059,7 @@ public class Perf {
     }
     @Override
     protected Decoder getDecoder() throws IOException {
-      return new ResolvingDecoder(schema, readerSchema, super.getDecoder());
+      return decoder_factory.resolvingDecoder(schema, readerSchema, super.getDecoder());
     }
     @Override
     protected void readInternal(Decoder d) throws IOException {
@@ -1076,7 +1097,7 @@ public class Perf {
     }
     @Override
     protected Decoder getDecoder() throws IOException {
-      return new ResolvingDecoder(schema, readerSchema, super.getDecoder());
+      return decoder_factory.resolvingDecoder(schema, readerSchema, super.getDecoder());
     }
     @Override
     protected void readInternal(Decoder d) throws IOException {
@@ -1488,6 +1509,110 @@ public class Perf {
     }
   }
   
+  /** Reads and writes the data of {@link ReflectRecordTest} on every core
+   * at once, each thread with its own reader and writer of the same class
+   * and schema. Entries per second are totals over all threads, so scaling
+   * is linear when they are the ReflectRecord rate times the thread count.
+   */
+  static class ReflectRecordThreadsTest extends Test {
+    private static final int THREADS =
+      Runtime.getRuntime().availableProcessors();
+    private final Schema schema = ReflectData.get().getSchema(Rec.class);
+    private final int perThread = COUNT / 12;
+    private Rec[] sourceData;
+    private byte[] data;
+    private ReflectDatumReader<Rec>[] readers;
+    private ReflectDatumWriter<Rec>[] writers;
+    private ExecutorService executor;
+
+    ReflectRecordThreadsTest() {
+      super("ReflectRecordThreads" + THREADS, CYCLES, COUNT / 12 * THREADS);
+    }
+
+    /** A task run by each thread, with its index. */
+    private interface ThreadTask {
+      void run(int thread) throws IOException;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    void init() throws IOException {
+      Random r = newRandom();
+      sourceData = new Rec[perThread];
+      for (int i = 0; i < sourceData.length; i++) {
+        sourceData[i] = new Rec(r);
+      }
+      readers = new ReflectDatumReader[THREADS];
+      writers = new ReflectDatumWriter[THREADS];
+      for (int i = 0; i < THREADS; i++) {
+        readers[i] = new ReflectDatumReader<Rec>(schema);
+        writers[i] = new ReflectDatumWriter<Rec>(schema);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      write(writers[0], out);
+      data = out.toByteArray();
+      encodedSize = (long) data.length * THREADS;
+      executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    private void write(ReflectDatumWriter<Rec> writer,
+                       ByteArrayOutputStream out) throws IOException {
+      Encoder e = encoder_factory.binaryEncoder(out, null);
+      for (Rec rec : sourceData) {
+        writer.write(rec, e);
+      }
+      e.flush();
+    }
+
+    @Override
+    long readTest() throws IOException {
+      return onAllThreads(thread -> {
+          Decoder d = decoder_factory.binaryDecoder(data, null);
+          for (int i = 0; i < perThread; i++) {
+            readers[thread].read(null, d);
+          }
+        });
+    }
+
+    @Override
+    long writeTest() throws IOException {
+      return onAllThreads(thread ->
+          write(writers[thread], new ByteArrayOutputStream(data.length)));
+    }
+
+    /** Runs a task on every thread and returns the time until all finish. */
+    private long onAllThreads(ThreadTask task) throws IOException {
+      long t = System.nanoTime();
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int i = 0; i < THREADS; i++) {
+        final int thread = i;
+        futures.add(executor.submit(() -> {
+            task.run(thread);
+            return null;
+          }));
+      }
+      try {
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+      return System.nanoTime() - t;
+    }
+
+    @Override
+    void reset() {
+      sourceData = null;
+      data = null;
+      readers = null;
+      writers = null;
+      executor.shutdown();
+    }
+  }
+
   static class ReflectFloatTest extends ReflectTest<float[]> {
     ReflectFloatTest() throws IOException {
       super("ReflectFloat", new float[0], COUNT);
@@ -131,6 +131,12 @@ public class ProtobufData extends GenericData {
     return datum instanceof Message;
   }
 
+  /** Protobuf data are named by their class. */
+  @Override
+  protected boolean cachesUnionBranchesByClass() {
+    return true;
+  }
+
   @Override
   public Object newRecord(Object old, Schema schema) {
     try {
@@ -126,6 +126,12 @@ public class ThriftData extends GenericData {
     return super.getSchemaName(datum);
   }
 
+  /** Thrift data are named by their class. */
+  @Override
+  protected boolean cachesUnionBranchesByClass() {
+    return true;
+  }
+
   @Override
   protected boolean isRecord(Object datum) {
     return datum instanceof TBase;
@@ -237,7 +237,7 @@ class Util {
 
   static OptionSpec<Integer> compressionLevelOption(OptionParser optParser) {
     return optParser
-      .accepts("level", "Compression level (only applies to deflate and xz)")
+      .accepts("level", "Compression level (only applies to deflate, xz and zstandard)")
       .withRequiredArg()
       .ofType(Integer.class)
       .defaultsTo(Deflater.DEFAULT_COMPRESSION);
@@ -255,6 +255,10 @@ class Util {
         return CodecFactory.deflateCodec(level.value(opts));
       } else if(codecName.equals(DataFileConstants.XZ_CODEC)) {
         return CodecFactory.xzCodec(level.value(opts));
+      } else if(codecName.equals(DataFileConstants.ZSTANDARD_CODEC)) {
+        return opts.has(level)
+          ? CodecFactory.zstandardCodec(level.value(opts))
+          : CodecFactory.fromString(codecName);
       } else {
         return CodecFactory.fromString(codec.value(opts));
       }
@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.github.luben.zstd.Zstd;
+
+/** Implements <a href="http://facebook.github.io/zstd/">Zstandard</a> codec,
+ * at the default level. */
+final class ZstandardCodec extends Codec {
+  private static final int LEVEL = 3;
+
+  @Override ByteBuffer compress(ByteBuffer in) throws IOException {
+    byte[] out = new byte[(int) Zstd.compressBound(in.remaining())];
+    byte[] src = new byte[in.remaining()];
+    in.duplicate().get(src);
+    long size = Zstd.compress(out, src, LEVEL);
+    if (Zstd.isError(size))
+      throw new IOException(Zstd.getErrorName(size));
+    return ByteBuffer.wrap(out, 0, (int) size);
+  }
+
+  @Override ByteBuffer decompress(ByteBuffer in) throws IOException {
+    byte[] src = new byte[in.remaining()];
+    in.duplicate().get(src);
+    long length = Zstd.decompressedSize(src);
+    byte[] out = new byte[(int) length];
+    long size = Zstd.decompress(out, src);
+    if (Zstd.isError(size))
+      throw new IOException(Zstd.getErrorName(size));
+    return ByteBuffer.wrap(out, 0, (int) size);
+  }
+
+}